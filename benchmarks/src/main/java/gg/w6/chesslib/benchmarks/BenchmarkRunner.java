@@ -0,0 +1,36 @@
+package gg.w6.chesslib.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler enabled, so that every result
+ * reports its allocation rate ({@code gc.alloc.rate.norm}, in bytes per
+ * operation) next to its throughput, and writes the results as JSON.
+ *
+ * <p>Accepts the usual JMH command line options, e.g. a benchmark name regex
+ * to run a subset:</p>
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar NotationBenchmark -rff before.json
+ * </pre>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    } // ensure non-instantiability
+
+    public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+        final Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,191 @@
+package gg.w6.chesslib.benchmarks;
+
+import gg.w6.chesslib.model.Move;
+import gg.w6.chesslib.model.Position;
+import gg.w6.chesslib.util.MoveGenerator;
+import gg.w6.chesslib.util.Moves;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The fixed inputs shared by the benchmarks, so that runs before and after a
+ * change measure the same work.
+ *
+ * <p>The positions are the first {@link #POSITION_COUNT} distinct FENs of the
+ * move generator test data ({@code perft.csv} and
+ * {@code positions/*.json}), in file order. The SAN moves and PGN games are
+ * generated from random games played with a fixed seed.</p>
+ */
+final class Corpus {
+
+    /**
+     * The number of positions in the corpus.
+     */
+    static final int POSITION_COUNT = 1024;
+
+    /**
+     * The number of generated games in the corpus.
+     */
+    static final int GAME_COUNT = 64;
+
+    private static final String[] POSITION_FILES = {
+            "castling.json", "checkmates.json", "famous.json", "pawns.json", "promotions.json",
+            "random.json", "stalemates.json", "standard.json", "taxing.json" };
+
+    private static final Pattern FEN_PATTERN = Pattern.compile("\"fen\"\\s*:\\s*\"([^\"]+)\"");
+
+    private static final String STARTING_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final long SEED = 0x5EED_C0FFEEL;
+
+    private static final int MAX_GAME_PLIES = 160;
+
+    private static volatile Corpus instance;
+
+    private final String[] fens;
+    private final Position[] positions;
+    private final Position[] sanPositions;
+    private final Move[] sanMoves;
+    private final String[] sans;
+    private final String[] games;
+
+    private Corpus() {
+        final Set<String> distinctFens = new LinkedHashSet<>();
+        for (final String line : read("perft/perft.csv").split("\n")) {
+            if (!line.startsWith("fen,") && !line.isBlank()) {
+                distinctFens.add(line.substring(0, line.indexOf(',')));
+            }
+        }
+        for (final String file : POSITION_FILES) {
+            final Matcher matcher = FEN_PATTERN.matcher(read("positions/" + file));
+            while (matcher.find()) {
+                distinctFens.add(matcher.group(1));
+            }
+        }
+        this.fens = distinctFens.stream().limit(POSITION_COUNT).toArray(String[]::new);
+        if (fens.length < POSITION_COUNT) {
+            throw new IllegalStateException("Only " + fens.length + " corpus positions found.");
+        }
+        this.positions = new Position[fens.length];
+        for (int i = 0; i < fens.length; i++) {
+            positions[i] = Position.valueOf(fens[i]);
+        }
+
+        final List<Position> sanPositions = new ArrayList<>();
+        final List<Move> sanMoves = new ArrayList<>();
+        final List<String> sans = new ArrayList<>();
+        this.games = new String[GAME_COUNT];
+        final SplittableRandom random = new SplittableRandom(SEED);
+        for (int game = 0; game < GAME_COUNT; game++) {
+            final StringBuilder movetext = new StringBuilder();
+            Position position = Position.valueOf(STARTING_FEN);
+            for (int ply = 0; ply < MAX_GAME_PLIES; ply++) {
+                final List<Move> legalMoves = new ArrayList<>(MoveGenerator.getLegalMoves(position));
+                if (legalMoves.isEmpty()) {
+                    break;
+                }
+                // sort first: the iteration order of the legal move set is not specified
+                legalMoves.sort(Comparator.comparing(Move::toString));
+                final Move move = legalMoves.get(random.nextInt(legalMoves.size()));
+                final String san = Moves.generateSAN(move, position);
+                sanPositions.add(position);
+                sanMoves.add(move);
+                sans.add(san);
+                if (ply % 2 == 0) {
+                    movetext.append(ply / 2 + 1).append(". ");
+                }
+                movetext.append(san).append(' ');
+                position = position.applyTo(move);
+            }
+            games[game] = "[Event \"Benchmark game " + (game + 1) + "\"]\n"
+                    + "[Site \"?\"]\n"
+                    + "[Date \"????.??.??\"]\n"
+                    + "[Round \"" + (game + 1) + "\"]\n"
+                    + "[White \"?\"]\n"
+                    + "[Black \"?\"]\n"
+                    + "[Result \"*\"]\n"
+                    + "\n"
+                    + movetext + "*\n\n";
+        }
+        this.sanPositions = sanPositions.toArray(Position[]::new);
+        this.sanMoves = sanMoves.toArray(Move[]::new);
+        this.sans = sans.toArray(String[]::new);
+    }
+
+    /**
+     * Returns the corpus, building it on first use.
+     *
+     * @return the corpus
+     */
+    static Corpus get() {
+        Corpus corpus = instance;
+        if (corpus == null) {
+            synchronized (Corpus.class) {
+                corpus = instance;
+                if (corpus == null) {
+                    instance = corpus = new Corpus();
+                }
+            }
+        }
+        return corpus;
+    }
+
+    String[] fens() {
+        return fens.clone();
+    }
+
+    Position[] positions() {
+        return positions.clone();
+    }
+
+    /**
+     * Returns the positions in which the {@link #sanMoves()} are played.
+     */
+    Position[] sanPositions() {
+        return sanPositions.clone();
+    }
+
+    Move[] sanMoves() {
+        return sanMoves.clone();
+    }
+
+    String[] sans() {
+        return sans.clone();
+    }
+
+    /**
+     * Returns the generated games, one PGN string each.
+     */
+    String[] games() {
+        return games.clone();
+    }
+
+    /**
+     * Returns the generated games concatenated into one PGN database.
+     */
+    String database() {
+        return String.join("", games);
+    }
+
+    private static String read(final String name) {
+        try (InputStream inputStream = Corpus.class.getResourceAsStream("/corpus/" + name)) {
+            if (inputStream == null) {
+                throw new IllegalStateException("Missing corpus resource " + name + ".");
+            }
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package gg.w6.chesslib.benchmarks;
+
+import gg.w6.chesslib.model.Move;
+import gg.w6.chesslib.model.MoveList;
+import gg.w6.chesslib.model.Position;
+import gg.w6.chesslib.util.MoveGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures legal move generation and move application over the corpus
+ * positions. Scores are per position.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class MoveGenerationBenchmark {
+
+    private Position[] positions;
+    private Move[][] legalMoves;
+    private final MoveList moveList = new MoveList();
+
+    @Setup
+    public void setUp() {
+        positions = Corpus.get().positions();
+        legalMoves = new Move[positions.length][];
+        for (int i = 0; i < positions.length; i++) {
+            legalMoves[i] = MoveGenerator.getLegalMoves(positions[i]).toArray(Move[]::new);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.POSITION_COUNT)
+    public void getLegalMoves(final Blackhole blackhole) {
+        for (final Position position : positions) {
+            blackhole.consume(MoveGenerator.getLegalMoves(position));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.POSITION_COUNT)
+    public void generateLegalMovesIntoMoveList(final Blackhole blackhole) {
+        for (final Position position : positions) {
+            moveList.clear();
+            blackhole.consume(MoveGenerator.generateLegalMoves(position, moveList));
+        }
+    }
+
+    /**
+     * Applies every legal move of every position; the score is per position,
+     * not per move.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Corpus.POSITION_COUNT)
+    public void applyTo(final Blackhole blackhole) {
+        for (int i = 0; i < positions.length; i++) {
+            for (final Move move : legalMoves[i]) {
+                blackhole.consume(positions[i].applyTo(move));
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package gg.w6.chesslib.benchmarks;
+
+import gg.w6.chesslib.model.Board;
+import gg.w6.chesslib.model.Move;
+import gg.w6.chesslib.model.Position;
+import gg.w6.chesslib.util.FenParser;
+import gg.w6.chesslib.util.Moves;
+import gg.w6.chesslib.util.SanParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures FEN and SAN parsing and generation. FEN scores are per corpus
+ * position; SAN scores are per pass over every move of the generated games,
+ * whose number depends on how the games ended.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class NotationBenchmark {
+
+    private String[] fens;
+    private Board[] boards;
+    private Position[] sanPositions;
+    private Board[] sanBoards;
+    private Move[] sanMoves;
+    private String[] sans;
+
+    @Setup
+    public void setUp() {
+        final Corpus corpus = Corpus.get();
+        fens = corpus.fens();
+        final Position[] positions = corpus.positions();
+        boards = new Board[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            boards[i] = new Board(positions[i]);
+        }
+        sanPositions = corpus.sanPositions();
+        sanBoards = new Board[sanPositions.length];
+        for (int i = 0; i < sanPositions.length; i++) {
+            sanBoards[i] = new Board(sanPositions[i]);
+        }
+        sanMoves = corpus.sanMoves();
+        sans = corpus.sans();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.POSITION_COUNT)
+    public void parseFen(final Blackhole blackhole) {
+        for (final String fen : fens) {
+            blackhole.consume(FenParser.parse(fen));
+        }
+    }
+
+    /**
+     * Generates the FEN of a fresh copy of each position, since
+     * {@link Position#generateFEN()} caches its result per instance. The
+     * copy is part of the measurement.
+     */
+    @Benchmark
+    @OperationsPerInvocation(Corpus.POSITION_COUNT)
+    public void generateFen(final Blackhole blackhole) {
+        for (final Board board : boards) {
+            blackhole.consume(board.toPosition().generateFEN());
+        }
+    }
+
+    @Benchmark
+    public void parseSan(final Blackhole blackhole) {
+        for (int i = 0; i < sans.length; i++) {
+            blackhole.consume(SanParser.parse(sans[i], sanPositions[i]));
+        }
+    }
+
+    /**
+     * Generates the SAN of each move on a fresh copy of its position, since
+     * {@link Position#getLegalMoves()}, which SAN generation reads, caches
+     * its result per instance, and the corpus positions already had their SAN
+     * generated. The copy is part of the measurement, as in
+     * {@link #generateFen(Blackhole)}.
+     */
+    @Benchmark
+    public void generateSan(final Blackhole blackhole) {
+        for (int i = 0; i < sanMoves.length; i++) {
+            blackhole.consume(Moves.generateSAN(sanMoves[i], sanBoards[i].toPosition()));
+        }
+    }
+}
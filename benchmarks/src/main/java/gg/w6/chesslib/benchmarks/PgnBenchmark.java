@@ -0,0 +1,60 @@
+package gg.w6.chesslib.benchmarks;
+
+import gg.w6.chesslib.util.PgnDatabaseSplitter;
+import gg.w6.chesslib.util.PgnParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures PGN parsing and splitting of a PGN database file. Scores are per
+ * game.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class PgnBenchmark {
+
+    private String[] games;
+    private File database;
+
+    @Setup
+    public void setUp() throws IOException {
+        final Corpus corpus = Corpus.get();
+        games = corpus.games();
+        database = Files.createTempFile("chesslib-benchmark", ".pgn").toFile();
+        database.deleteOnExit();
+        Files.writeString(database.toPath(), corpus.database(), StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(database.toPath());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.GAME_COUNT)
+    public void parse(final Blackhole blackhole) {
+        for (final String game : games) {
+            blackhole.consume(PgnParser.parse(game));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.GAME_COUNT)
+    public void splitDatabase(final Blackhole blackhole) throws IOException {
+        try (PgnDatabaseSplitter splitter = new PgnDatabaseSplitter(database)) {
+            for (final String game : splitter) {
+                blackhole.consume(game);
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package gg.w6.chesslib.model;
+
+import gg.w6.chesslib.model.piece.Piece;
+import gg.w6.chesslib.model.piece.PieceType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * This class consists exclusively of static constants and methods for working
+ * with bitboards. It is not instantiable.
+ *
+ * <p>A bitboard is a <code>long</code> in which bit <i>n</i> is set if and
+ * only if the square with index <i>n</i> is a member of the set. Square
+ * indices run from <code>0</code> (a1) to <code>63</code> (h8), rank by rank;
+ * see {@link Coordinate#getSquareIndex()}.</p>
+ *
+ * <p>Pieces are identified by a <i>piece index</i> from <code>0</code> to
+ * <code>11</code>, such that
+ * <code>pieceIndex == color.ordinal() * PieceType.COUNT + type.ordinal()</code>.
+ * {@link #NO_PIECE} marks an empty square.</p>
+ *
+ * <p>Usage example:</p>
+ * <pre><code>
+ * long knights = position.getBitboard(Color.WHITE, PieceType.KNIGHT);
+ * while (knights != 0) {
+ *     final int square = Long.numberOfTrailingZeros(knights);
+ *     knights &amp;= knights - 1;
+ *     // ...
+ * }
+ * </code></pre>
+ */
+public final class Bitboards {
+
+    /**
+     * The number of squares on a chessboard.
+     */
+    public static final int SQUARE_COUNT = File.COUNT * Rank.COUNT;
+
+    /**
+     * The number of distinct colored pieces, and thus of piece indices.
+     */
+    public static final int PIECE_INDEX_COUNT = PieceType.COUNT * 2;
+
+    /**
+     * The piece index of an empty square.
+     */
+    public static final int NO_PIECE = -1;
+
+    /**
+     * The square index standing for no square, e.g. a missing king.
+     */
+    public static final int NO_SQUARE = -1;
+
+    /**
+     * The bitboard containing no squares.
+     */
+    public static final long EMPTY = 0L;
+
+    /**
+     * The bitboard containing every square.
+     */
+    public static final long ALL = -1L;
+
+    /**
+     * The bitboard of the a-file.
+     */
+    public static final long FILE_A = 0x0101010101010101L;
+
+    /**
+     * The bitboard of the h-file.
+     */
+    public static final long FILE_H = FILE_A << (File.COUNT - 1);
+
+    /**
+     * The bitboard of the first rank.
+     */
+    public static final long RANK_1 = 0xFFL;
+
+    /**
+     * The bitboard of the eighth rank.
+     */
+    public static final long RANK_8 = RANK_1 << (File.COUNT * (Rank.COUNT - 1));
+
+    /**
+     * Canonical instances of every piece, indexed by piece index.
+     */
+    private static final Piece[] PIECES = new Piece[PIECE_INDEX_COUNT];
+
+    /**
+     * Cached copy of {@link PieceType#values()}.
+     */
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+    static {
+        final String letters = "PNBRQKpnbrqk";
+        for (int pieceIndex = 0; pieceIndex < PIECE_INDEX_COUNT; pieceIndex++) {
+            PIECES[pieceIndex] = Piece.valueOf(letters.charAt(pieceIndex));
+        }
+    }
+
+    private Bitboards() {
+    } // ensure non-instantiability
+
+    /**
+     * Returns the bitboard containing only the given square.
+     *
+     * @param squareIndex the index of the square
+     * @return the bitboard containing only the given square
+     */
+    public static long bit(final int squareIndex) {
+        return 1L << squareIndex;
+    }
+
+    /**
+     * Returns the square index of the given file and rank indices.
+     *
+     * @param fileIndex the index of the file
+     * @param rankIndex the index of the rank
+     * @return the square index
+     */
+    public static int squareIndex(final int fileIndex, final int rankIndex) {
+        return rankIndex * File.COUNT + fileIndex;
+    }
+
+    /**
+     * Returns the file index of the given square index.
+     *
+     * @param squareIndex the index of the square
+     * @return the file index of the square
+     */
+    public static int fileIndex(final int squareIndex) {
+        return squareIndex & (File.COUNT - 1);
+    }
+
+    /**
+     * Returns the rank index of the given square index.
+     *
+     * @param squareIndex the index of the square
+     * @return the rank index of the square
+     */
+    public static int rankIndex(final int squareIndex) {
+        return squareIndex >>> 3;
+    }
+
+    /**
+     * Returns the bitboard of the file with the given index.
+     *
+     * @param fileIndex the index of the file
+     * @return the bitboard of the file
+     */
+    public static long file(final int fileIndex) {
+        return FILE_A << fileIndex;
+    }
+
+    /**
+     * Returns the bitboard of the rank with the given index.
+     *
+     * @param rankIndex the index of the rank
+     * @return the bitboard of the rank
+     */
+    public static long rank(final int rankIndex) {
+        return RANK_1 << (rankIndex * File.COUNT);
+    }
+
+    /**
+     * Returns the piece index of the given color and piece type.
+     *
+     * @param color the color of the piece
+     * @param pieceType the type of the piece
+     * @return the piece index
+     */
+    public static int pieceIndex(@NotNull final Color color,
+                                 @NotNull final PieceType pieceType) {
+        return color.ordinal() * PieceType.COUNT + pieceType.ordinal();
+    }
+
+    /**
+     * Returns the piece index of the given piece.
+     *
+     * @param piece the piece, or null
+     * @return the piece index, or {@link #NO_PIECE} if <code>piece</code> is
+     *         null
+     * @throws IllegalArgumentException if the piece is not one of the six
+     *                                  standard pieces
+     */
+    public static int pieceIndex(@Nullable final Piece piece) {
+        return piece == null
+                ? NO_PIECE
+                : pieceIndex(piece.getColor(), piece.getType());
+    }
+
+    /**
+     * Returns the canonical {@link Piece} instance of the given piece index.
+     *
+     * @param pieceIndex the piece index, or {@link #NO_PIECE}
+     * @return the piece, or null if <code>pieceIndex</code> is
+     *         {@link #NO_PIECE}
+     */
+    @Nullable
+    public static Piece pieceOf(final int pieceIndex) {
+        return pieceIndex == NO_PIECE ? null : PIECES[pieceIndex];
+    }
+
+    /**
+     * Returns the {@link PieceType} of the given piece index.
+     *
+     * @param pieceIndex the piece index
+     * @return the type of the piece
+     */
+    @NotNull
+    public static PieceType pieceTypeOf(final int pieceIndex) {
+        return PIECE_TYPES[pieceIndex % PieceType.COUNT];
+    }
+
+    /**
+     * Returns the {@link Color} of the given piece index.
+     *
+     * @param pieceIndex the piece index
+     * @return the color of the piece
+     */
+    @NotNull
+    public static Color colorOf(final int pieceIndex) {
+        return pieceIndex < PieceType.COUNT ? Color.WHITE : Color.BLACK;
+    }
+}
@@ -0,0 +1,437 @@
+package gg.w6.chesslib.model;
+
+import gg.w6.chesslib.model.piece.PieceType;
+import gg.w6.chesslib.util.FenWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * A mutable chessboard for search, perft and game replay.
+ *
+ * <p>Unlike {@link Position#applyTo(Move)}, which copies the whole board for
+ * every move, {@link #makeMove(int)} updates this board in place and pushes
+ * what it cannot recompute (the captured piece, castling rights, en passant
+ * target and halfmove clock) onto an undo stack. {@link #unmakeMove()} pops it
+ * and restores the previous state exactly. The {@link Zobrist} key is updated
+ * incrementally as well.</p>
+ *
+ * <p>Castling rights, en passant targets and clocks are updated with the same
+ * rules as {@link Position#applyTo(Move)}, so that
+ * <code>new Board(position).makeMove(move)</code> followed by
+ * {@link #toPosition()} equals <code>position.applyTo(move)</code>.</p>
+ *
+ * <p>Moves are not validated; making an illegal move leaves the board in an
+ * unspecified, but undoable, state.</p>
+ *
+ * <p>Usage example:</p>
+ * <pre><code>
+ * final Board board = new Board(Position.valueOf(fen));
+ * final MoveList moves = new MoveList();
+ * MoveGenerator.generateLegalMoves(board, moves);
+ * for (int i = 0; i &lt; moves.size(); i++) {
+ *     board.makeMove(moves.get(i));
+ *     // ...
+ *     board.unmakeMove();
+ * }
+ * </code></pre>
+ */
+@NotThreadSafe
+public final class Board implements BoardState {
+
+    private static final int WHITE_KINGSIDE = 1;
+    private static final int WHITE_QUEENSIDE = 2;
+    private static final int BLACK_KINGSIDE = 4;
+    private static final int BLACK_QUEENSIDE = 8;
+
+    /**
+     * Shared castling rights instances, indexed by their bit set.
+     */
+    private static final CastlingRights[] CASTLING_RIGHTS = new CastlingRights[16];
+
+    /**
+     * The castling rights that survive a move from or to each square.
+     */
+    private static final int[] CASTLING_MASKS = new int[Bitboards.SQUARE_COUNT];
+
+    static {
+        for (int rights = 0; rights < CASTLING_RIGHTS.length; rights++) {
+            CASTLING_RIGHTS[rights] = new CastlingRights(
+                    (rights & WHITE_KINGSIDE) != 0, (rights & WHITE_QUEENSIDE) != 0,
+                    (rights & BLACK_KINGSIDE) != 0, (rights & BLACK_QUEENSIDE) != 0);
+        }
+        Arrays.fill(CASTLING_MASKS, 0xF);
+        CASTLING_MASKS[Bitboards.squareIndex(7, 0)] &= ~WHITE_KINGSIDE;
+        CASTLING_MASKS[Bitboards.squareIndex(0, 0)] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASKS[Bitboards.squareIndex(7, Rank.COUNT - 1)] &= ~BLACK_KINGSIDE;
+        CASTLING_MASKS[Bitboards.squareIndex(0, Rank.COUNT - 1)] &= ~BLACK_QUEENSIDE;
+    }
+
+    // layout of an undo entry
+    private static final int UNDO_CAPTURED_SHIFT = 16;
+    private static final int UNDO_CASTLING_SHIFT = 20;
+    private static final int UNDO_EN_PASSANT_SHIFT = 24;
+    private static final int UNDO_HALF_MOVE_CLOCK_SHIFT = 32;
+
+    private final long[] bitboards = new long[Bitboards.PIECE_INDEX_COUNT];
+    private final byte[] pieceIndices = new byte[Bitboards.SQUARE_COUNT];
+    private final long[] occupancies = new long[2];
+
+    private int castlingRights;
+
+    /**
+     * The en passant target square index, or {@link Bitboards#NO_SQUARE} if
+     * there is none.
+     */
+    private int enPassantSquare;
+    private Color toMove;
+    private int halfMoveClock;
+    private int fullMoves;
+    private long zobristKey;
+
+    /**
+     * One entry per made move: the packed move, the captured piece index,
+     * and the castling rights, en passant square and halfmove clock before
+     * the move.
+     */
+    private long[] undoStack = new long[MoveList.DEFAULT_CAPACITY];
+
+    /**
+     * The Zobrist key before each made move, parallel to the undo stack.
+     */
+    private long[] keyStack = new long[MoveList.DEFAULT_CAPACITY];
+    private int ply;
+
+    /**
+     * Constructs a board in the state of the given position, with an empty
+     * undo stack.
+     *
+     * @param position the position to copy
+     */
+    public Board(@NotNull final Position position) {
+        for (int squareIndex = 0; squareIndex < Bitboards.SQUARE_COUNT; squareIndex++) {
+            final int pieceIndex = position.getPieceIndex(squareIndex);
+            pieceIndices[squareIndex] = (byte) pieceIndex;
+            if (pieceIndex != Bitboards.NO_PIECE) {
+                bitboards[pieceIndex] |= Bitboards.bit(squareIndex);
+                occupancies[Bitboards.colorOf(pieceIndex).ordinal()] |= Bitboards.bit(squareIndex);
+            }
+        }
+        final CastlingRights rights = position.getCastlingRights();
+        this.castlingRights = (rights.whiteKingside() ? WHITE_KINGSIDE : 0)
+                | (rights.whiteQueenside() ? WHITE_QUEENSIDE : 0)
+                | (rights.blackKingside() ? BLACK_KINGSIDE : 0)
+                | (rights.blackQueenside() ? BLACK_QUEENSIDE : 0);
+        final Coordinate enPassantTarget = position.getEnPassantTarget();
+        this.enPassantSquare = enPassantTarget == null ? Bitboards.NO_SQUARE : enPassantTarget.getSquareIndex();
+        this.toMove = position.getToMove();
+        this.halfMoveClock = position.getHalfMoveClock();
+        this.fullMoves = position.getFullMoves();
+        this.zobristKey = position.getZobristKey();
+    }
+
+    /**
+     * Returns an immutable {@link Position} in the current state of this
+     * board.
+     *
+     * @return the current position
+     */
+    @NotNull
+    public Position toPosition() {
+        return new Position(pieceIndices.clone(), getCastlingRights(), getEnPassantTarget(), toMove,
+                halfMoveClock, fullMoves);
+    }
+
+    /**
+     * Makes the given move.
+     *
+     * @param move the move to make
+     * @throws IllegalArgumentException if castling is attempted with an
+     *                                  invalid king destination
+     */
+    public void makeMove(@NotNull final Move move) {
+        makeMove(PackedMove.valueOf(move));
+    }
+
+    /**
+     * Makes the given packed move.
+     *
+     * @param packedMove the {@link PackedMove packed move} to make
+     * @throws IllegalArgumentException if castling is attempted with an
+     *                                  invalid king destination
+     */
+    public void makeMove(final int packedMove) {
+        final int from = PackedMove.from(packedMove);
+        final int to = PackedMove.to(packedMove);
+        final MoveType moveType = PackedMove.moveType(packedMove);
+        final int movedPieceIndex = pieceIndices[from];
+        final int capturedSquare = moveType == MoveType.EN_PASSANT
+                ? Bitboards.squareIndex(Bitboards.fileIndex(to), Bitboards.rankIndex(from))
+                : to;
+        final int capturedPieceIndex = moveType == MoveType.CASTLING
+                ? Bitboards.NO_PIECE
+                : pieceIndices[capturedSquare];
+
+        if (moveType == MoveType.CASTLING) {
+            if (Bitboards.fileIndex(to) != 6 && Bitboards.fileIndex(to) != 2) {
+                throw new IllegalArgumentException("Invalid king destination for castling: file "
+                        + Bitboards.fileIndex(to));
+            }
+            if (Bitboards.rankIndex(to) != 0 && Bitboards.rankIndex(to) != Rank.COUNT - 1) {
+                throw new IllegalArgumentException(
+                        "Trying to castle to a rank that is not the first or the eighth.");
+            }
+        }
+
+        if (ply == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, ply * 2);
+            keyStack = Arrays.copyOf(keyStack, ply * 2);
+        }
+        keyStack[ply] = zobristKey;
+        undoStack[ply++] = (packedMove & 0xFFFFL)
+                | (long) (capturedPieceIndex + 1) << UNDO_CAPTURED_SHIFT
+                | (long) castlingRights << UNDO_CASTLING_SHIFT
+                | (long) (enPassantSquare + 1) << UNDO_EN_PASSANT_SHIFT
+                | (long) halfMoveClock << UNDO_HALF_MOVE_CLOCK_SHIFT;
+
+        switch (moveType) {
+            case NORMAL -> {
+                remove(from);
+                remove(to);
+                put(to, movedPieceIndex);
+            }
+            case PROMOTION -> {
+                remove(from);
+                remove(to);
+                put(to, Bitboards.pieceIndex(Bitboards.colorOf(movedPieceIndex),
+                        PackedMove.promotionType(packedMove)));
+            }
+            case EN_PASSANT -> {
+                remove(from);
+                remove(capturedSquare);
+                put(to, movedPieceIndex);
+            }
+            case CASTLING -> {
+                remove(from);
+                put(to, movedPieceIndex);
+                final int rookFrom = rookFrom(to);
+                final int rookPieceIndex = pieceIndices[rookFrom];
+                remove(rookFrom);
+                if (rookPieceIndex != Bitboards.NO_PIECE) {
+                    put(rookTo(to), rookPieceIndex);
+                }
+            }
+        }
+
+        final int previousCastlingRights = castlingRights;
+        final int previousEnPassantSquare = enPassantSquare;
+        final int moverRights = toMove == Color.WHITE
+                ? WHITE_KINGSIDE | WHITE_QUEENSIDE
+                : BLACK_KINGSIDE | BLACK_QUEENSIDE;
+        if (moveType == MoveType.CASTLING) {
+            castlingRights &= ~moverRights;
+        } else if (moveType != MoveType.EN_PASSANT) {
+            castlingRights &= CASTLING_MASKS[from] & CASTLING_MASKS[to];
+            if (movedPieceIndex != Bitboards.NO_PIECE
+                    && Bitboards.pieceTypeOf(movedPieceIndex) == PieceType.KING) {
+                castlingRights &= ~moverRights;
+            }
+        }
+
+        final boolean pawnMove = movedPieceIndex != Bitboards.NO_PIECE
+                && Bitboards.pieceTypeOf(movedPieceIndex) == PieceType.PAWN;
+        enPassantSquare = pawnMove && Math.abs(Bitboards.rankIndex(from) - Bitboards.rankIndex(to)) == 2
+                ? (from + to) / 2
+                : Bitboards.NO_SQUARE;
+        halfMoveClock = pawnMove || capturedPieceIndex != Bitboards.NO_PIECE || moveType == MoveType.EN_PASSANT
+                ? 0
+                : halfMoveClock + 1;
+        if (toMove == Color.BLACK) {
+            fullMoves++;
+        }
+        toMove = toMove == Color.WHITE ? Color.BLACK : Color.WHITE;
+
+        zobristKey ^= Zobrist.blackToMove();
+        if (castlingRights != previousCastlingRights) {
+            zobristKey ^= Zobrist.castling(CASTLING_RIGHTS[previousCastlingRights])
+                    ^ Zobrist.castling(CASTLING_RIGHTS[castlingRights]);
+        }
+        if (enPassantSquare != previousEnPassantSquare) {
+            zobristKey ^= enPassantKey(previousEnPassantSquare) ^ enPassantKey(enPassantSquare);
+        }
+    }
+
+    /**
+     * Takes back the last move made.
+     *
+     * @throws IllegalStateException if no move has been made
+     */
+    public void unmakeMove() {
+        if (ply == 0) {
+            throw new IllegalStateException("There is no move to unmake.");
+        }
+        final long undo = undoStack[--ply];
+        final long previousKey = keyStack[ply];
+        final int packedMove = (int) (undo & 0xFFFF);
+        final int capturedPieceIndex = (int) ((undo >>> UNDO_CAPTURED_SHIFT) & 0xF) - 1;
+
+        toMove = toMove == Color.WHITE ? Color.BLACK : Color.WHITE;
+        if (toMove == Color.BLACK) {
+            fullMoves--;
+        }
+        castlingRights = (int) ((undo >>> UNDO_CASTLING_SHIFT) & 0xF);
+        enPassantSquare = (int) ((undo >>> UNDO_EN_PASSANT_SHIFT) & 0xFF) - 1;
+        halfMoveClock = (int) (undo >>> UNDO_HALF_MOVE_CLOCK_SHIFT);
+
+        final int from = PackedMove.from(packedMove);
+        final int to = PackedMove.to(packedMove);
+        final int movedPieceIndex = pieceIndices[to];
+
+        switch (PackedMove.moveType(packedMove)) {
+            case NORMAL -> {
+                remove(to);
+                put(from, movedPieceIndex);
+                put(to, capturedPieceIndex);
+            }
+            case PROMOTION -> {
+                remove(to);
+                put(from, Bitboards.pieceIndex(toMove, PieceType.PAWN));
+                put(to, capturedPieceIndex);
+            }
+            case EN_PASSANT -> {
+                remove(to);
+                put(from, movedPieceIndex);
+                put(Bitboards.squareIndex(Bitboards.fileIndex(to), Bitboards.rankIndex(from)), capturedPieceIndex);
+            }
+            case CASTLING -> {
+                remove(to);
+                put(from, movedPieceIndex);
+                final int rookPieceIndex = pieceIndices[rookTo(to)];
+                remove(rookTo(to));
+                put(rookFrom(to), rookPieceIndex);
+            }
+        }
+        zobristKey = previousKey;
+    }
+
+    /**
+     * Returns the number of moves that can currently be unmade.
+     *
+     * @return the depth of the undo stack
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    @Override
+    public int getPieceIndex(final int squareIndex) {
+        return pieceIndices[squareIndex];
+    }
+
+    @Override
+    public long getBitboard(final int pieceIndex) {
+        return bitboards[pieceIndex];
+    }
+
+    @Override
+    public long getOccupancy(@NotNull final Color color) {
+        return occupancies[color.ordinal()];
+    }
+
+    @Override
+    public long getOccupancy() {
+        return occupancies[0] | occupancies[1];
+    }
+
+    @Override
+    @NotNull
+    public CastlingRights getCastlingRights() {
+        return CASTLING_RIGHTS[castlingRights];
+    }
+
+    @Override
+    @Nullable
+    public Coordinate getEnPassantTarget() {
+        return enPassantSquare == Bitboards.NO_SQUARE ? null : Coordinate.valueOf(enPassantSquare);
+    }
+
+    @Override
+    @NotNull
+    public Color getToMove() {
+        return toMove;
+    }
+
+    @Override
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * Returns the halfmove clock, which counts the number of halfmoves
+     * since the last pawn move or capture.
+     *
+     * @return the halfmove clock
+     */
+    public int getHalfMoveClock() {
+        return halfMoveClock;
+    }
+
+    /**
+     * Returns the fullmove number.
+     *
+     * @return the fullmove number
+     */
+    public int getFullMoves() {
+        return fullMoves;
+    }
+
+    /**
+     * @return the FEN of the current state of this board
+     */
+    @Override
+    @NotNull
+    public String toString() {
+        return FenWriter.append(this, halfMoveClock, fullMoves, new StringBuilder(FenWriter.MAX_LENGTH)).toString();
+    }
+
+    private static long enPassantKey(final int enPassantSquare) {
+        return enPassantSquare == Bitboards.NO_SQUARE ? 0L : Zobrist.enPassant(Coordinate.valueOf(enPassantSquare));
+    }
+
+    private static int rookFrom(final int kingTo) {
+        return Bitboards.fileIndex(kingTo) == 6 ? kingTo + 1 : kingTo - 2;
+    }
+
+    private static int rookTo(final int kingTo) {
+        return Bitboards.fileIndex(kingTo) == 6 ? kingTo - 1 : kingTo + 1;
+    }
+
+    /**
+     * Removes the piece, if any, from the given square.
+     */
+    private void remove(final int squareIndex) {
+        final int pieceIndex = pieceIndices[squareIndex];
+        if (pieceIndex != Bitboards.NO_PIECE) {
+            final long bit = Bitboards.bit(squareIndex);
+            bitboards[pieceIndex] &= ~bit;
+            occupancies[Bitboards.colorOf(pieceIndex).ordinal()] &= ~bit;
+            pieceIndices[squareIndex] = Bitboards.NO_PIECE;
+            zobristKey ^= Zobrist.pieceSquare(pieceIndex, squareIndex);
+        }
+    }
+
+    /**
+     * Places the given piece, if any, on the given empty square.
+     */
+    private void put(final int squareIndex, final int pieceIndex) {
+        if (pieceIndex != Bitboards.NO_PIECE) {
+            final long bit = Bitboards.bit(squareIndex);
+            bitboards[pieceIndex] |= bit;
+            occupancies[Bitboards.colorOf(pieceIndex).ordinal()] |= bit;
+            pieceIndices[squareIndex] = (byte) pieceIndex;
+            zobristKey ^= Zobrist.pieceSquare(pieceIndex, squareIndex);
+        }
+    }
+}
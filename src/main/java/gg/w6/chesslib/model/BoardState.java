@@ -0,0 +1,113 @@
+package gg.w6.chesslib.model;
+
+import gg.w6.chesslib.model.piece.PieceType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The read-only state of a chessboard that move generation and attack
+ * detection need: piece placement as bitboards, side to move, castling rights
+ * and en passant target.
+ *
+ * <p>It is implemented by the immutable {@link Position} and by the mutable
+ * {@link Board}, so that the same generator can serve both.</p>
+ *
+ * @see Bitboards
+ */
+public interface BoardState {
+
+    /**
+     * Returns the piece index of the piece on the square with the given
+     * square index.
+     *
+     * @param squareIndex the index of the square. See {@link Bitboards}.
+     * @return the piece index, or {@link Bitboards#NO_PIECE} if the square is
+     *         empty
+     */
+    int getPieceIndex(int squareIndex);
+
+    /**
+     * Returns the bitboard of the pieces with the given piece index.
+     *
+     * @param pieceIndex the piece index. See {@link Bitboards}.
+     * @return the bitboard of the pieces
+     */
+    long getBitboard(int pieceIndex);
+
+    /**
+     * Returns the bitboard of the pieces of the given color and type.
+     *
+     * @param color the color of the pieces
+     * @param pieceType the type of the pieces
+     * @return the bitboard of the pieces
+     */
+    default long getBitboard(@NotNull final Color color, @NotNull final PieceType pieceType) {
+        return getBitboard(Bitboards.pieceIndex(color, pieceType));
+    }
+
+    /**
+     * Returns the bitboard of all squares occupied by pieces of the given
+     * color.
+     *
+     * @param color the color of the pieces
+     * @return the bitboard of the occupied squares
+     */
+    long getOccupancy(@NotNull Color color);
+
+    /**
+     * Returns the bitboard of all occupied squares.
+     *
+     * @return the bitboard of the occupied squares
+     */
+    default long getOccupancy() {
+        return getOccupancy(Color.WHITE) | getOccupancy(Color.BLACK);
+    }
+
+    /**
+     * Returns the square of the king of the given color.
+     *
+     * <p>If there is more than one such king, the one with the lowest square
+     * index is returned.</p>
+     *
+     * @param color the color of the king
+     * @return the index of the king's square, or {@link Bitboards#NO_SQUARE}
+     *         if there is no king of that color
+     */
+    default int getKingSquare(@NotNull final Color color) {
+        final long kings = getBitboard(color, PieceType.KING);
+        return kings == 0 ? Bitboards.NO_SQUARE : Long.numberOfTrailingZeros(kings);
+    }
+
+    /**
+     * Returns the castling rights.
+     *
+     * @return the castling rights
+     */
+    @NotNull
+    CastlingRights getCastlingRights();
+
+    /**
+     * Returns the target square for en passant captures.
+     *
+     * @return the target square for en passant captures, or null if there is
+     *         none
+     */
+    @Nullable
+    Coordinate getEnPassantTarget();
+
+    /**
+     * Returns the color of the player who is to move next.
+     *
+     * @return the color of the player who is to move next
+     */
+    @NotNull
+    Color getToMove();
+
+    /**
+     * Returns the Zobrist key of the piece placement, side to move, castling
+     * rights and en passant target. See {@link Zobrist}.
+     *
+     * @return the Zobrist key
+     */
+    long getZobristKey();
+}
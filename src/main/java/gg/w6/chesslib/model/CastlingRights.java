@@ -130,4 +130,15 @@ public class CastlingRights {
             return false;
         }
     }
+
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}.
+     *
+     * @return the hash code of these castling rights
+     */
+    @Override
+    public int hashCode() {
+        return (whiteKingside ? 1 : 0) | (whiteQueenside ? 2 : 0)
+                | (blackKingside ? 4 : 0) | (blackQueenside ? 8 : 0);
+    }
 }
@@ -1,5 +1,8 @@
 package gg.w6.chesslib.model;
 
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
 import javax.annotation.concurrent.Immutable;
 import java.util.Arrays;
 
@@ -50,6 +53,25 @@ public class Coordinate {
                         new Coordinate(fileIndex, rankIndex));
     }
 
+    /**
+     * Returns the Coordinate with the given square index.
+     *
+     * <p>Square indices run from <code>0</code> (a1) to <code>63</code> (h8),
+     * rank by rank, such that the index is
+     * <code>rankIndex * File.COUNT + fileIndex</code>.</p>
+     *
+     * @param squareIndex the index of the square
+     * @return A Coordinate object representing the specified square index.
+     * @throws IllegalArgumentException if the index is out of bounds
+     */
+    public static Coordinate valueOf(final int squareIndex) {
+        if (squareIndex < 0 || squareIndex >= File.COUNT * Rank.COUNT) {
+            throw new IllegalArgumentException("Square index " + squareIndex
+                    + " is out of bounds.");
+        }
+        return valueOf(squareIndex % File.COUNT, squareIndex / File.COUNT);
+    }
+
     /**
      * Creates a new Coordinate object from a string representation.
      * @param coordinate The string representation of the coordinate (e.g., "e4").
@@ -57,14 +79,33 @@ public class Coordinate {
      * @throws IllegalArgumentException if the string is not a valid coordinate.
      */
     public static Coordinate valueOf(final String coordinate) {
-        if (!coordinate.matches("^[a-h][1-8]$")) {
+        final Coordinate result = tryValueOf(coordinate);
+        if (result == null) {
             throw new IllegalArgumentException(
                     "Malformed coordinate \"" + coordinate + "\".");
         }
+        return result;
+    }
 
-        return Coordinate.valueOf(File.valueOf(String.valueOf(
-                Character.toUpperCase(coordinate.charAt(0)))),
-                Rank.values()[coordinate.charAt(1) - '1']);
+    /**
+     * Returns the Coordinate with the given string representation, or null
+     * if the characters are not a valid coordinate. Unlike
+     * {@link #valueOf(String)}, this method does not throw on bad input.
+     * @param coordinate The characters of the coordinate (e.g., "e4").
+     * @return A Coordinate object representing the specified characters, or
+     *         null if they are malformed.
+     */
+    @Nullable
+    public static Coordinate tryValueOf(@NotNull final CharSequence coordinate) {
+        if (coordinate.length() != 2) {
+            return null;
+        }
+        final char file = coordinate.charAt(0);
+        final char rank = coordinate.charAt(1);
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+            return null;
+        }
+        return valueOf(file - 'a', rank - '1');
     }
 
     /**
@@ -124,6 +165,17 @@ public class Coordinate {
         return rank.ordinal();
     }
 
+    /**
+     * Returns the square index of the coordinate, from <code>0</code> (a1) to
+     * <code>63</code> (h8).
+     * <p>Semantically equivalent to
+     * <code>getRankIndex() * File.COUNT + getFileIndex()</code></p>
+     * @return the square index of the coordinate
+     */
+    public int getSquareIndex() {
+        return rank.ordinal() * File.COUNT + file.ordinal();
+    }
+
     /**
      * Returns the traditional string representation of a coordinate
      * ex. "c4"
@@ -0,0 +1,187 @@
+package gg.w6.chesslib.model;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A growable list of {@link PackedMove packed moves}, backed by an
+ * <code>int</code> array.
+ *
+ * <p>A <code>MoveList</code> is meant to be reused: {@link #clear()} resets
+ * its size without releasing the array, so filling it again does not
+ * allocate. Moves keep the order in which they were added.</p>
+ *
+ * <p>Usage example:</p>
+ * <pre><code>
+ * final MoveList moves = new MoveList();
+ * for (int i = 0; i &lt; moves.size(); i++) {
+ *     final int move = moves.get(i);
+ *     // ...
+ * }
+ * </code></pre>
+ */
+@NotThreadSafe
+public final class MoveList {
+
+    /**
+     * The default capacity, enough for the legal moves of any reachable
+     * position.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private int[] moves;
+    private int size;
+
+    /**
+     * Constructs an empty <code>MoveList</code> with the
+     * {@link #DEFAULT_CAPACITY}.
+     */
+    public MoveList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty <code>MoveList</code> with the given capacity.
+     *
+     * @param capacity the initial capacity
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public MoveList(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity + ".");
+        }
+        this.moves = new int[capacity];
+    }
+
+    /**
+     * Appends a packed move, growing the backing array if needed.
+     *
+     * @param packedMove the packed move to append
+     */
+    public void add(final int packedMove) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, Math.max(DEFAULT_CAPACITY, moves.length * 2));
+        }
+        moves[size++] = packedMove;
+    }
+
+    /**
+     * Returns the packed move at the given index.
+     *
+     * @param index the index of the move
+     * @return the packed move
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int get(final int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size + ".");
+        }
+        return moves[index];
+    }
+
+    /**
+     * Replaces the packed move at the given index.
+     *
+     * @param index the index of the move
+     * @param packedMove the new packed move
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public void set(final int index, final int packedMove) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size + ".");
+        }
+        moves[index] = packedMove;
+    }
+
+    /**
+     * Returns the number of moves in this list.
+     *
+     * @return the number of moves
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether this list contains no moves.
+     *
+     * @return <code>true</code> if this list is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes moves from the end of this list, keeping the first
+     * <code>size</code> ones.
+     *
+     * @param size the new size
+     * @throws IndexOutOfBoundsException if <code>size</code> is negative or
+     *                                   larger than the current size
+     */
+    public void truncate(final int size) {
+        if (size < 0 || size > this.size) {
+            throw new IndexOutOfBoundsException("Size " + size + " out of bounds for size " + this.size + ".");
+        }
+        this.size = size;
+    }
+
+    /**
+     * Removes all moves, keeping the backing array.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns whether this list contains the given packed move.
+     *
+     * @param packedMove the packed move to look for
+     * @return <code>true</code> if the move is present
+     */
+    public boolean contains(final int packedMove) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == packedMove) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Unpacks every move of this list into a new mutable set of
+     * {@link Move}s.
+     *
+     * @return the set of moves
+     */
+    @NotNull
+    public Set<Move> toMoveSet() {
+        final Set<Move> set = new HashSet<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            set.add(PackedMove.toMove(moves[i]));
+        }
+        return set;
+    }
+
+    /**
+     * Returns the UCI strings of the moves, in order.
+     *
+     * @return a string representation of this list
+     */
+    @Override
+    @NotNull
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append(PackedMove.toString(moves[i]));
+        }
+        return stringBuilder.append(']').toString();
+    }
+}
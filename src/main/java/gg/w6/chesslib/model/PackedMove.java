@@ -0,0 +1,164 @@
+package gg.w6.chesslib.model;
+
+import gg.w6.chesslib.model.piece.Piece;
+import gg.w6.chesslib.model.piece.PieceType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * This class consists exclusively of static methods for encoding a
+ * {@link Move} into, and decoding it from, a single <code>int</code>. It is
+ * not instantiable.
+ *
+ * <p>A packed move occupies the low 16 bits of an <code>int</code>:</p>
+ * <pre>
+ *  bits  0- 5  origin square index
+ *  bits  6-11  destination square index
+ *  bits 12-13  {@link MoveType} ordinal
+ *  bits 14-15  promotion piece type (knight, bishop, rook, queen)
+ * </pre>
+ *
+ * <p>The color of a promotion piece is not stored; it is derived from the
+ * rank of the destination square. Since a move never starts and ends on the
+ * same square, the value <code>0</code> never encodes a move and is available
+ * as {@link #NONE}.</p>
+ *
+ * <p>Usage example:</p>
+ * <pre><code>
+ * final int packed = PackedMove.of(12, 28, MoveType.NORMAL, null); // e2e4
+ * final Move move = PackedMove.toMove(packed);
+ * </code></pre>
+ *
+ * @see MoveList
+ */
+public final class PackedMove {
+
+    /**
+     * A value that does not encode any move.
+     */
+    public static final int NONE = 0;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int TO_SHIFT = 6;
+    private static final int TYPE_SHIFT = 12;
+    private static final int PROMOTION_SHIFT = 14;
+
+    private static final MoveType[] MOVE_TYPES = MoveType.values();
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+    private PackedMove() {
+    } // ensure non-instantiability
+
+    /**
+     * Packs the given move components.
+     *
+     * @param from the index of the origin square
+     * @param to the index of the destination square
+     * @param moveType the type of the move
+     * @param promotionType the type promoted to, or null if the move is not a
+     *                      promotion
+     * @return the packed move
+     * @throws IllegalArgumentException if <code>promotionType</code> is not a
+     *                                  knight, bishop, rook or queen
+     */
+    public static int of(final int from, final int to, @NotNull final MoveType moveType,
+                         @Nullable final PieceType promotionType) {
+        int packed = from | to << TO_SHIFT | moveType.ordinal() << TYPE_SHIFT;
+        if (promotionType != null) {
+            if (promotionType == PieceType.PAWN || promotionType == PieceType.KING) {
+                throw new IllegalArgumentException("Cannot promote to " + promotionType + ".");
+            }
+            packed |= (promotionType.ordinal() - PieceType.KNIGHT.ordinal()) << PROMOTION_SHIFT;
+        }
+        return packed;
+    }
+
+    /**
+     * Packs the given {@link Move}.
+     *
+     * @param move the move to pack
+     * @return the packed move
+     */
+    public static int valueOf(@NotNull final Move move) {
+        final Piece promotionPiece = move.getPromotionPiece();
+        return of(move.getFrom().getSquareIndex(), move.getTo().getSquareIndex(), move.getMoveType(),
+                promotionPiece == null ? null : promotionPiece.getType());
+    }
+
+    /**
+     * Returns the origin square index of the packed move.
+     *
+     * @param packed the packed move
+     * @return the index of the origin square
+     */
+    public static int from(final int packed) {
+        return packed & SQUARE_MASK;
+    }
+
+    /**
+     * Returns the destination square index of the packed move.
+     *
+     * @param packed the packed move
+     * @return the index of the destination square
+     */
+    public static int to(final int packed) {
+        return (packed >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    /**
+     * Returns the {@link MoveType} of the packed move.
+     *
+     * @param packed the packed move
+     * @return the type of the move
+     */
+    @NotNull
+    public static MoveType moveType(final int packed) {
+        return MOVE_TYPES[(packed >>> TYPE_SHIFT) & 0x3];
+    }
+
+    /**
+     * Returns the {@link PieceType} promoted to by the packed move.
+     *
+     * @param packed the packed move
+     * @return the promotion piece type, or null if the move is not a
+     *         promotion
+     */
+    @Nullable
+    public static PieceType promotionType(final int packed) {
+        return moveType(packed) == MoveType.PROMOTION
+                ? PIECE_TYPES[PieceType.KNIGHT.ordinal() + ((packed >>> PROMOTION_SHIFT) & 0x3)]
+                : null;
+    }
+
+    /**
+     * Unpacks the given packed move into a {@link Move}.
+     *
+     * <p>The promotion piece, if any, is white when the destination is on
+     * the eighth rank and black otherwise.</p>
+     *
+     * @param packed the packed move
+     * @return the unpacked move
+     */
+    @NotNull
+    public static Move toMove(final int packed) {
+        final int to = to(packed);
+        final PieceType promotionType = promotionType(packed);
+        return new Move(Coordinate.valueOf(from(packed)), Coordinate.valueOf(to), moveType(packed),
+                promotionType == null
+                        ? null
+                        : Bitboards.pieceOf(Bitboards.pieceIndex(
+                                Bitboards.rankIndex(to) == Rank.COUNT - 1 ? Color.WHITE : Color.BLACK,
+                                promotionType)));
+    }
+
+    /**
+     * Returns the packed move in UCI format, e.g. <code>e7e8q</code>.
+     *
+     * @param packed the packed move
+     * @return the UCI string of the move
+     */
+    @NotNull
+    public static String toString(final int packed) {
+        return toMove(packed).toString();
+    }
+}
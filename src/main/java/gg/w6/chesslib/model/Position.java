@@ -2,21 +2,32 @@ package gg.w6.chesslib.model;
 
 import gg.w6.chesslib.model.piece.King;
 import gg.w6.chesslib.model.piece.Piece;
+import gg.w6.chesslib.model.piece.PieceType;
 import gg.w6.chesslib.util.*;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Represents a chess position, including the arrangement of pieces on the
  * board, castling rights, active color, en passant target square, halfmove
  * clock, and fullmove number.
+ *
+ * <p>Internally, the board is stored as one bitboard per colored piece
+ * together with the piece index of every square (see {@link Bitboards}).
+ * The {@link Square}s returned by {@link #getSquare(Coordinate)} and
+ * {@link #iterator()} are shared, immutable views of that state.</p>
  */
 @Immutable
-public class Position implements Iterable<Square> {
+public class Position implements Iterable<Square>, BoardState {
 
 
     /**
@@ -32,11 +43,56 @@ public class Position implements Iterable<Square> {
         return FenParser.parse(fen);
     }
 
-    /** 
-     * The squares of the chessboard, represented as an 8x8 array.
-     * Each square can contain a piece or be empty.
+    /**
+     * Immutable views of every possible square state, indexed by
+     * <code>squareIndex * (PIECE_INDEX_COUNT + 1) + pieceIndex + 1</code>.
+     */
+    private static final Square[] SQUARE_VIEWS =
+            new Square[Bitboards.SQUARE_COUNT * (Bitboards.PIECE_INDEX_COUNT + 1)];
+
+    static {
+        for (int squareIndex = 0; squareIndex < Bitboards.SQUARE_COUNT; squareIndex++) {
+            for (int pieceIndex = Bitboards.NO_PIECE;
+                    pieceIndex < Bitboards.PIECE_INDEX_COUNT; pieceIndex++) {
+                SQUARE_VIEWS[squareIndex * (Bitboards.PIECE_INDEX_COUNT + 1)
+                        + pieceIndex + 1] = new Square(
+                                Coordinate.valueOf(squareIndex),
+                                Bitboards.pieceOf(pieceIndex));
+            }
+        }
+    }
+
+    /**
+     * The bitboard of each piece, indexed by piece index.
+     * See {@link Bitboards}.
+     */
+    private final long[] bitboards;
+
+    /**
+     * The piece index of the piece on each square, indexed by square index,
+     * or {@link Bitboards#NO_PIECE} if the square is empty.
+     */
+    private final byte[] pieceIndices;
+
+    /**
+     * The bitboard of all squares occupied by white pieces.
+     */
+    private final long whiteOccupancy;
+
+    /**
+     * The bitboard of all squares occupied by black pieces.
+     */
+    private final long blackOccupancy;
+
+    /**
+     * The square index of the white king, or {@link Bitboards#NO_SQUARE}.
      */
-    private final Square[][] squares;
+    private final int whiteKingSquare;
+
+    /**
+     * The square index of the black king, or {@link Bitboards#NO_SQUARE}.
+     */
+    private final int blackKingSquare;
 
     /**
      * The castling rights of the position, indicating which players can
@@ -67,6 +123,41 @@ public class Position implements Iterable<Square> {
      */
     private final int fullMoves;
 
+    /**
+     * The Zobrist key of the position. See {@link Zobrist}.
+     */
+    private final long zobristKey;
+
+    /*
+     * Facts derived from the immutable state above, computed on first use.
+     * Computing them is idempotent, so a race between threads only costs a
+     * duplicate computation; the fields are volatile so that a value is
+     * published only once fully constructed.
+     */
+
+    /**
+     * The FEN string, or null if not computed yet.
+     */
+    private volatile String fen;
+
+    /**
+     * The unmodifiable set of legal moves, or null if not computed yet.
+     */
+    private volatile Set<Move> legalMoves;
+
+    /**
+     * The {@code STATUS_*} flags of the side to move, or <code>0</code> if
+     * nothing is computed yet. The check flag and the legal moves flag are
+     * computed independently; if two threads race to set them, one update
+     * may be lost and is then computed again.
+     */
+    private volatile byte status;
+
+    private static final byte STATUS_CHECK_COMPUTED = 1;
+    private static final byte STATUS_IN_CHECK = 2;
+    private static final byte STATUS_LEGAL_MOVES_COMPUTED = 4;
+    private static final byte STATUS_HAS_LEGAL_MOVES = 8;
+
     /**
      * Constructs a {@code Position} object with the specified castling rights,
      * en passant target square, active color, halfmove clock, and fullmove
@@ -91,12 +182,110 @@ public class Position implements Iterable<Square> {
                     @NotNull final Color toMove,
                     final int halfMoveClock,
                     final int fullMoves) {
-        this.squares = squares;
+        this(toPieceIndices(squares), castlingRights, enPassantTargets, toMove,
+                halfMoveClock, fullMoves);
+    }
+
+    /**
+     * Constructs a {@code Position} object from the piece index of every
+     * square.
+     *
+     * <p>This method should <b>NOT</b> be used. Rather,
+     * {@link #valueOf(String)} or {@link PositionBuilder} ought to be used.</p>
+     *
+     * @param pieceIndices     the piece index of every square, indexed by
+     *                         square index. See {@link Bitboards}. This array
+     *                         is owned by the new position and must not be
+     *                         modified afterwards.
+     * @param castlingRights   the castling rights of the position
+     * @param enPassantTargets the target square for en passant captures, null
+     *                         if there is no en passant target square
+     * @param toMove           the color of the player who is to move next
+     * @param halfMoveClock    the halfmove clock
+     * @param fullMoves        the fullmove number
+     */
+    @ApiStatus.Internal
+    public Position(@NotNull final byte[] pieceIndices,
+                    @NotNull final CastlingRights castlingRights,
+                    @Nullable final Coordinate enPassantTargets,
+                    @NotNull final Color toMove,
+                    final int halfMoveClock,
+                    final int fullMoves) {
+        this(toBitboards(pieceIndices), pieceIndices, castlingRights,
+                enPassantTargets, toMove, halfMoveClock, fullMoves,
+                computeZobristKey(pieceIndices, castlingRights, enPassantTargets, toMove));
+    }
+
+    /**
+     * @param zobristKey the Zobrist key of the new position
+     */
+    private Position(final long[] bitboards,
+                     final byte[] pieceIndices,
+                     final CastlingRights castlingRights,
+                     final Coordinate enPassantTargets,
+                     final Color toMove,
+                     final int halfMoveClock,
+                     final int fullMoves,
+                     final long zobristKey) {
+        this.bitboards = bitboards;
+        this.pieceIndices = pieceIndices;
+        long white = 0L;
+        long black = 0L;
+        for (int pieceIndex = 0; pieceIndex < PieceType.COUNT; pieceIndex++) {
+            white |= bitboards[pieceIndex];
+            black |= bitboards[pieceIndex + PieceType.COUNT];
+        }
+        this.whiteOccupancy = white;
+        this.blackOccupancy = black;
+        this.whiteKingSquare = kingSquare(bitboards[Bitboards.pieceIndex(Color.WHITE, PieceType.KING)]);
+        this.blackKingSquare = kingSquare(bitboards[Bitboards.pieceIndex(Color.BLACK, PieceType.KING)]);
         this.castlingRights = castlingRights;
         this.enPassantTarget = enPassantTargets;
         this.toMove = toMove;
         this.halfMoveClock = halfMoveClock;
         this.fullMoves = fullMoves;
+        this.zobristKey = zobristKey;
+        assert this.zobristKey == Zobrist.compute(this) : "Incremental Zobrist key mismatch in " + this;
+    }
+
+    private static byte[] toPieceIndices(final Square[][] squares) {
+        final byte[] pieceIndices = new byte[Bitboards.SQUARE_COUNT];
+        for (int fileIndex = 0; fileIndex < File.COUNT; fileIndex++) {
+            for (int rankIndex = 0; rankIndex < Rank.COUNT; rankIndex++) {
+                pieceIndices[Bitboards.squareIndex(fileIndex, rankIndex)] =
+                        (byte) Bitboards.pieceIndex(
+                                squares[fileIndex][rankIndex].getPiece());
+            }
+        }
+        return pieceIndices;
+    }
+
+    private static int kingSquare(final long kings) {
+        return kings == 0 ? Bitboards.NO_SQUARE : Long.numberOfTrailingZeros(kings);
+    }
+
+    private static long computeZobristKey(final byte[] pieceIndices,
+                                          final CastlingRights castlingRights,
+                                          final Coordinate enPassantTarget,
+                                          final Color toMove) {
+        long key = Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantTarget);
+        if (toMove == Color.BLACK) {
+            key ^= Zobrist.blackToMove();
+        }
+        for (int squareIndex = 0; squareIndex < Bitboards.SQUARE_COUNT; squareIndex++) {
+            key ^= Zobrist.pieceSquare(pieceIndices[squareIndex], squareIndex);
+        }
+        return key;
+    }
+
+    private static long[] toBitboards(final byte[] pieceIndices) {
+        final long[] bitboards = new long[Bitboards.PIECE_INDEX_COUNT];
+        for (int squareIndex = 0; squareIndex < Bitboards.SQUARE_COUNT; squareIndex++) {
+            if (pieceIndices[squareIndex] != Bitboards.NO_PIECE) {
+                bitboards[pieceIndices[squareIndex]] |= Bitboards.bit(squareIndex);
+            }
+        }
+        return bitboards;
     }
 
     /**
@@ -109,7 +298,7 @@ public class Position implements Iterable<Square> {
     @NotNull
     public Square getSquare(@NotNull final File file,
                             @NotNull final Rank rank) {
-        return squares[file.ordinal()][rank.ordinal()];
+        return getSquare(Bitboards.squareIndex(file.ordinal(), rank.ordinal()));
     }
 
     /**
@@ -122,7 +311,12 @@ public class Position implements Iterable<Square> {
      */
     @NotNull
     public Square getSquare(final int fileIndex, final int rankIndex) {
-        return squares[fileIndex][rankIndex];
+        if (fileIndex < 0 || fileIndex >= File.COUNT
+                || rankIndex < 0 || rankIndex >= Rank.COUNT) {
+            throw new ArrayIndexOutOfBoundsException("Square (" + fileIndex
+                    + ", " + rankIndex + ") is out of bounds.");
+        }
+        return getSquare(Bitboards.squareIndex(fileIndex, rankIndex));
     }
 
     /**
@@ -133,9 +327,7 @@ public class Position implements Iterable<Square> {
      */
     @NotNull
     public Square getSquare(@NotNull final Coordinate coordinate) {
-        return squares
-                [coordinate.getFile().ordinal()]
-                [coordinate.getRank().ordinal()];
+        return getSquare(coordinate.getSquareIndex());
     }
 
     /**
@@ -147,11 +339,120 @@ public class Position implements Iterable<Square> {
         return getSquare(Coordinate.valueOf(coordinate));
     }
 
+    /**
+     * Returns the square with the given square index.
+     *
+     * <p>The returned {@link Square} is a shared, immutable view; no objects
+     * are allocated by this method.</p>
+     *
+     * @param squareIndex the index of the square. See {@link Bitboards}.
+     * @return the square with the given square index
+     * @throws ArrayIndexOutOfBoundsException if <code>squareIndex</code> is
+     *                                        out of bounds
+     */
+    @NotNull
+    public Square getSquare(final int squareIndex) {
+        return SQUARE_VIEWS[squareIndex * (Bitboards.PIECE_INDEX_COUNT + 1)
+                + pieceIndices[squareIndex] + 1];
+    }
+
+    /**
+     * Returns the piece on the square with the given square index.
+     *
+     * @param squareIndex the index of the square. See {@link Bitboards}.
+     * @return the piece on the square, or null if the square is empty
+     */
+    @Nullable
+    public Piece getPiece(final int squareIndex) {
+        return Bitboards.pieceOf(pieceIndices[squareIndex]);
+    }
+
+    /**
+     * Returns the piece index of the piece on the square with the given
+     * square index.
+     *
+     * @param squareIndex the index of the square. See {@link Bitboards}.
+     * @return the piece index, or {@link Bitboards#NO_PIECE} if the square is
+     *         empty
+     */
+    @Override
+    public int getPieceIndex(final int squareIndex) {
+        return pieceIndices[squareIndex];
+    }
+
+    /**
+     * Returns the bitboard of the pieces of the given color and type.
+     *
+     * @param color the color of the pieces
+     * @param pieceType the type of the pieces
+     * @return the bitboard of the pieces
+     */
+    @Override
+    public long getBitboard(@NotNull final Color color,
+                            @NotNull final PieceType pieceType) {
+        return bitboards[Bitboards.pieceIndex(color, pieceType)];
+    }
+
+    /**
+     * Returns the bitboard of the pieces with the given piece index.
+     *
+     * @param pieceIndex the piece index. See {@link Bitboards}.
+     * @return the bitboard of the pieces
+     */
+    @Override
+    public long getBitboard(final int pieceIndex) {
+        return bitboards[pieceIndex];
+    }
+
+    /**
+     * Returns the bitboard of all squares occupied by pieces of the given
+     * color.
+     *
+     * @param color the color of the pieces
+     * @return the bitboard of the occupied squares
+     */
+    @Override
+    public long getOccupancy(@NotNull final Color color) {
+        return color == Color.WHITE ? whiteOccupancy : blackOccupancy;
+    }
+
+    /**
+     * Returns the bitboard of all occupied squares.
+     *
+     * @return the bitboard of the occupied squares
+     */
+    @Override
+    public long getOccupancy() {
+        return whiteOccupancy | blackOccupancy;
+    }
+
+    @Override
+    public int getKingSquare(@NotNull final Color color) {
+        return color == Color.WHITE ? whiteKingSquare : blackKingSquare;
+    }
+
+    /**
+     * Returns the coordinate of the king of the given color.
+     *
+     * <p>If there is more than one such king, the one with the lowest square
+     * index is returned.</p>
+     *
+     * @param color the color of the king
+     * @return the coordinate of the king, or null if there is no king of that
+     *         color
+     */
+    @Nullable
+    public Coordinate getKingCoordinate(@NotNull final Color color) {
+        final int kingSquare = getKingSquare(color);
+        return kingSquare == Bitboards.NO_SQUARE ? null : Coordinate.valueOf(kingSquare);
+    }
+
     /**
      * Returns the castling rights of the position.
      * 
      * @return the castling rights of the position
      */
+    @Override
     public CastlingRights getCastlingRights() {
         return castlingRights;
     }
@@ -161,6 +462,7 @@ public class Position implements Iterable<Square> {
      * 
      * @return the target square for en passant captures
      */
+    @Override
     public Coordinate getEnPassantTarget() {
         return enPassantTarget;
     }
@@ -170,6 +472,7 @@ public class Position implements Iterable<Square> {
      * 
      * @return the color of the player who is to move next
      */
+    @Override
     public Color getToMove() {
         return toMove;
     }
@@ -195,6 +498,91 @@ public class Position implements Iterable<Square> {
         return halfMoveClock;
     }
 
+    /**
+     * Returns the Zobrist key of the position, which covers piece placement,
+     * side to move, castling rights and en passant target, but not the
+     * clocks. See {@link Zobrist}.
+     *
+     * @return the Zobrist key
+     */
+    @Override
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * Returns the legal moves of this position.
+     *
+     * <p>The moves are generated on the first call and cached, so repeated
+     * calls return the same set. It is owned by this position and wrapped
+     * once, unlike {@link MoveGenerator#getLegalMoves(Position)}, which
+     * returns a new modifiable set on every call.</p>
+     *
+     * @return the unmodifiable set of legal {@link Move}s
+     * @see MoveGenerator#getLegalMoves(Position)
+     */
+    @NotNull
+    public Set<Move> getLegalMoves() {
+        Set<Move> legalMoves = this.legalMoves;
+        if (legalMoves == null) {
+            final MoveList moves = new MoveList();
+            MoveGenerator.generateLegalMoves(this, moves);
+            this.legalMoves = legalMoves = Collections.unmodifiableSet(moves.toMoveSet());
+        }
+        return legalMoves;
+    }
+
+    /**
+     * Returns whether the king of the side to move is attacked.
+     *
+     * @return <code>true</code> if the side to move is in check
+     */
+    public boolean isInCheck() {
+        byte status = this.status;
+        if ((status & STATUS_CHECK_COMPUTED) == 0) {
+            status |= STATUS_CHECK_COMPUTED;
+            final int kingSquare = getKingSquare(toMove);
+            if (kingSquare != Bitboards.NO_SQUARE && Attacks.attackersTo(this, kingSquare,
+                    toMove == Color.WHITE ? Color.BLACK : Color.WHITE, getOccupancy()) != 0) {
+                status |= STATUS_IN_CHECK;
+            }
+            this.status = status;
+        }
+        return (status & STATUS_IN_CHECK) != 0;
+    }
+
+    /**
+     * Returns whether the side to move is in check and has no legal moves.
+     *
+     * @return <code>true</code> if this position is checkmate
+     */
+    public boolean isCheckmate() {
+        return isInCheck() && !hasLegalMoves();
+    }
+
+    /**
+     * Returns whether the side to move is not in check and has no legal
+     * moves.
+     *
+     * @return <code>true</code> if this position is stalemate
+     */
+    public boolean isStalemate() {
+        return !isInCheck() && !hasLegalMoves();
+    }
+
+    private boolean hasLegalMoves() {
+        byte status = this.status;
+        if ((status & STATUS_LEGAL_MOVES_COMPUTED) == 0) {
+            status |= STATUS_LEGAL_MOVES_COMPUTED;
+            final Set<Move> legalMoves = this.legalMoves;
+            if (legalMoves != null ? !legalMoves.isEmpty() : MoveGenerator.oneOrMoreLegalMoves(this)) {
+                status |= STATUS_HAS_LEGAL_MOVES;
+            }
+            this.status = status;
+        }
+        return (status & STATUS_HAS_LEGAL_MOVES) != 0;
+    }
+
     /**
      * Generates the FEN (Forsyth-Edwards Notation) string representing the current board state.
      *
@@ -224,119 +612,20 @@ public class Position implements Iterable<Square> {
      * <p>For more details, see: 
      * <a href="https://en.wikipedia.org/wiki/Forsyth%E2%80%93Edwards_Notation">FEN on Wikipedia</a></p>
      *
+     * <p>The string is computed on the first call and cached.</p>
+     *
      * @return A string in FEN format representing the current state of the chess position.
      */
     public String generateFEN() {
-
-        final StringBuilder fenStringBuilder = new StringBuilder();
-
-        appendRankPiecePlacementDataString(fenStringBuilder);
-
-        fenStringBuilder.append(" ");
-
-        // Active color
-        fenStringBuilder.append(toMove == Color.WHITE ? "w" : "b");
-
-        fenStringBuilder.append(" ");
-
-        // Castling availability
-        if (!castlingRights.whiteKingside()
-                && !castlingRights.whiteQueenside()
-                && !castlingRights.blackKingside()
-                && !castlingRights.blackQueenside()) {
-            fenStringBuilder.append("-");
-        } else {
-            if (castlingRights.whiteKingside())
-                fenStringBuilder.append("K");
-            if (castlingRights.whiteQueenside())
-                fenStringBuilder.append("Q");
-            if (castlingRights.blackKingside())
-                fenStringBuilder.append("k");
-            if (castlingRights.blackQueenside())
-                fenStringBuilder.append("q");
+        String fen = this.fen;
+        if (fen == null) {
+            this.fen = fen = buildFEN();
         }
-
-        fenStringBuilder.append(" ");
-
-        // En passant target square
-        fenStringBuilder.append(
-                enPassantTarget == null ? "-" : enPassantTarget);
-
-        fenStringBuilder.append(" ");
-
-        // Halfmove clock
-        fenStringBuilder.append(halfMoveClock);
-
-        fenStringBuilder.append(" ");
-
-        // Fullmove number
-        fenStringBuilder.append(fullMoves);
-
-        return fenStringBuilder.toString();
+        return fen;
     }
 
-    /**
-     * Appends the rank piece placement data string to the FEN string.
-     *
-     * @param fenStringBuilder the StringBuilder to append the FEN string to
-     */
-    private void appendRankPiecePlacementDataString(
-            final StringBuilder fenStringBuilder) {
-        // piece placement data
-        final StringBuilder[] rankPiecePlacementDataStringBuilders =
-                new StringBuilder[Rank.COUNT];
-        for (int i = 0; i < Rank.COUNT; i++) {
-            rankPiecePlacementDataStringBuilders[i] = new StringBuilder();
-        }
-
-        // go thru each rank
-        for (int reverseRankIndex = 0; reverseRankIndex < Rank.COUNT;
-                reverseRankIndex++) {
-            int emptySquaresInARow = 0;
-            for (int fileIndex = 0; fileIndex < File.COUNT; fileIndex++) {
-
-                // in reverse;
-                final Piece piece = this.getSquare(fileIndex,
-                        Rank.COUNT - reverseRankIndex - 1).getPiece();
-
-                final StringBuilder rankPiecePlacementDataStringBuilder =
-                        rankPiecePlacementDataStringBuilders[reverseRankIndex];
-
-                // if there is no piece, increment emptySquareInARow.
-                if (piece == null) {
-                    emptySquaresInARow++;
-
-                    // if this is the last file, append it to
-                    // rankPiecePlacementDataStringBuilder
-                    if (fileIndex == File.COUNT - 1) {
-                        rankPiecePlacementDataStringBuilder
-                                .append(emptySquaresInARow);
-                    }
-                    continue;
-                }
-
-                // there is a piece. if emptySquaresInARow != 0, append it to
-                // the rankPiecePlacementDataStringBuilder
-                // and set it to 0.
-                if (emptySquaresInARow != 0) {
-                    rankPiecePlacementDataStringBuilder
-                            .append(emptySquaresInARow);
-                    emptySquaresInARow = 0;
-                }
-
-                // append our piece's letter
-                rankPiecePlacementDataStringBuilder.append(piece.getLetter());
-            }
-        }
-
-        for (int i = 0; i < Rank.COUNT - 1; i++) {
-            fenStringBuilder.append(
-                    rankPiecePlacementDataStringBuilders[i].toString());
-            fenStringBuilder.append("/");
-        }
-
-        fenStringBuilder.append(rankPiecePlacementDataStringBuilders
-                [Rank.COUNT - 1].toString());
+    private String buildFEN() {
+        return FenWriter.append(this, new StringBuilder(FenWriter.MAX_LENGTH)).toString();
     }
 
     /**
@@ -363,28 +652,29 @@ public class Position implements Iterable<Square> {
      */
     public Position applyTo(final Move move) {
 
-        final Square[][] newSquares = this.squares.clone();
-
-        for (int fileIndex = 0; fileIndex < File.COUNT; fileIndex++) {
-            newSquares[fileIndex] = this.squares[fileIndex].clone();
-        }
+        final long[] newBitboards = this.bitboards.clone();
+        final byte[] newPieceIndices = this.pieceIndices.clone();
 
         final int fromFileIndex = move.getFrom().getFileIndex();
         final int fromRankIndex = move.getFrom().getRankIndex();
         final int toFileIndex = move.getTo().getFileIndex();
         final int toRankIndex = move.getTo().getRankIndex();
+        final int from = move.getFrom().getSquareIndex();
+        final int to = move.getTo().getSquareIndex();
 
         final MoveType moveType = move.getMoveType();
-        final Piece movedPiece = squares[fromFileIndex][fromRankIndex].getPiece();
-        
+        final int movedPieceIndex = pieceIndices[from];
+        final Piece movedPiece = Bitboards.pieceOf(movedPieceIndex);
+        long key = this.zobristKey;
+
         switch (move.getMoveType()) {
             case NORMAL -> {
-                newSquares[fromFileIndex][fromRankIndex] = Square.valueOf(fromFileIndex, fromRankIndex, null);
-                newSquares[toFileIndex][toRankIndex] = Square.valueOf(toFileIndex, toRankIndex, movedPiece);
+                key ^= clear(newBitboards, newPieceIndices, from);
+                key ^= put(newBitboards, newPieceIndices, to, movedPieceIndex);
             }
             case CASTLING -> {
-                newSquares[fromFileIndex][fromRankIndex] = Square.valueOf(fromFileIndex, fromRankIndex, null);
-                newSquares[toFileIndex][toRankIndex] = Square.valueOf(toFileIndex, toRankIndex, movedPiece);
+                key ^= clear(newBitboards, newPieceIndices, from);
+                key ^= put(newBitboards, newPieceIndices, to, movedPieceIndex);
 
                 int rookFromFile, rookToFile;
             
@@ -397,23 +687,26 @@ public class Position implements Iterable<Square> {
                 } else {
                     throw new IllegalArgumentException("Invalid king destination for castling: file " + toFileIndex);
                 }
-            
-                newSquares[rookFromFile][toRankIndex] = Square.valueOf(rookFromFile, toRankIndex, null);
-                newSquares[rookToFile][toRankIndex] = Square.valueOf(rookToFile, toRankIndex, this.squares[rookFromFile][toRankIndex].getPiece());
-            
+
                 if (toRankIndex != 0 && toRankIndex != 7) {
                     throw new IllegalArgumentException("Trying to castle to a rank that is not the first or the eighth.");
                 }
+
+                final int rookFrom = Bitboards.squareIndex(rookFromFile, toRankIndex);
+                final int rookPieceIndex = this.pieceIndices[rookFrom];
+                key ^= clear(newBitboards, newPieceIndices, rookFrom);
+                key ^= put(newBitboards, newPieceIndices,
+                        Bitboards.squareIndex(rookToFile, toRankIndex), rookPieceIndex);
             }
             
             case EN_PASSANT -> {
-                newSquares[fromFileIndex][fromRankIndex] = Square.valueOf(fromFileIndex, fromRankIndex, null);
-                newSquares[toFileIndex][fromRankIndex] = Square.valueOf(toFileIndex, fromRankIndex, null);
-                newSquares[toFileIndex][toRankIndex] = Square.valueOf(toFileIndex, toRankIndex, this.squares[fromFileIndex][fromRankIndex].getPiece());
+                key ^= clear(newBitboards, newPieceIndices, from);
+                key ^= clear(newBitboards, newPieceIndices, Bitboards.squareIndex(toFileIndex, fromRankIndex));
+                key ^= put(newBitboards, newPieceIndices, to, movedPieceIndex);
             }
             case PROMOTION -> {
-                newSquares[fromFileIndex][fromRankIndex] = Square.valueOf(fromFileIndex, fromRankIndex, null);
-                newSquares[toFileIndex][toRankIndex] = Square.valueOf(toFileIndex, toRankIndex, move.getPromotionPiece());
+                key ^= clear(newBitboards, newPieceIndices, from);
+                key ^= put(newBitboards, newPieceIndices, to, Bitboards.pieceIndex(move.getPromotionPiece()));
             }
             default -> throw new IllegalStateException();
         }
@@ -426,9 +719,7 @@ public class Position implements Iterable<Square> {
         final boolean whiteToMove = this.toMove == Color.WHITE;
         final boolean blackToMove = this.toMove == Color.BLACK;
 
-        return new Position(
-            newSquares,
-            new CastlingRights(
+        final CastlingRights newCastlingRights = new CastlingRights(
                 this.castlingRights.whiteKingside()
                 && (moveTypeIsNormalOrPromotion
                     && !(fromFileIndex == 7 && fromRankIndex == 0)
@@ -452,8 +743,18 @@ public class Position implements Iterable<Square> {
                     && !(fromFileIndex == 0 && fromRankIndex == 7)
                     && !(toFileIndex == 0 && toRankIndex == 7)
                     && didBlackKingNotMove
-                || moveTypeIsCastling && whiteToMove || moveTypeIsEnPassant)),
-            Positions.getEnPassantTarget(this, move),
+                || moveTypeIsCastling && whiteToMove || moveTypeIsEnPassant));
+        final Coordinate newEnPassantTarget = Positions.getEnPassantTarget(this, move);
+
+        key ^= Zobrist.castling(this.castlingRights) ^ Zobrist.castling(newCastlingRights)
+                ^ Zobrist.enPassant(this.enPassantTarget) ^ Zobrist.enPassant(newEnPassantTarget)
+                ^ Zobrist.blackToMove();
+
+        return new Position(
+            newBitboards,
+            newPieceIndices,
+            newCastlingRights,
+            newEnPassantTarget,
             this.toMove == Color.WHITE
                 ? Color.BLACK
                 : Color.WHITE,
@@ -462,10 +763,78 @@ public class Position implements Iterable<Square> {
                 : this.halfMoveClock + 1,
             this.toMove == Color.BLACK
                 ? this.fullMoves + 1
-                : this.fullMoves);
+                : this.fullMoves,
+            key);
     }
 
 
+    /**
+     * Removes the piece, if any, from the given square.
+     *
+     * @return the change to the Zobrist key
+     */
+    private static long clear(final long[] bitboards, final byte[] pieceIndices,
+                              final int squareIndex) {
+        final int pieceIndex = pieceIndices[squareIndex];
+        if (pieceIndex != Bitboards.NO_PIECE) {
+            bitboards[pieceIndex] &= ~Bitboards.bit(squareIndex);
+            pieceIndices[squareIndex] = Bitboards.NO_PIECE;
+        }
+        return Zobrist.pieceSquare(pieceIndex, squareIndex);
+    }
+
+    /**
+     * Places the given piece on the given square, replacing any piece already
+     * on it.
+     *
+     * @return the change to the Zobrist key
+     */
+    private static long put(final long[] bitboards, final byte[] pieceIndices,
+                            final int squareIndex, final int pieceIndex) {
+        final long keyChange = clear(bitboards, pieceIndices, squareIndex);
+        if (pieceIndex != Bitboards.NO_PIECE) {
+            bitboards[pieceIndex] |= Bitboards.bit(squareIndex);
+            pieceIndices[squareIndex] = (byte) pieceIndex;
+        }
+        return keyChange ^ Zobrist.pieceSquare(pieceIndex, squareIndex);
+    }
+
+    /**
+     * Compares this position to another object.
+     *
+     * <p>Two positions are equal if they have the same piece placement, side
+     * to move, castling rights and en passant target. The halfmove clock and
+     * fullmove number are ignored, so that positions reached by different
+     * move orders compare equal. The Zobrist keys are compared first, so
+     * unequal positions are almost always rejected without comparing the
+     * boards.</p>
+     *
+     * @param obj the object with which to compare against
+     * @return <code>true</code> if the object is an equal position
+     */
+    @Override
+    public boolean equals(@Nullable final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        return obj instanceof final Position other
+                && zobristKey == other.zobristKey
+                && toMove == other.toMove
+                && Arrays.equals(pieceIndices, other.pieceIndices)
+                && castlingRights.equals(other.castlingRights)
+                && Objects.equals(enPassantTarget, other.enPassantTarget);
+    }
+
+    /**
+     * Returns a hash code derived from the Zobrist key.
+     *
+     * @return the hash code of this position
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(zobristKey);
+    }
+
     @Override
     public String toString() {
         return this.generateFEN();
@@ -485,7 +854,11 @@ public class Position implements Iterable<Square> {
 
             @Override
             public Square next() {
-                final Square square = squares[fileIndex][rankIndex];
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                final Square square = getSquare(Bitboards.squareIndex(fileIndex, rankIndex));
 
                 rankIndex++;
                 if (rankIndex == Rank.COUNT) {
@@ -0,0 +1,107 @@
+package gg.w6.chesslib.model;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable set of {@link Coordinate}s backed by a single bitboard.
+ *
+ * <p>Membership tests and {@link #size()} are constant time, and iteration
+ * yields the coordinates in ascending square index order (a1, b1, ...,
+ * h8). The {@link Coordinate}s returned are the shared, cached instances, so
+ * iterating does not allocate them.</p>
+ *
+ * <p>Usage example:</p>
+ * <pre><code>
+ * final SquareSet attackers = Positions.getTargetingCoordinates(target, Color.BLACK, position);
+ * if (attackers.size() &gt; 1) {
+ *     // ...
+ * }
+ * </code></pre>
+ *
+ * @see Bitboards
+ */
+@Immutable
+public final class SquareSet extends AbstractSet<Coordinate> {
+
+    private static final SquareSet EMPTY = new SquareSet(Bitboards.EMPTY);
+
+    private final long bitboard;
+
+    private SquareSet(final long bitboard) {
+        this.bitboard = bitboard;
+    }
+
+    /**
+     * Returns the set of the squares in the given bitboard.
+     *
+     * @param bitboard the bitboard
+     * @return the set of squares
+     */
+    @NotNull
+    public static SquareSet of(final long bitboard) {
+        return bitboard == Bitboards.EMPTY ? EMPTY : new SquareSet(bitboard);
+    }
+
+    /**
+     * Returns the bitboard backing this set.
+     *
+     * @return the bitboard of the squares in this set
+     */
+    public long getBitboard() {
+        return bitboard;
+    }
+
+    /**
+     * Returns whether the square with the given index is in this set.
+     *
+     * @param squareIndex the index of the square
+     * @return <code>true</code> if the square is in this set
+     */
+    public boolean contains(final int squareIndex) {
+        return (bitboard & Bitboards.bit(squareIndex)) != 0;
+    }
+
+    @Override
+    public boolean contains(@Nullable final Object obj) {
+        return obj instanceof final Coordinate coordinate && contains(coordinate.getSquareIndex());
+    }
+
+    @Override
+    public int size() {
+        return Long.bitCount(bitboard);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return bitboard == Bitboards.EMPTY;
+    }
+
+    @Override
+    @NotNull
+    public Iterator<Coordinate> iterator() {
+        return new Iterator<>() {
+            private long remaining = bitboard;
+
+            @Override
+            public boolean hasNext() {
+                return remaining != 0;
+            }
+
+            @Override
+            public Coordinate next() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                final int squareIndex = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                return Coordinate.valueOf(squareIndex);
+            }
+        };
+    }
+}
@@ -0,0 +1,115 @@
+package gg.w6.chesslib.model;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.SplittableRandom;
+
+/**
+ * This class consists exclusively of the random keys and static methods used
+ * for Zobrist hashing. It is not instantiable.
+ *
+ * <p>The Zobrist key of a position is the exclusive or of one random 64-bit
+ * key for every (piece, square) pair on the board, one key if black is to
+ * move, one key per castling right held, and one key for the file of the en
+ * passant target square, if any. Since exclusive or is its own inverse, a
+ * move updates the key by toggling only the keys of what it changed.</p>
+ *
+ * <p>The keys are generated from a fixed seed, so keys are identical on every
+ * run and can be persisted.</p>
+ *
+ * <p>Two positions with different keys are certainly different; two
+ * positions with equal keys are almost certainly, but not necessarily, the
+ * same. See {@link Position#equals(Object)}.</p>
+ */
+public final class Zobrist {
+
+    private static final long[] PIECE_SQUARE_KEYS = new long[Bitboards.PIECE_INDEX_COUNT * Bitboards.SQUARE_COUNT];
+    private static final long BLACK_TO_MOVE_KEY;
+    private static final long[] CASTLING_KEYS = new long[4];
+    private static final long[] EN_PASSANT_FILE_KEYS = new long[File.COUNT];
+
+    static {
+        final SplittableRandom random = new SplittableRandom(0x5DEECE66DL);
+        for (int i = 0; i < PIECE_SQUARE_KEYS.length; i++) {
+            PIECE_SQUARE_KEYS[i] = random.nextLong();
+        }
+        BLACK_TO_MOVE_KEY = random.nextLong();
+        for (int i = 0; i < CASTLING_KEYS.length; i++) {
+            CASTLING_KEYS[i] = random.nextLong();
+        }
+        for (int i = 0; i < EN_PASSANT_FILE_KEYS.length; i++) {
+            EN_PASSANT_FILE_KEYS[i] = random.nextLong();
+        }
+    }
+
+    private Zobrist() {
+    } // ensure non-instantiability
+
+    /**
+     * Returns the key of the given piece standing on the given square.
+     *
+     * @param pieceIndex the piece index. See {@link Bitboards}.
+     * @param squareIndex the index of the square
+     * @return the key, or <code>0</code> if <code>pieceIndex</code> is
+     *         {@link Bitboards#NO_PIECE}
+     */
+    public static long pieceSquare(final int pieceIndex, final int squareIndex) {
+        return pieceIndex == Bitboards.NO_PIECE
+                ? 0L
+                : PIECE_SQUARE_KEYS[pieceIndex * Bitboards.SQUARE_COUNT + squareIndex];
+    }
+
+    /**
+     * Returns the key toggled when the side to move changes.
+     *
+     * @return the side to move key
+     */
+    public static long blackToMove() {
+        return BLACK_TO_MOVE_KEY;
+    }
+
+    /**
+     * Returns the combined key of the given castling rights.
+     *
+     * @param castlingRights the castling rights
+     * @return the exclusive or of the keys of every right held
+     */
+    public static long castling(@NotNull final CastlingRights castlingRights) {
+        return (castlingRights.whiteKingside() ? CASTLING_KEYS[0] : 0L)
+                ^ (castlingRights.whiteQueenside() ? CASTLING_KEYS[1] : 0L)
+                ^ (castlingRights.blackKingside() ? CASTLING_KEYS[2] : 0L)
+                ^ (castlingRights.blackQueenside() ? CASTLING_KEYS[3] : 0L);
+    }
+
+    /**
+     * Returns the key of the given en passant target square.
+     *
+     * @param enPassantTarget the en passant target square, or null
+     * @return the key of its file, or <code>0</code> if
+     *         <code>enPassantTarget</code> is null
+     */
+    public static long enPassant(final Coordinate enPassantTarget) {
+        return enPassantTarget == null ? 0L : EN_PASSANT_FILE_KEYS[enPassantTarget.getFileIndex()];
+    }
+
+    /**
+     * Computes the Zobrist key of the given board from scratch.
+     *
+     * <p>This is the reference against which incrementally updated keys can
+     * be verified.</p>
+     *
+     * @param boardState the position or board to hash
+     * @return the Zobrist key
+     */
+    public static long compute(@NotNull final BoardState boardState) {
+        long key = 0L;
+        for (long occupancy = boardState.getOccupancy(); occupancy != 0; occupancy &= occupancy - 1) {
+            final int squareIndex = Long.numberOfTrailingZeros(occupancy);
+            key ^= pieceSquare(boardState.getPieceIndex(squareIndex), squareIndex);
+        }
+        if (boardState.getToMove() == Color.BLACK) {
+            key ^= BLACK_TO_MOVE_KEY;
+        }
+        return key ^ castling(boardState.getCastlingRights()) ^ enPassant(boardState.getEnPassantTarget());
+    }
+}
@@ -57,6 +57,18 @@ public abstract class Piece {
                 : Character.toLowerCase(whiteLetter);
     }
 
+    /**
+     * Returns the {@link PieceType} of the piece.
+     *
+     * @return the type of the piece
+     * @throws IllegalArgumentException if the piece is not one of the six
+     *                                  standard pieces
+     */
+    @NotNull
+    public PieceType getType() {
+        return PieceType.valueOf(getWhiteLetter());
+    }
+
     /**
      * Returns the piece corresponding to the given character.
      *
@@ -0,0 +1,94 @@
+package gg.w6.chesslib.model.piece;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Represents the kind of a chess piece, independent of its color.
+ *
+ * <p>The ordinal of each constant is stable and is used to index per-piece
+ * tables, such as the bitboards of a
+ * {@link gg.w6.chesslib.model.Position}.</p>
+ */
+@Immutable
+public enum PieceType {
+
+    /**
+     * Represents a {@link Pawn}.
+     */
+    PAWN('P'),
+
+    /**
+     * Represents a {@link Knight}.
+     */
+    KNIGHT('N'),
+
+    /**
+     * Represents a {@link Bishop}.
+     */
+    BISHOP('B'),
+
+    /**
+     * Represents a {@link Rook}.
+     */
+    ROOK('R'),
+
+    /**
+     * Represents a {@link Queen}.
+     */
+    QUEEN('Q'),
+
+    /**
+     * Represents a {@link King}.
+     */
+    KING('K');
+
+    /**
+     * The number of piece types.
+     */
+    public static final int COUNT = 6;
+
+    /**
+     * The uppercase (white) letter of this piece type.
+     */
+    private final char whiteLetter;
+
+    PieceType(final char whiteLetter) {
+        this.whiteLetter = whiteLetter;
+    }
+
+    /**
+     * Returns the uppercase letter of this piece type, as used in SAN and
+     * for white pieces in FEN.
+     *
+     * @return the uppercase letter of this piece type
+     */
+    public char getWhiteLetter() {
+        return whiteLetter;
+    }
+
+    /**
+     * Returns the piece type corresponding to the given letter.
+     *
+     * <p>The letter is <i>not</i> case-sensitive.</p>
+     *
+     * @param c the letter of the piece type (e.g. 'N' or 'n')
+     * @return the corresponding piece type
+     * @throws IllegalArgumentException if the character does not represent a
+     *                                  valid piece type
+     */
+    @NotNull
+    public static PieceType valueOf(final char c) {
+        return switch (Character.toUpperCase(c)) {
+            case 'P' -> PAWN;
+            case 'N' -> KNIGHT;
+            case 'B' -> BISHOP;
+            case 'R' -> ROOK;
+            case 'Q' -> QUEEN;
+            case 'K' -> KING;
+            default -> throw new IllegalArgumentException(
+                    "Malformed piece type char '" + c + "'.");
+        };
+    }
+}
@@ -0,0 +1,478 @@
+package gg.w6.chesslib.util;
+
+import gg.w6.chesslib.model.Bitboards;
+import gg.w6.chesslib.model.Color;
+import gg.w6.chesslib.model.Coordinate;
+import gg.w6.chesslib.model.File;
+import gg.w6.chesslib.model.Offset;
+import gg.w6.chesslib.model.BoardState;
+import gg.w6.chesslib.model.Rank;
+import gg.w6.chesslib.model.piece.Bishop;
+import gg.w6.chesslib.model.piece.King;
+import gg.w6.chesslib.model.piece.Knight;
+import gg.w6.chesslib.model.piece.PieceType;
+import gg.w6.chesslib.model.piece.Queen;
+import gg.w6.chesslib.model.piece.Rider;
+import gg.w6.chesslib.model.piece.Rook;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * This class is a static utility class for looking up the squares attacked by
+ * a piece as a bitboard. It is not instantiable.
+ *
+ * <p>Sliding attacks are looked up in precomputed magic bitboard tables: the
+ * occupancy of the relevant squares of a ray set is multiplied by a per-square
+ * magic number, and the high bits of the product index a table of attack
+ * sets. A rook, bishop or queen attack lookup is therefore a mask, a multiply,
+ * a shift and an array load, regardless of occupancy.</p>
+ *
+ * <p>The magic numbers are found once, when this class is initialized, with
+ * a fixed-seed pseudo-random search, so the tables are identical on every
+ * run.</p>
+ *
+ * <p>Knight, king and pawn attacks, as well as pawn pushes, do not depend on
+ * occupancy and are looked up in plain per-square tables, which are also
+ * built when this class is initialized.</p>
+ *
+ * <p>Usage example:</p>
+ * <pre><code>
+ * final long occupancy = position.getOccupancy();
+ * final long targets = Attacks.rookAttacks(squareIndex, occupancy)
+ *         &amp; ~position.getOccupancy(position.getToMove());
+ * </code></pre>
+ *
+ * @see Bitboards
+ */
+public final class Attacks {
+
+    private static final int[][] ROOK_DIRECTIONS = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+    private static final int[][] BISHOP_DIRECTIONS = { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
+    private static final int[][] KNIGHT_STEPS = {
+            { 1, 2 }, { 1, -2 }, { -1, 2 }, { -1, -2 },
+            { 2, 1 }, { 2, -1 }, { -2, 1 }, { -2, -1 } };
+    private static final int[][] KING_STEPS = {
+            { 0, 1 }, { 1, 0 }, { 1, 1 }, { 0, -1 },
+            { 1, -1 }, { -1, 0 }, { -1, 1 }, { -1, -1 } };
+
+    private static final long[] KNIGHT_ATTACKS = new long[Bitboards.SQUARE_COUNT];
+    private static final long[] KING_ATTACKS = new long[Bitboards.SQUARE_COUNT];
+
+    /**
+     * Pawn capture targets, indexed by <code>[color.ordinal()][squareIndex]</code>.
+     */
+    private static final long[][] PAWN_ATTACKS = new long[2][Bitboards.SQUARE_COUNT];
+
+    /**
+     * Pawn single-push targets, indexed by
+     * <code>[color.ordinal()][squareIndex]</code>.
+     */
+    private static final long[][] PAWN_PUSHES = new long[2][Bitboards.SQUARE_COUNT];
+
+    private static final long[] ROOK_MASKS = new long[Bitboards.SQUARE_COUNT];
+    private static final long[] ROOK_MAGICS = new long[Bitboards.SQUARE_COUNT];
+    private static final int[] ROOK_SHIFTS = new int[Bitboards.SQUARE_COUNT];
+    private static final int[] ROOK_OFFSETS = new int[Bitboards.SQUARE_COUNT];
+    private static final long[] ROOK_TABLE;
+
+    private static final long[] BISHOP_MASKS = new long[Bitboards.SQUARE_COUNT];
+    private static final long[] BISHOP_MAGICS = new long[Bitboards.SQUARE_COUNT];
+    private static final int[] BISHOP_SHIFTS = new int[Bitboards.SQUARE_COUNT];
+    private static final int[] BISHOP_OFFSETS = new int[Bitboards.SQUARE_COUNT];
+    private static final long[] BISHOP_TABLE;
+
+    /**
+     * The squares strictly between two squares on a common rank, file or
+     * diagonal, indexed by <code>[from * 64 + to]</code>.
+     */
+    private static final long[] BETWEEN = new long[Bitboards.SQUARE_COUNT * Bitboards.SQUARE_COUNT];
+
+    /**
+     * The full rank, file or diagonal through two aligned squares, indexed
+     * by <code>[from * 64 + to]</code>.
+     */
+    private static final long[] LINE = new long[Bitboards.SQUARE_COUNT * Bitboards.SQUARE_COUNT];
+
+    static {
+        for (int squareIndex = 0; squareIndex < Bitboards.SQUARE_COUNT; squareIndex++) {
+            KNIGHT_ATTACKS[squareIndex] = steps(KNIGHT_STEPS, squareIndex);
+            KING_ATTACKS[squareIndex] = steps(KING_STEPS, squareIndex);
+            PAWN_ATTACKS[Color.WHITE.ordinal()][squareIndex] = steps(new int[][] { { -1, 1 }, { 1, 1 } }, squareIndex);
+            PAWN_ATTACKS[Color.BLACK.ordinal()][squareIndex] = steps(new int[][] { { -1, -1 }, { 1, -1 } }, squareIndex);
+            PAWN_PUSHES[Color.WHITE.ordinal()][squareIndex] = steps(new int[][] { { 0, 1 } }, squareIndex);
+            PAWN_PUSHES[Color.BLACK.ordinal()][squareIndex] = steps(new int[][] { { 0, -1 } }, squareIndex);
+        }
+
+        final MagicSearch search = new MagicSearch(0x2545F4914F6CDD1DL);
+        ROOK_TABLE = search.initialize(ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS,
+                ROOK_SHIFTS, ROOK_OFFSETS);
+        BISHOP_TABLE = search.initialize(BISHOP_DIRECTIONS, BISHOP_MASKS,
+                BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS);
+
+        for (int from = 0; from < Bitboards.SQUARE_COUNT; from++) {
+            for (int to = 0; to < Bitboards.SQUARE_COUNT; to++) {
+                final long toBit = Bitboards.bit(to);
+                final long fromBit = Bitboards.bit(from);
+                if ((rookAttacks(from, 0L) & toBit) != 0) {
+                    BETWEEN[from * Bitboards.SQUARE_COUNT + to] = rookAttacks(from, toBit) & rookAttacks(to, fromBit);
+                    LINE[from * Bitboards.SQUARE_COUNT + to] =
+                            (rookAttacks(from, 0L) & rookAttacks(to, 0L)) | fromBit | toBit;
+                } else if ((bishopAttacks(from, 0L) & toBit) != 0) {
+                    BETWEEN[from * Bitboards.SQUARE_COUNT + to] = bishopAttacks(from, toBit) & bishopAttacks(to, fromBit);
+                    LINE[from * Bitboards.SQUARE_COUNT + to] =
+                            (bishopAttacks(from, 0L) & bishopAttacks(to, 0L)) | fromBit | toBit;
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    } // ensure non-instantiability
+
+    /**
+     * Returns the squares attacked by a rook on the given square.
+     *
+     * <p>The result includes the first occupied square along each ray,
+     * regardless of the color of the piece on it.</p>
+     *
+     * @param squareIndex the index of the rook's square
+     * @param occupancy the bitboard of all occupied squares
+     * @return the bitboard of attacked squares
+     */
+    public static long rookAttacks(final int squareIndex, final long occupancy) {
+        return ROOK_TABLE[ROOK_OFFSETS[squareIndex]
+                + (int) (((occupancy & ROOK_MASKS[squareIndex])
+                        * ROOK_MAGICS[squareIndex]) >>> ROOK_SHIFTS[squareIndex])];
+    }
+
+    /**
+     * Returns the squares attacked by a bishop on the given square.
+     *
+     * <p>The result includes the first occupied square along each ray,
+     * regardless of the color of the piece on it.</p>
+     *
+     * @param squareIndex the index of the bishop's square
+     * @param occupancy the bitboard of all occupied squares
+     * @return the bitboard of attacked squares
+     */
+    public static long bishopAttacks(final int squareIndex, final long occupancy) {
+        return BISHOP_TABLE[BISHOP_OFFSETS[squareIndex]
+                + (int) (((occupancy & BISHOP_MASKS[squareIndex])
+                        * BISHOP_MAGICS[squareIndex]) >>> BISHOP_SHIFTS[squareIndex])];
+    }
+
+    /**
+     * Returns the squares attacked by a queen on the given square.
+     *
+     * <p>Semantically equivalent to
+     * <code>rookAttacks(squareIndex, occupancy) | bishopAttacks(squareIndex, occupancy)</code></p>
+     *
+     * @param squareIndex the index of the queen's square
+     * @param occupancy the bitboard of all occupied squares
+     * @return the bitboard of attacked squares
+     */
+    public static long queenAttacks(final int squareIndex, final long occupancy) {
+        return rookAttacks(squareIndex, occupancy) | bishopAttacks(squareIndex, occupancy);
+    }
+
+    /**
+     * Returns the squares attacked by a knight on the given square.
+     *
+     * @param squareIndex the index of the knight's square
+     * @return the bitboard of attacked squares
+     */
+    public static long knightAttacks(final int squareIndex) {
+        return KNIGHT_ATTACKS[squareIndex];
+    }
+
+    /**
+     * Returns the squares attacked by a king on the given square.
+     *
+     * @param squareIndex the index of the king's square
+     * @return the bitboard of attacked squares
+     */
+    public static long kingAttacks(final int squareIndex) {
+        return KING_ATTACKS[squareIndex];
+    }
+
+    /**
+     * Returns the squares attacked (diagonally, one rank forward) by a pawn
+     * of the given color on the given square.
+     *
+     * <p>Since pawn attacks are symmetric,
+     * <code>pawnAttacks(color, target)</code> is also the set of squares from
+     * which a pawn of the <i>opposite</i> color attacks <code>target</code>.</p>
+     *
+     * @param color the color of the pawn
+     * @param squareIndex the index of the pawn's square
+     * @return the bitboard of attacked squares
+     */
+    public static long pawnAttacks(@NotNull final Color color, final int squareIndex) {
+        return PAWN_ATTACKS[color.ordinal()][squareIndex];
+    }
+
+    /**
+     * Returns the square one rank forward of a pawn of the given color on the
+     * given square, or an empty bitboard if the pawn is on the last rank.
+     *
+     * <p>Occupancy is not taken into account.</p>
+     *
+     * @param color the color of the pawn
+     * @param squareIndex the index of the pawn's square
+     * @return the bitboard of the single-push target
+     */
+    public static long pawnPushes(@NotNull final Color color, final int squareIndex) {
+        return PAWN_PUSHES[color.ordinal()][squareIndex];
+    }
+
+    /**
+     * Returns the squares strictly between two squares that share a rank,
+     * file or diagonal.
+     *
+     * @param from the index of the first square
+     * @param to the index of the second square
+     * @return the bitboard of squares between <code>from</code> and
+     *         <code>to</code>, or an empty bitboard if they are not aligned or
+     *         adjacent
+     */
+    public static long between(final int from, final int to) {
+        return BETWEEN[from * Bitboards.SQUARE_COUNT + to];
+    }
+
+    /**
+     * Returns every square of the rank, file or diagonal through two squares,
+     * from one edge of the board to the other.
+     *
+     * @param from the index of the first square
+     * @param to the index of the second square
+     * @return the bitboard of the line through <code>from</code> and
+     *         <code>to</code>, or an empty bitboard if they are not aligned
+     */
+    public static long line(final int from, final int to) {
+        return LINE[from * Bitboards.SQUARE_COUNT + to];
+    }
+
+    /**
+     * Returns the squares attacked by the piece with the given piece index on
+     * the given square.
+     *
+     * @param pieceIndex the piece index, see {@link Bitboards}
+     * @param squareIndex the index of the piece's square
+     * @param occupancy the bitboard of all occupied squares
+     * @return the bitboard of attacked squares
+     */
+    public static long pieceAttacks(final int pieceIndex, final int squareIndex, final long occupancy) {
+        return switch (Bitboards.pieceTypeOf(pieceIndex)) {
+            case PAWN -> pawnAttacks(Bitboards.colorOf(pieceIndex), squareIndex);
+            case KNIGHT -> knightAttacks(squareIndex);
+            case BISHOP -> bishopAttacks(squareIndex, occupancy);
+            case ROOK -> rookAttacks(squareIndex, occupancy);
+            case QUEEN -> queenAttacks(squareIndex, occupancy);
+            case KING -> kingAttacks(squareIndex);
+        };
+    }
+
+    /**
+     * Returns the squares of all pieces of the given color that attack the
+     * given square, looking outward from the target square.
+     *
+     * <p>The supplied occupancy is used for sliding attacks instead of the
+     * occupancy of the position, which allows a caller to ask about a
+     * hypothetical board, e.g. one with a piece removed.</p>
+     *
+     * @param position the position or board whose pieces are considered
+     * @param squareIndex the index of the target square
+     * @param attackerColor the color of the attacking pieces
+     * @param occupancy the bitboard of all occupied squares
+     * @return the bitboard of attacking pieces' squares
+     */
+    public static long attackersTo(@NotNull final BoardState position, final int squareIndex,
+                                   @NotNull final Color attackerColor, final long occupancy) {
+        final Color defenderColor = attackerColor == Color.WHITE ? Color.BLACK : Color.WHITE;
+        final long queens = position.getBitboard(attackerColor, PieceType.QUEEN);
+        return (pawnAttacks(defenderColor, squareIndex) & position.getBitboard(attackerColor, PieceType.PAWN))
+                | (knightAttacks(squareIndex) & position.getBitboard(attackerColor, PieceType.KNIGHT))
+                | (kingAttacks(squareIndex) & position.getBitboard(attackerColor, PieceType.KING))
+                | (bishopAttacks(squareIndex, occupancy)
+                        & (position.getBitboard(attackerColor, PieceType.BISHOP) | queens))
+                | (rookAttacks(squareIndex, occupancy)
+                        & (position.getBitboard(attackerColor, PieceType.ROOK) | queens));
+    }
+
+    /**
+     * Returns the squares attacked by the given {@link Rider} on the given
+     * square.
+     *
+     * <p>Rooks, bishops and queens are looked up in the magic tables, and
+     * knights and kings in the leaper tables. Any other rider is expanded along its {@link Rider#getOffsets()} up to its
+     * {@link Rider#getRange()}.</p>
+     *
+     * @param rider the rider
+     * @param squareIndex the index of the rider's square
+     * @param occupancy the bitboard of all occupied squares
+     * @return the bitboard of attacked squares
+     */
+    public static long riderAttacks(@NotNull final Rider rider, final int squareIndex,
+                                    final long occupancy) {
+        if (rider instanceof Rook) {
+            return rookAttacks(squareIndex, occupancy);
+        } else if (rider instanceof Bishop) {
+            return bishopAttacks(squareIndex, occupancy);
+        } else if (rider instanceof Queen) {
+            return queenAttacks(squareIndex, occupancy);
+        } else if (rider instanceof Knight) {
+            return knightAttacks(squareIndex);
+        } else if (rider instanceof King) {
+            return kingAttacks(squareIndex);
+        }
+
+        long attacks = 0L;
+        final Coordinate origin = Coordinate.valueOf(squareIndex);
+        for (final Offset offset : rider.getOffsets()) {
+            for (final Coordinate target : offset.extendFrom(origin, rider.getRange())) {
+                final long bit = Bitboards.bit(target.getSquareIndex());
+                attacks |= bit;
+                if ((occupancy & bit) != 0) break;
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Takes a single step in each of the given directions from the given
+     * square, discarding steps that leave the board.
+     */
+    private static long steps(final int[][] directions, final int squareIndex) {
+        long targets = 0L;
+        for (final int[] direction : directions) {
+            final int fileIndex = Bitboards.fileIndex(squareIndex) + direction[0];
+            final int rankIndex = Bitboards.rankIndex(squareIndex) + direction[1];
+            if (fileIndex >= 0 && fileIndex < File.COUNT
+                    && rankIndex >= 0 && rankIndex < Rank.COUNT) {
+                targets |= Bitboards.bit(Bitboards.squareIndex(fileIndex, rankIndex));
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Walks each of the given directions from the given square, stopping at
+     * (and including) the first occupied square.
+     */
+    private static long slidingAttacks(final int[][] directions, final int squareIndex,
+                                       final long occupancy) {
+        long attacks = 0L;
+        for (final int[] direction : directions) {
+            int fileIndex = Bitboards.fileIndex(squareIndex) + direction[0];
+            int rankIndex = Bitboards.rankIndex(squareIndex) + direction[1];
+            while (fileIndex >= 0 && fileIndex < File.COUNT
+                    && rankIndex >= 0 && rankIndex < Rank.COUNT) {
+                final long bit = Bitboards.bit(Bitboards.squareIndex(fileIndex, rankIndex));
+                attacks |= bit;
+                if ((occupancy & bit) != 0) break;
+                fileIndex += direction[0];
+                rankIndex += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Returns the squares whose occupancy can change the attacks from the
+     * given square: every ray square except the last one on each ray.
+     */
+    private static long relevantMask(final int[][] directions, final int squareIndex) {
+        long mask = 0L;
+        for (final int[] direction : directions) {
+            int fileIndex = Bitboards.fileIndex(squareIndex) + direction[0];
+            int rankIndex = Bitboards.rankIndex(squareIndex) + direction[1];
+            while (fileIndex + direction[0] >= 0 && fileIndex + direction[0] < File.COUNT
+                    && rankIndex + direction[1] >= 0 && rankIndex + direction[1] < Rank.COUNT) {
+                mask |= Bitboards.bit(Bitboards.squareIndex(fileIndex, rankIndex));
+                fileIndex += direction[0];
+                rankIndex += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Finds magic numbers and fills the attack tables of one slider kind.
+     */
+    private static final class MagicSearch {
+
+        private long state;
+
+        private MagicSearch(final long seed) {
+            this.state = seed;
+        }
+
+        private long nextLong() {
+            // xorshift64*
+            state ^= state >>> 12;
+            state ^= state << 25;
+            state ^= state >>> 27;
+            return state * 0x2545F4914F6CDD1DL;
+        }
+
+        private long nextSparseLong() {
+            return nextLong() & nextLong() & nextLong();
+        }
+
+        private long[] initialize(final int[][] directions, final long[] masks,
+                                  final long[] magics, final int[] shifts,
+                                  final int[] offsets) {
+            int size = 0;
+            for (int squareIndex = 0; squareIndex < Bitboards.SQUARE_COUNT; squareIndex++) {
+                masks[squareIndex] = relevantMask(directions, squareIndex);
+                shifts[squareIndex] = 64 - Long.bitCount(masks[squareIndex]);
+                offsets[squareIndex] = size;
+                size += 1 << Long.bitCount(masks[squareIndex]);
+            }
+
+            final long[] table = new long[size];
+            final long[] occupancies = new long[1 << 12];
+            final long[] attacks = new long[1 << 12];
+            final int[] epochs = new int[1 << 12];
+            int epoch = 0;
+
+            for (int squareIndex = 0; squareIndex < Bitboards.SQUARE_COUNT; squareIndex++) {
+                final long mask = masks[squareIndex];
+                final int count = 1 << Long.bitCount(mask);
+
+                // enumerate every subset of the mask (Carry-Rippler)
+                long subset = 0L;
+                for (int i = 0; i < count; i++) {
+                    occupancies[i] = subset;
+                    attacks[i] = slidingAttacks(directions, squareIndex, subset);
+                    subset = (subset - mask) & mask;
+                }
+
+                final int shift = shifts[squareIndex];
+                final int offset = offsets[squareIndex];
+                search:
+                while (true) {
+                    final long magic = nextSparseLong();
+                    if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+                        continue;
+                    }
+
+                    epoch++;
+                    for (int i = 0; i < count; i++) {
+                        final int index = (int) ((occupancies[i] * magic) >>> shift);
+                        if (epochs[index] < epoch) {
+                            epochs[index] = epoch;
+                            table[offset + index] = attacks[i];
+                        } else if (table[offset + index] != attacks[i]) {
+                            continue search;
+                        }
+                    }
+
+                    magics[squareIndex] = magic;
+                    break;
+                }
+            }
+
+            return table;
+        }
+    }
+}
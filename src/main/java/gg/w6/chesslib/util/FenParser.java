@@ -1,23 +1,31 @@
 package gg.w6.chesslib.util;
 
 import gg.w6.chesslib.model.*;
-import gg.w6.chesslib.model.piece.Piece;
+import gg.w6.chesslib.model.piece.PieceType;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.regex.Pattern;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * This class is a static utility class for parsing FEN strings. It is not
  * instantiable.
- * 
- * <p>The only public member of this class is {@link #parse(String)}.</p>
+ *
+ * <p>{@link #parse(String)} throws on malformed input, while
+ * {@link #tryParse(CharSequence)} reports it as a {@link ParseResult}, which
+ * is much cheaper when bulk input contains many bad records. The input is
+ * read in a single pass without regular expressions or intermediate strings,
+ * and can be a range of a larger {@link CharSequence} or
+ * {@link ByteBuffer}.</p>
+ *
+ * @see FenWriter
  */
 public final class FenParser {
 
-    private static final Pattern CASTLING_RIGHTS_FIELD_PATTERN = Pattern.compile("K?Q?k?q?");
-    private static final Pattern ACTIVE_COLOR_FIELD_PATTERN = Pattern.compile("^[bBwW]$");
-    private static final Pattern HALFMOVE_CLOCK_FIELD_PATTERN = Pattern.compile("^\\d+$");
-    private static final Pattern FULLMOVE_NUMBER_FIELD_PATTERN = Pattern.compile("^\\d+$");
+    /**
+     * The lowercase piece letters, indexed by {@link PieceType} ordinal.
+     */
+    private static final String PIECE_LETTERS = "pnbrqk";
 
     private FenParser() {
     } // ensure non-instantiability
@@ -37,94 +45,277 @@ public final class FenParser {
     @NotNull
     public static Position parse(@NotNull final String fen)
             throws IllegalArgumentException {
-        final String[] recordFields = getAndVerifyRecordFields(fen);
-
-        final Square[][] squares = new Square[File.COUNT][Rank.COUNT];
-        parseAndPopulateSquares(recordFields[0], squares);
-
-        final CastlingRights castlingRights = new CastlingRights(
-                recordFields[2].contains("K"),
-                recordFields[2].contains("Q"),
-                recordFields[2].contains("k"),
-                recordFields[2].contains("q")
-        );
-
-        final Coordinate enPassant = "-".equals(recordFields[3])
-                ? null : Coordinate.valueOf(recordFields[3]);
-
-        return new Position(
-                squares,
-                castlingRights,
-                enPassant,
-                Color.valueOf(recordFields[1].charAt(0)),
-                Integer.parseInt(recordFields[4]),
-                Integer.parseInt(recordFields[5])
-        );
+        final ParseResult<Position> result = tryParse(fen);
+        if (!result.isSuccess()) {
+            throw new IllegalArgumentException(result.getError().getDescription() + " at offset "
+                    + result.getOffset() + " in FEN \"" + fen + "\".");
+        }
+        return result.getValue();
     }
 
+    /**
+     * Generate a {@link Position} from the given FEN characters, reporting
+     * malformed input without throwing.
+     *
+     * <p>The fields must be separated by single spaces. A failed result
+     * carries the offset of the first character that could not be parsed,
+     * or of the end of the input if fields are missing.</p>
+     *
+     * @param fen the Forsyth–Edwards Notation (FEN) representation of a
+     *            Chess position
+     * @return the parsed position, or the error
+     * @see #parse(String)
+     */
     @NotNull
-    private static String[] getAndVerifyRecordFields(@NotNull final String fen) {
-        final String[] fields = fen.split(" ");
+    public static ParseResult<Position> tryParse(@NotNull final CharSequence fen) {
+        return tryParse(fen, 0, fen.length());
+    }
 
-        if (fields.length != 6) {
-            throw new IllegalArgumentException("Malformed FEN. Too " + (fields.length > 6 ? "many" : "few") + " fields for FEN \"" + fen + "\".");
+    /**
+     * Generate a {@link Position} from the FEN in the given range of a
+     * character sequence, such as one line of an EPD file, reporting
+     * malformed input without throwing.
+     *
+     * <p>Offsets in a failed result are indices into <code>chars</code>.</p>
+     *
+     * @param chars the characters containing the FEN
+     * @param start the index of the first character of the FEN
+     * @param end the index after the last character of the FEN
+     * @return the parsed position, or the error
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     * @see #tryParse(CharSequence)
+     */
+    @NotNull
+    public static ParseResult<Position> tryParse(@NotNull final CharSequence chars, final int start, final int end) {
+        if (start < 0 || end > chars.length() || start > end) {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of bounds for length "
+                    + chars.length() + ".");
         }
+        return parseRange(chars, start, end);
+    }
 
-        if (!(fields[2].equals("-") || CASTLING_RIGHTS_FIELD_PATTERN.matcher(fields[2]).matches())) {
-            throw new IllegalArgumentException("Malformed castling rights field \"" + fields[2] + "\".");
+    /**
+     * Generate a {@link Position} from the ASCII FEN in the given range of a
+     * byte buffer, reporting malformed input without throwing.
+     *
+     * <p>The bytes are read with absolute indices, so the position and limit
+     * of the buffer are left untouched. Offsets in a failed result are
+     * indices into the buffer.</p>
+     *
+     * @param buffer the bytes containing the FEN
+     * @param start the index of the first byte of the FEN
+     * @param end the index after the last byte of the FEN
+     * @return the parsed position, or the error
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     * @see #tryParse(CharSequence)
+     */
+    @NotNull
+    public static ParseResult<Position> tryParse(@NotNull final ByteBuffer buffer, final int start, final int end) {
+        if (start < 0 || end > buffer.limit() || start > end) {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of bounds for limit "
+                    + buffer.limit() + ".");
+        }
+        return parseRange(new AsciiCharSequence(buffer), start, end);
+    }
+
+    @NotNull
+    private static ParseResult<Position> parseRange(final CharSequence fen, final int start, final int limit) {
+        // piece placement, from the eighth rank down
+        final byte[] pieceIndices = new byte[Bitboards.SQUARE_COUNT];
+        Arrays.fill(pieceIndices, (byte) Bitboards.NO_PIECE);
+        int index = start;
+        int rankIndex = Rank.COUNT - 1;
+        int fileIndex = 0;
+        for (; index < limit && fen.charAt(index) != ' '; index++) {
+            final char c = fen.charAt(index);
+            if (c == '/') {
+                if (fileIndex != File.COUNT || rankIndex == 0) {
+                    return ParseResult.failure(ParseError.MALFORMED_PIECE_PLACEMENT, index);
+                }
+                rankIndex--;
+                fileIndex = 0;
+            } else if (c >= '1' && c <= '8') {
+                fileIndex += c - '0';
+                if (fileIndex > File.COUNT) {
+                    return ParseResult.failure(ParseError.MALFORMED_PIECE_PLACEMENT, index);
+                }
+            } else {
+                final int pieceIndex = pieceIndex(c);
+                if (pieceIndex == Bitboards.NO_PIECE || fileIndex == File.COUNT) {
+                    return ParseResult.failure(ParseError.MALFORMED_PIECE_PLACEMENT, index);
+                }
+                pieceIndices[Bitboards.squareIndex(fileIndex++, rankIndex)] = (byte) pieceIndex;
+            }
+        }
+        if (fileIndex != File.COUNT || rankIndex != 0) {
+            return ParseResult.failure(ParseError.MALFORMED_PIECE_PLACEMENT, index);
+        }
+        if (index == limit) {
+            return ParseResult.failure(ParseError.MALFORMED_FEN_FIELD_COUNT, index);
+        }
+
+        // active color
+        index++;
+        int end = fieldEnd(fen, index, limit);
+        if (end != index + 1 || "wWbB".indexOf(fen.charAt(index)) < 0) {
+            return ParseResult.failure(ParseError.MALFORMED_ACTIVE_COLOR, index);
+        }
+        final Color toMove = Color.valueOf(fen.charAt(index));
+        if (end == limit) {
+            return ParseResult.failure(ParseError.MALFORMED_FEN_FIELD_COUNT, end);
+        }
+
+        // castling rights, "-" or a subsequence of "KQkq"
+        index = end + 1;
+        end = fieldEnd(fen, index, limit);
+        final CastlingRights castlingRights;
+        if (end == index + 1 && fen.charAt(index) == '-') {
+            castlingRights = new CastlingRights(false);
+        } else {
+            final boolean[] rights = new boolean[4];
+            int next = 0;
+            for (int i = index; i < end; i++) {
+                final int right = "KQkq".indexOf(fen.charAt(i), next);
+                if (right < 0) {
+                    return ParseResult.failure(ParseError.MALFORMED_CASTLING_RIGHTS, i);
+                }
+                rights[right] = true;
+                next = right + 1;
+            }
+            if (end == index) {
+                return ParseResult.failure(ParseError.MALFORMED_CASTLING_RIGHTS, index);
+            }
+            castlingRights = new CastlingRights(rights[0], rights[1], rights[2], rights[3]);
+        }
+        if (end == limit) {
+            return ParseResult.failure(ParseError.MALFORMED_FEN_FIELD_COUNT, end);
         }
 
-        if (!ACTIVE_COLOR_FIELD_PATTERN.matcher(fields[1]).matches()) {
-            throw new IllegalArgumentException("Malformed color field \"" + fields[1] + "\".");
+        // en passant target
+        index = end + 1;
+        end = fieldEnd(fen, index, limit);
+        final Coordinate enPassantTarget;
+        if (end == index + 1 && fen.charAt(index) == '-') {
+            enPassantTarget = null;
+        } else if (end == index + 2 && fen.charAt(index) >= 'a' && fen.charAt(index) <= 'h'
+                && fen.charAt(index + 1) >= '1' && fen.charAt(index + 1) <= '8') {
+            enPassantTarget = Coordinate.valueOf(fen.charAt(index) - 'a', fen.charAt(index + 1) - '1');
+        } else {
+            return ParseResult.failure(ParseError.MALFORMED_EN_PASSANT_TARGET, index);
+        }
+        if (end == limit) {
+            return ParseResult.failure(ParseError.MALFORMED_FEN_FIELD_COUNT, end);
         }
 
-        if (!HALFMOVE_CLOCK_FIELD_PATTERN.matcher(fields[4]).matches()) {
-            throw new IllegalArgumentException("Malformed halfmove clock field \"" + fields[4] + "\".");
+        // halfmove clock
+        index = end + 1;
+        end = fieldEnd(fen, index, limit);
+        final int halfMoveClock = parseNumber(fen, index, end);
+        if (halfMoveClock < 0) {
+            return ParseResult.failure(ParseError.MALFORMED_HALFMOVE_CLOCK, index);
+        }
+        if (end == limit) {
+            return ParseResult.failure(ParseError.MALFORMED_FEN_FIELD_COUNT, end);
         }
 
-        if (!FULLMOVE_NUMBER_FIELD_PATTERN.matcher(fields[5]).matches()) {
-            throw new IllegalArgumentException("Malformed fullmove number field \"" + fields[5] + "\".");
+        // fullmove number
+        index = end + 1;
+        end = fieldEnd(fen, index, limit);
+        final int fullMoves = parseNumber(fen, index, end);
+        if (fullMoves < 0) {
+            return ParseResult.failure(ParseError.MALFORMED_FULLMOVE_NUMBER, index);
+        }
+        if (end != limit) {
+            return ParseResult.failure(ParseError.MALFORMED_FEN_FIELD_COUNT, end);
         }
 
-        return fields;
+        return ParseResult.success(new Position(pieceIndices, castlingRights, enPassantTarget, toMove,
+                halfMoveClock, fullMoves));
     }
 
-    private static void parseAndPopulateSquares(@NotNull final String piecePlacement,
-                                                @NotNull final Square[][] squares) {
-        final String[] ranks = piecePlacement.split("/");
-        if (ranks.length != Rank.COUNT) {
-            throw new IllegalArgumentException("Malformed piece placement field \"" + piecePlacement + "\".");
-        }
-
-        for (int rankIndex = 0; rankIndex < Rank.COUNT; rankIndex++) {
-            final String rank = ranks[Rank.COUNT - 1 - rankIndex]; // reverse ranks
-            int fileIndex = 0;
-
-            for (int i = 0, len = rank.length(); i < len; i++) {
-                final char c = rank.charAt(i);
-
-                if (c >= '1' && c <= '8') {
-                    final int emptySquares = c - '0';
-                    if (fileIndex + emptySquares > File.COUNT) {
-                        throw new IllegalArgumentException("Too many squares in rank: \"" + piecePlacement + "\".");
-                    }
-                    for (int e = 0; e < emptySquares; e++) {
-                        squares[fileIndex++][rankIndex] = Square.valueOf(fileIndex - 1, rankIndex, null);
-                    }
-                } else {
-                    if (fileIndex >= File.COUNT) {
-                        throw new IllegalArgumentException("Too many squares in rank: \"" + piecePlacement + "\".");
-                    }
-                    squares[fileIndex][rankIndex] = Square.valueOf(fileIndex, rankIndex, Piece.valueOf(c));
-                    fileIndex++;
-                }
+    /**
+     * Returns the index of the space ending the field that starts at the
+     * given index, or the end of the input if it is the last field.
+     */
+    private static int fieldEnd(final CharSequence fen, final int start, final int limit) {
+        int end = start;
+        while (end < limit && fen.charAt(end) != ' ') {
+            end++;
+        }
+        return end;
+    }
 
+    /**
+     * Returns the non-negative decimal number in the given range, or
+     * <code>-1</code> if the range is empty, contains anything but digits or
+     * overflows an <code>int</code>.
+     */
+    private static int parseNumber(final CharSequence fen, final int start, final int end) {
+        if (start == end) {
+            return -1;
+        }
+        long number = 0;
+        for (int i = start; i < end; i++) {
+            final char c = fen.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
             }
+            number = number * 10 + (c - '0');
+            if (number > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return (int) number;
+    }
 
-            if (fileIndex != File.COUNT) {
-                throw new IllegalArgumentException("Malformed piece placement field \"" + piecePlacement + "\".");
+    /**
+     * Returns the piece index of the given FEN piece letter, or
+     * {@link Bitboards#NO_PIECE} if it is not one.
+     */
+    private static int pieceIndex(final char c) {
+        final int pieceType = PIECE_LETTERS.indexOf(Character.toLowerCase(c));
+        if (pieceType < 0) {
+            return Bitboards.NO_PIECE;
+        }
+        return Character.isUpperCase(c) ? pieceType : pieceType + PieceType.COUNT;
+    }
+
+    /**
+     * A view of the bytes of a buffer as ASCII characters, read with
+     * absolute indices.
+     */
+    private static final class AsciiCharSequence implements CharSequence {
+
+        private final ByteBuffer buffer;
+
+        AsciiCharSequence(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int length() {
+            return buffer.limit();
+        }
+
+        @Override
+        public char charAt(final int index) {
+            return (char) (buffer.get(index) & 0xFF);
+        }
+
+        @Override
+        @NotNull
+        public CharSequence subSequence(final int start, final int end) {
+            final StringBuilder stringBuilder = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) {
+                stringBuilder.append(charAt(i));
             }
+            return stringBuilder;
+        }
+
+        @Override
+        @NotNull
+        public String toString() {
+            return subSequence(0, length()).toString();
         }
     }
 }
-
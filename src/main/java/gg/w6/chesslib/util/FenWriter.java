@@ -0,0 +1,264 @@
+package gg.w6.chesslib.util;
+
+import gg.w6.chesslib.model.*;
+import gg.w6.chesslib.model.piece.PieceType;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class is a static utility class for writing FEN strings. It is not
+ * instantiable.
+ *
+ * <p>The FEN is appended character by character to a caller-supplied
+ * destination, without building intermediate strings, so a caller that
+ * reuses its {@link StringBuilder} or {@link ByteBuffer} can export
+ * positions without allocating.</p>
+ *
+ * <p>Usage example:</p>
+ * <pre><code>
+ * final StringBuilder line = new StringBuilder(FenWriter.MAX_LENGTH);
+ * for (final Position position : positions) {
+ *     line.setLength(0);
+ *     writer.append(FenWriter.append(position, line).append('\n'));
+ * }
+ * </code></pre>
+ *
+ * @see FenParser
+ */
+public final class FenWriter {
+
+    /**
+     * The greatest number of characters of a FEN written by this class:
+     * a full board, all castling rights, an en passant target and two
+     * counters of eleven characters each.
+     */
+    public static final int MAX_LENGTH = 105;
+
+    /**
+     * The FEN piece letters, indexed by piece index. See {@link Bitboards}.
+     */
+    private static final String PIECE_LETTERS = "PNBRQKpnbrqk";
+
+    private FenWriter() {
+    } // ensure non-instantiability
+
+    /**
+     * Appends the FEN of the given position to a {@link StringBuilder}.
+     *
+     * @param position the position to write
+     * @param stringBuilder the destination
+     * @return <code>stringBuilder</code>
+     */
+    @NotNull
+    public static StringBuilder append(@NotNull final Position position, @NotNull final StringBuilder stringBuilder) {
+        return append(position, position.getHalfMoveClock(), position.getFullMoves(), stringBuilder);
+    }
+
+    /**
+     * Appends the FEN of the given board state and counters to a
+     * {@link StringBuilder}.
+     *
+     * @param state the position or board to write
+     * @param halfMoveClock the halfmove clock
+     * @param fullMoves the fullmove number
+     * @param stringBuilder the destination
+     * @return <code>stringBuilder</code>
+     */
+    @NotNull
+    public static StringBuilder append(@NotNull final BoardState state, final int halfMoveClock, final int fullMoves,
+                                       @NotNull final StringBuilder stringBuilder) {
+        try {
+            return write(state, halfMoveClock, fullMoves, stringBuilder);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e); // cannot happen, StringBuilder does not throw
+        }
+    }
+
+    /**
+     * Writes the FEN of the given position as ASCII into a {@link ByteBuffer},
+     * starting at its position and advancing it.
+     *
+     * @param position the position to write
+     * @param buffer the destination
+     * @return <code>buffer</code>
+     * @throws BufferOverflowException if the buffer has less room than the
+     *                                 FEN needs. {@link #MAX_LENGTH} bytes
+     *                                 always suffice.
+     */
+    @NotNull
+    public static ByteBuffer put(@NotNull final Position position, @NotNull final ByteBuffer buffer) {
+        // piece placement, from the eighth rank down
+        for (int rankIndex = Rank.COUNT - 1; rankIndex >= 0; rankIndex--) {
+            int emptySquares = 0;
+            for (int fileIndex = 0; fileIndex < File.COUNT; fileIndex++) {
+                final int pieceIndex = position.getPieceIndex(Bitboards.squareIndex(fileIndex, rankIndex));
+                if (pieceIndex == Bitboards.NO_PIECE) {
+                    emptySquares++;
+                    continue;
+                }
+                if (emptySquares != 0) {
+                    buffer.put((byte) ('0' + emptySquares));
+                    emptySquares = 0;
+                }
+                buffer.put((byte) PIECE_LETTERS.charAt(pieceIndex));
+            }
+            if (emptySquares != 0) {
+                buffer.put((byte) ('0' + emptySquares));
+            }
+            if (rankIndex != 0) {
+                buffer.put((byte) '/');
+            }
+        }
+
+        buffer.put((byte) ' ').put((byte) (position.getToMove() == Color.WHITE ? 'w' : 'b')).put((byte) ' ');
+
+        final CastlingRights castlingRights = position.getCastlingRights();
+        if (castlingRights.allRightFalse()) {
+            buffer.put((byte) '-');
+        } else {
+            if (castlingRights.whiteKingside()) {
+                buffer.put((byte) 'K');
+            }
+            if (castlingRights.whiteQueenside()) {
+                buffer.put((byte) 'Q');
+            }
+            if (castlingRights.blackKingside()) {
+                buffer.put((byte) 'k');
+            }
+            if (castlingRights.blackQueenside()) {
+                buffer.put((byte) 'q');
+            }
+        }
+
+        buffer.put((byte) ' ');
+        final Coordinate enPassantTarget = position.getEnPassantTarget();
+        if (enPassantTarget == null) {
+            buffer.put((byte) '-');
+        } else {
+            buffer.put((byte) ('a' + enPassantTarget.getFileIndex()))
+                    .put((byte) ('1' + enPassantTarget.getRankIndex()));
+        }
+
+        buffer.put((byte) ' ');
+        putNumber(position.getHalfMoveClock(), buffer);
+        buffer.put((byte) ' ');
+        putNumber(position.getFullMoves(), buffer);
+        return buffer;
+    }
+
+    /**
+     * Writes the FEN of the given board state and counters to an
+     * {@link Appendable}, such as a {@link java.io.Writer}.
+     *
+     * @param state the position or board to write
+     * @param halfMoveClock the halfmove clock
+     * @param fullMoves the fullmove number
+     * @param appendable the destination
+     * @param <A> the type of the destination
+     * @return <code>appendable</code>
+     * @throws IOException if the destination throws
+     */
+    @NotNull
+    public static <A extends Appendable> A write(@NotNull final BoardState state, final int halfMoveClock,
+                                                 final int fullMoves, @NotNull final A appendable)
+            throws IOException {
+        // piece placement, from the eighth rank down
+        for (int rankIndex = Rank.COUNT - 1; rankIndex >= 0; rankIndex--) {
+            int emptySquares = 0;
+            for (int fileIndex = 0; fileIndex < File.COUNT; fileIndex++) {
+                final int pieceIndex = state.getPieceIndex(Bitboards.squareIndex(fileIndex, rankIndex));
+                if (pieceIndex == Bitboards.NO_PIECE) {
+                    emptySquares++;
+                    continue;
+                }
+                if (emptySquares != 0) {
+                    appendable.append((char) ('0' + emptySquares));
+                    emptySquares = 0;
+                }
+                appendable.append(PIECE_LETTERS.charAt(pieceIndex));
+            }
+            if (emptySquares != 0) {
+                appendable.append((char) ('0' + emptySquares));
+            }
+            if (rankIndex != 0) {
+                appendable.append('/');
+            }
+        }
+
+        appendable.append(' ').append(state.getToMove() == Color.WHITE ? 'w' : 'b').append(' ');
+
+        final CastlingRights castlingRights = state.getCastlingRights();
+        if (castlingRights.allRightFalse()) {
+            appendable.append('-');
+        } else {
+            if (castlingRights.whiteKingside()) {
+                appendable.append('K');
+            }
+            if (castlingRights.whiteQueenside()) {
+                appendable.append('Q');
+            }
+            if (castlingRights.blackKingside()) {
+                appendable.append('k');
+            }
+            if (castlingRights.blackQueenside()) {
+                appendable.append('q');
+            }
+        }
+
+        appendable.append(' ');
+        final Coordinate enPassantTarget = state.getEnPassantTarget();
+        if (enPassantTarget == null) {
+            appendable.append('-');
+        } else {
+            appendable.append((char) ('a' + enPassantTarget.getFileIndex()))
+                    .append((char) ('1' + enPassantTarget.getRankIndex()));
+        }
+
+        appendable.append(' ');
+        appendNumber(halfMoveClock, appendable);
+        appendable.append(' ');
+        appendNumber(fullMoves, appendable);
+        return appendable;
+    }
+
+    /**
+     * Appends the decimal digits of a number without converting it to a
+     * string first.
+     */
+    private static void appendNumber(final int number, final Appendable appendable) throws IOException {
+        long remaining = number;
+        if (remaining < 0) {
+            appendable.append('-');
+            remaining = -remaining;
+        }
+        long divisor = 1;
+        while (divisor * 10 <= remaining) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            appendable.append((char) ('0' + remaining / divisor % 10));
+        }
+    }
+
+    /**
+     * Puts the ASCII decimal digits of a number into a buffer.
+     */
+    private static void putNumber(final int number, final ByteBuffer buffer) {
+        long remaining = number;
+        if (remaining < 0) {
+            buffer.put((byte) '-');
+            remaining = -remaining;
+        }
+        long divisor = 1;
+        while (divisor * 10 <= remaining) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + remaining / divisor % 10));
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package gg.w6.chesslib.util;
+
+import gg.w6.chesslib.model.Move;
+import gg.w6.chesslib.model.MoveList;
+import gg.w6.chesslib.model.Position;
+import gg.w6.chesslib.model.Zobrist;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe cache of the legal moves of {@link Position}s.
+ *
+ * <p>Entries are looked up by the {@link Zobrist} key of the position and
+ * verified with {@link Position#equals(Object)}, so a key collision never
+ * returns the moves of another position. The cache is split into segments,
+ * each guarded by its own lock, and each segment evicts with the CLOCK
+ * policy: an entry that was read since the clock hand last passed it gets a
+ * second chance, the first one that was not is replaced.</p>
+ *
+ * <p>The cached sets are unmodifiable and shared between callers.</p>
+ *
+ * <p>Usage example:</p>
+ * <pre><code>
+ * final LegalMoveCache cache = new LegalMoveCache(1 &lt;&lt; 18);
+ * final Set&lt;Move&gt; moves = cache.get(position);
+ * </code></pre>
+ *
+ * @see MoveGenerator#getLegalMoves(Position)
+ */
+@ThreadSafe
+public final class LegalMoveCache {
+
+    /**
+     * The capacity of a cache constructed with {@link #LegalMoveCache()}.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final int MAX_SEGMENT_COUNT = 64;
+
+    private final Segment[] segments;
+    private final int capacity;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs a cache with the {@link #DEFAULT_CAPACITY}.
+     */
+    public LegalMoveCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a cache holding at most the given number of positions.
+     *
+     * @param capacity the maximum number of cached positions
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public LegalMoveCache(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity + ".");
+        }
+        // segments of at least 16 entries, as many as possible up to the maximum, a power of two
+        final int segmentCount = Math.min(MAX_SEGMENT_COUNT, Integer.highestOneBit(Math.max(1, capacity / 16)));
+        this.segments = new Segment[segmentCount];
+        final int segmentCapacity = capacity / segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            // spread the remainder so that the capacities add up to capacity
+            segments[i] = new Segment(segmentCapacity + (i < capacity % segmentCount ? 1 : 0));
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the legal moves of the given position, generating and caching
+     * them if they are not cached yet.
+     *
+     * @param position the position
+     * @return the unmodifiable set of legal moves
+     */
+    @NotNull
+    public Set<Move> get(@NotNull final Position position) {
+        final Segment segment = segmentFor(position);
+        final Set<Move> cached = segment.get(position);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        // generate outside the lock; if another thread raced us, keep its set
+        final MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, moves);
+        final Set<Move> legalMoves = Collections.unmodifiableSet(moves.toMoveSet());
+        return segment.putIfAbsent(position, legalMoves, evictions);
+    }
+
+    /**
+     * Returns the cached legal moves of the given position, without
+     * generating them.
+     *
+     * @param position the position
+     * @return the unmodifiable set of legal moves, or null if they are not
+     *         cached
+     */
+    @Nullable
+    public Set<Move> getIfPresent(@NotNull final Position position) {
+        final Set<Move> cached = segmentFor(position).get(position);
+        if (cached != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return cached;
+    }
+
+    /**
+     * Removes all entries. The counters are not reset.
+     */
+    public void clear() {
+        for (final Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Returns the number of cached positions.
+     *
+     * @return the number of cached positions
+     */
+    public int size() {
+        int size = 0;
+        for (final Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of cached positions.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of lookups that found the position.
+     *
+     * @return the number of hits
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that did not find the position.
+     *
+     * @return the number of misses
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of entries evicted to make room for new ones.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "LegalMoveCache{size=" + size() + ", capacity=" + capacity + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "}";
+    }
+
+    private Segment segmentFor(final Position position) {
+        // the high bits, since the segment maps hash on the low ones
+        return segments[(int) (position.getZobristKey() >>> 32) & (segments.length - 1)];
+    }
+
+    private static final class Segment {
+
+        @GuardedBy("this")
+        private final Position[] positions;
+        @GuardedBy("this")
+        private final Object[] legalMoves;
+        @GuardedBy("this")
+        private final boolean[] referenced;
+        @GuardedBy("this")
+        private final Map<Position, Integer> slots;
+        @GuardedBy("this")
+        private int size;
+        @GuardedBy("this")
+        private int hand;
+
+        Segment(final int capacity) {
+            this.positions = new Position[capacity];
+            this.legalMoves = new Object[capacity];
+            this.referenced = new boolean[capacity];
+            this.slots = new HashMap<>(capacity * 4 / 3 + 1);
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized Set<Move> get(final Position position) {
+            final Integer slot = slots.get(position);
+            if (slot == null) {
+                return null;
+            }
+            referenced[slot] = true;
+            return (Set<Move>) legalMoves[slot];
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized Set<Move> putIfAbsent(final Position position, final Set<Move> moves,
+                                           final LongAdder evictions) {
+            final Integer existing = slots.get(position);
+            if (existing != null) {
+                return (Set<Move>) legalMoves[existing];
+            }
+
+            final int slot;
+            if (size < positions.length) {
+                slot = size++;
+            } else {
+                // advance the clock hand, clearing reference bits, to the first unreferenced entry
+                while (referenced[hand]) {
+                    referenced[hand] = false;
+                    hand = (hand + 1) % positions.length;
+                }
+                slot = hand;
+                hand = (hand + 1) % positions.length;
+                slots.remove(positions[slot]);
+                evictions.increment();
+            }
+            positions[slot] = position;
+            legalMoves[slot] = moves;
+            referenced[slot] = false;
+            slots.put(position, slot);
+            return moves;
+        }
+
+        synchronized void clear() {
+            slots.clear();
+            Arrays.fill(positions, null);
+            Arrays.fill(legalMoves, null);
+            Arrays.fill(referenced, false);
+            size = 0;
+            hand = 0;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+    }
+}
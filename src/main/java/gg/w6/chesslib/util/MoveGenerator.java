@@ -1,6 +1,7 @@
 package gg.w6.chesslib.util;
 
-import java.util.HashSet;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Set;
 
 import gg.w6.chesslib.model.*;
@@ -11,20 +12,84 @@ import org.jetbrains.annotations.NotNull;
  * This class is a static utility class for generating and getting the legal
  * moves of a position. It is not instantiable.
  *
- * <p>The only public member of this class is {@link #getLegalMoves(Position)}.</p>
+ * <p>{@link #getLegalMoves(Position)} returns the legal moves as a set of
+ * {@link Move}s. Callers generating moves at a high rate should instead use
+ * {@link #generateLegalMoves(BoardState, MoveList)} with a reused
+ * {@link MoveList}, which does not allocate.</p>
  */
 public final class MoveGenerator {
-    
+
+    /**
+     * The squares the white king stands on, passes through and lands on when
+     * castling kingside. None of them may be attacked.
+     */
+    private static final long WHITE_KINGSIDE_CASTLE_PATH = 0x70L; // e1, f1, g1
+
+    /**
+     * The squares the white king stands on, passes through and lands on when
+     * castling queenside. None of them may be attacked.
+     */
+    private static final long WHITE_QUEENSIDE_CASTLE_PATH = 0x1CL; // c1, d1, e1
+
+    /**
+     * The squares the black king stands on, passes through and lands on when
+     * castling kingside. None of them may be attacked.
+     */
+    private static final long BLACK_KINGSIDE_CASTLE_PATH = WHITE_KINGSIDE_CASTLE_PATH << 56; // e8, f8, g8
+
+    /**
+     * The squares the black king stands on, passes through and lands on when
+     * castling queenside. None of them may be attacked.
+     */
+    private static final long BLACK_QUEENSIDE_CASTLE_PATH = WHITE_QUEENSIDE_CASTLE_PATH << 56; // c8, d8, e8
+
+    /**
+     * The squares between the white king and rook when castling kingside.
+     * All of them must be empty.
+     */
+    private static final long WHITE_KINGSIDE_CASTLE_GAP = 0x60L; // f1, g1
+
+    /**
+     * The squares between the white king and rook when castling queenside.
+     * All of them must be empty.
+     */
+    private static final long WHITE_QUEENSIDE_CASTLE_GAP = 0x0EL; // b1, c1, d1
+
+    /**
+     * The squares between the black king and rook when castling kingside.
+     * All of them must be empty.
+     */
+    private static final long BLACK_KINGSIDE_CASTLE_GAP = WHITE_KINGSIDE_CASTLE_GAP << 56; // f8, g8
+
+    /**
+     * The squares between the black king and rook when castling queenside.
+     * All of them must be empty.
+     */
+    private static final long BLACK_QUEENSIDE_CASTLE_GAP = WHITE_QUEENSIDE_CASTLE_GAP << 56; // b8, c8, d8
+
+    /**
+     * The piece types a pawn may promote to, in the order promotions are
+     * generated.
+     */
+    private static final PieceType[] PROMOTION_TYPES = {
+            PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT };
+
     /**
      * Get the legal moves for the supplied {@link Position}.
      *
+     * <p>The moves are generated on every call. To ask the same position
+     * repeatedly, use {@link Position#getLegalMoves()}, which memoizes them on
+     * the instance, and to share them between equal positions, such as
+     * transpositions, use a {@link LegalMoveCache}.</p>
+     *
      * @param position the {@link Position} to find the legal moves for
-     * @return the set of legal {@link Move}s
+     * @return the new, modifiable set of legal {@link Move}s
      */
     @NotNull
     public static Set<Move> getLegalMoves(@NotNull final Position position) {
-        // TODO: memoize
-        return MoveGenerator.generateLegalMoves(position);
+        final MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, moves);
+        return moves.toMoveSet();
     }
 
     /**
@@ -34,38 +99,124 @@ public final class MoveGenerator {
      *
      * @param position position the {@link Position} to determine the number of legal moves for
      * @return <code>true</code> if there is >= 1 legal moves, <code>false</code> otherwise.
+     * @see #hasLegalMoves(BoardState)
      */
     public static boolean oneOrMoreLegalMoves(final Position position) {
-        for (final Move move : generatePseudoLegalMoves(position)) {
-            final Position newPosition = position.applyTo(move);
-            // find the notToMoveKing
-            Coordinate notToMoveKingCoordinate = null;
-            final Color toMove = newPosition.getToMove();
-            final Color notToMove = toMove == Color.WHITE ? Color.BLACK : Color.WHITE;
-            outerloop:
-            for (int fileIndex = 0; fileIndex < File.COUNT; fileIndex++) {
-                for (int rankIndex = 0; rankIndex < Rank.COUNT; rankIndex++) {
-                    final Coordinate candidateCoordinate = Coordinate.valueOf(fileIndex, rankIndex);
-                    final Piece candidate = newPosition.getSquare(candidateCoordinate).getPiece();
-                    if (candidate instanceof final King king && king.getColor() == notToMove) {
-                        notToMoveKingCoordinate = candidateCoordinate;
-                        break outerloop;
-                    }
-                }
+        return MoveGenerator.hasLegalMoves(position);
+    }
+
+    /**
+     * Determines whether the side to move has at least one legal move,
+     * stopping at the first one found.
+     *
+     * <p>King moves are tried first, each by looking for attackers of its
+     * target square. In check, only the evasions are then considered:
+     * capturing the single checker and interposing on the checking ray. Out
+     * of check, any unpinned pawn push or unpinned piece move settles it.
+     * Only when all of these fail, as in nearly blocked positions, are the
+     * moves counted in full. This method does not allocate.</p>
+     *
+     * @param position the {@link Position} or {@link Board} to check
+     * @return <code>true</code> if there is a legal move
+     */
+    public static boolean hasLegalMoves(@NotNull final BoardState position) {
+        final Color us = position.getToMove();
+        final Color them = us == Color.WHITE ? Color.BLACK : Color.WHITE;
+        final int kingSquare = position.getKingSquare(us);
+        if (kingSquare == Bitboards.NO_SQUARE) {
+            return MoveGenerator.countLegalMoves(position) != 0;
+        }
+
+        final long occupied = position.getOccupancy();
+        final long ours = position.getOccupancy(us);
+        final long kingBit = Bitboards.bit(kingSquare);
+        for (long targets = Attacks.kingAttacks(kingSquare) & ~ours; targets != 0; targets &= targets - 1) {
+            if (Attacks.attackersTo(position, Long.numberOfTrailingZeros(targets), them, occupied ^ kingBit) == 0) {
+                return true;
             }
-            if (notToMoveKingCoordinate == null) {
-                continue;
+        }
+
+        final long checkers = Attacks.attackersTo(position, kingSquare, them, occupied);
+        if ((checkers & (checkers - 1)) != 0) {
+            return false; // double check: only the king may move
+        }
+
+        final long theirs = position.getOccupancy(them);
+        final long theirQueens = position.getBitboard(them, PieceType.QUEEN);
+        final long snipers = (Attacks.rookAttacks(kingSquare, theirs)
+                        & (position.getBitboard(them, PieceType.ROOK) | theirQueens))
+                | (Attacks.bishopAttacks(kingSquare, theirs)
+                        & (position.getBitboard(them, PieceType.BISHOP) | theirQueens));
+        long pinned = 0L;
+        for (long pieces = snipers; pieces != 0; pieces &= pieces - 1) {
+            final long blockers = Attacks.between(kingSquare, Long.numberOfTrailingZeros(pieces)) & occupied;
+            if ((blockers & (blockers - 1)) == 0 && (blockers & ours) != 0) {
+                pinned |= blockers;
             }
-            if (!Positions.isTargetedByColor(notToMoveKingCoordinate, toMove, newPosition)) {
+        }
+        // a pinned piece can never resolve a check, and is left to the full count otherwise
+        final long movers = ours & ~pinned & ~kingBit;
+        final long pawns = position.getBitboard(us, PieceType.PAWN) & movers;
+        final long empty = ~occupied;
+
+        if (checkers != 0) {
+            final int checkerSquare = Long.numberOfTrailingZeros(checkers);
+            if ((Attacks.attackersTo(position, checkerSquare, us, occupied) & movers) != 0) {
                 return true;
             }
+            for (long blocks = Attacks.between(kingSquare, checkerSquare); blocks != 0; blocks &= blocks - 1) {
+                final int blockSquare = Long.numberOfTrailingZeros(blocks);
+                final long pieceBlockers = Attacks.attackersTo(position, blockSquare, us, occupied)
+                        & movers & ~pawns;
+                // pawns behind the square, seen from the square by a pawn push of the opponent
+                final long behind = Attacks.pawnPushes(them, blockSquare);
+                long pawnBlockers = behind & pawns;
+                if ((behind & empty) != 0
+                        && Bitboards.rankIndex(blockSquare) == (us == Color.WHITE ? 3 : Rank.COUNT - 4)) {
+                    pawnBlockers |= Attacks.pawnPushes(them, Long.numberOfTrailingZeros(behind)) & pawns;
+                }
+                if ((pieceBlockers | pawnBlockers) != 0) {
+                    return true;
+                }
+            }
+            return MoveGenerator.addLegalEnPassantMoves(position, null, null, us, them, kingSquare,
+                    checkers | Attacks.between(kingSquare, checkerSquare)) != 0;
         }
 
-        return false;
+        final long pushed = us == Color.WHITE ? pawns << File.COUNT : pawns >>> File.COUNT;
+        if ((pushed & empty) != 0) {
+            return true;
+        }
+        for (long pieces = movers & ~pawns; pieces != 0; pieces &= pieces - 1) {
+            final int squareIndex = Long.numberOfTrailingZeros(pieces);
+            if ((Attacks.pieceAttacks(position.getPieceIndex(squareIndex), squareIndex, occupied) & ~ours) != 0) {
+                return true;
+            }
+        }
+        for (long pieces = pawns; pieces != 0; pieces &= pieces - 1) {
+            if ((Attacks.pawnAttacks(us, Long.numberOfTrailingZeros(pieces)) & theirs) != 0) {
+                return true;
+            }
+        }
+        return MoveGenerator.countLegalMoves(position) != 0;
     }
 
-    private static Set<Move> generatePseudoLegalMoves(final Position position) {
-        final Set<Move> moves = new HashSet<>();
+    /**
+     * Generates the pseudo-legal moves of the given position: moves that obey
+     * the movement rules of each piece, but may leave the mover's king in
+     * check. Castling is only generated if the king's path is not attacked.
+     *
+     * <p>The moves are appended to <code>moves</code>, which is not cleared
+     * first. Apart from growing <code>moves</code> beyond its capacity, this
+     * method does not allocate.</p>
+     *
+     * @param position the {@link Position} or {@link Board} to generate the
+     *                 pseudo-legal moves for
+     * @param moves the list the {@link PackedMove packed moves} are appended to
+     * @return the number of moves appended
+     */
+    public static int generatePseudoLegalMoves(@NotNull final BoardState position, @NotNull final MoveList moves) {
+        final int initialSize = moves.size();
         final CastlingRights castlingRights = position.getCastlingRights();
         final Color toMove = position.getToMove();
 
@@ -74,196 +225,692 @@ public final class MoveGenerator {
         boolean canBlackCastleKingside = castlingRights.blackKingside();
         boolean canBlackCastleQueenside = castlingRights.blackQueenside();
 
-        for (int fileIndex = 0; fileIndex < File.COUNT; fileIndex++) {
-            for (int rankIndex = 0; rankIndex < Rank.COUNT; rankIndex++) {
-                final Square square = position.getSquare(fileIndex, rankIndex);
-                final Piece piece = square.getPiece();
-                if (piece == null) continue;
-
-                final Color pieceColor = piece.getColor();
-                final Coordinate origin = Coordinate.valueOf(fileIndex, rankIndex);
-                boolean castleCheck = false;
-
-                if (pieceColor != toMove) {
-                    if (piece instanceof Pawn
-                            || toMove == Color.WHITE && !canWhiteCastleKingside && !canWhiteCastleQueenside
-                            || toMove == Color.BLACK && !canBlackCastleKingside && !canBlackCastleQueenside) {
-                        continue;
-                    }
-                    castleCheck = true;
+        final long allOccupancy = position.getOccupancy();
+        final long ownOccupancy = position.getOccupancy(toMove);
+
+        for (long occupancy = allOccupancy; occupancy != 0; occupancy &= occupancy - 1) {
+            final int squareIndex = Long.numberOfTrailingZeros(occupancy);
+            final int pieceIndex = position.getPieceIndex(squareIndex);
+            final PieceType pieceType = Bitboards.pieceTypeOf(pieceIndex);
+            boolean castleCheck = false;
+
+            if (Bitboards.colorOf(pieceIndex) != toMove) {
+                if (pieceType == PieceType.PAWN
+                        || toMove == Color.WHITE && !canWhiteCastleKingside && !canWhiteCastleQueenside
+                        || toMove == Color.BLACK && !canBlackCastleKingside && !canBlackCastleQueenside) {
+                    continue;
                 }
+                castleCheck = true;
+            }
+
+            if (pieceType != PieceType.PAWN) {
+                final long vision = Attacks.pieceAttacks(pieceIndex, squareIndex, allOccupancy);
 
-                if (piece instanceof final Rider rider) {
-                    final int range = rider.getRange();
-                    for (final Offset offset : rider.getOffsets()) {
-                        for (final Coordinate target : offset.extendFrom(origin, range)) {
-                            final Piece targetPiece = position.getSquare(target).getPiece();
-
-                            if (!castleCheck) {
-                                if (targetPiece == null || targetPiece.getColor() != toMove) {
-                                    moves.add(new Move(origin, target, MoveType.NORMAL, null));
-                                }
-                            } else {
-                                if (toMove == Color.WHITE) {
-                                    if (canWhiteCastleKingside) {
-                                        canWhiteCastleKingside = MoveGenerator.notOnCastlePath(target, 4, 0, 5, 0, 6, 0);
-                                    }
-                                    if (canWhiteCastleQueenside) {
-                                        canWhiteCastleQueenside = MoveGenerator.notOnCastlePath(target, 4, 0, 3, 0, 2, 0);
-                                    }
-                                } else {
-                                    if (canBlackCastleKingside) {
-                                        canBlackCastleKingside = MoveGenerator.notOnCastlePath(target, 4, 7, 5, 7, 6, 7);
-                                    }
-                                    if (canBlackCastleQueenside) {
-                                        canBlackCastleQueenside = MoveGenerator.notOnCastlePath(target, 4, 7, 3, 7, 2, 7);
-                                    }
-                                }
-                            }
-
-                            if (targetPiece != null) break;
-                        }
+                if (!castleCheck) {
+                    for (long targets = vision & ~ownOccupancy; targets != 0; targets &= targets - 1) {
+                        moves.add(PackedMove.of(squareIndex, Long.numberOfTrailingZeros(targets),
+                                MoveType.NORMAL, null));
                     }
+                } else if (toMove == Color.WHITE) {
+                    canWhiteCastleKingside &= (vision & WHITE_KINGSIDE_CASTLE_PATH) == 0;
+                    canWhiteCastleQueenside &= (vision & WHITE_QUEENSIDE_CASTLE_PATH) == 0;
                 } else {
-                    MoveGenerator.processPawnMoves(position, moves, toMove, fileIndex, rankIndex, origin);
+                    canBlackCastleKingside &= (vision & BLACK_KINGSIDE_CASTLE_PATH) == 0;
+                    canBlackCastleQueenside &= (vision & BLACK_QUEENSIDE_CASTLE_PATH) == 0;
                 }
+            } else {
+                MoveGenerator.processPawnMoves(position, moves, toMove, squareIndex);
             }
         }
 
         MoveGenerator.checkPawnThreatsAndAddCastlingMoves(position, moves, canWhiteCastleKingside, canWhiteCastleQueenside,
                 canBlackCastleKingside, canBlackCastleQueenside);
 
-        return moves;
+        return moves.size() - initialSize;
     }
 
-    private static void processPawnMoves(final Position position, final Set<Move> moves, final Color toMove,
-                                         final int fileIndex, final int rankIndex, final Coordinate origin) {
-        final int direction = toMove == Color.WHITE ? 1 : -1;
+    private static void processPawnMoves(final BoardState position, final MoveList moves, final Color toMove,
+                                         final int squareIndex) {
+        final int rankIndex = Bitboards.rankIndex(squareIndex);
         final int startRank = toMove == Color.WHITE ? 1 : Rank.COUNT - 2;
-    
-        final Coordinate forwardOne = Coordinate.valueOf(fileIndex, rankIndex + direction);
-        if (position.getSquare(forwardOne).getPiece() == null) {
-            MoveGenerator.addPawnMovePromotionPossible(moves, toMove, origin, forwardOne);
+        final long empty = ~position.getOccupancy();
+
+        final long forwardOne = Attacks.pawnPushes(toMove, squareIndex) & empty;
+        if (forwardOne != 0) {
+            final int forwardOneIndex = Long.numberOfTrailingZeros(forwardOne);
+            MoveGenerator.addPawnMovePromotionPossible(moves, squareIndex, forwardOneIndex);
             if (rankIndex == startRank) {
-                final Coordinate forwardTwo = Coordinate.valueOf(fileIndex, rankIndex + 2 * direction);
-                if (position.getSquare(forwardTwo).getPiece() == null) {
-                    moves.add(new Move(origin, forwardTwo, MoveType.NORMAL, null));
+                final long forwardTwo = Attacks.pawnPushes(toMove, forwardOneIndex) & empty;
+                if (forwardTwo != 0) {
+                    moves.add(PackedMove.of(squareIndex, Long.numberOfTrailingZeros(forwardTwo),
+                            MoveType.NORMAL, null));
                 }
             }
         }
-    
-        for (int dx = -1; dx <= 1; dx += 2) {
-            final int targetFile = fileIndex + dx;
-            if (targetFile >= 0 && targetFile < File.COUNT) {
-                final Coordinate target = Coordinate.valueOf(targetFile, rankIndex + direction);
-                final Piece targetPiece = position.getSquare(target).getPiece();
-                if (targetPiece != null && targetPiece.getColor() != toMove) {
-                    MoveGenerator.addPawnMovePromotionPossible(moves, toMove, origin, target);
-                }
-            }
+
+        final Color opponent = toMove == Color.WHITE ? Color.BLACK : Color.WHITE;
+        for (long targets = Attacks.pawnAttacks(toMove, squareIndex) & position.getOccupancy(opponent);
+                targets != 0; targets &= targets - 1) {
+            MoveGenerator.addPawnMovePromotionPossible(moves, squareIndex, Long.numberOfTrailingZeros(targets));
         }
     
         final Coordinate enPassantTarget = position.getEnPassantTarget();
         if (rankIndex == (toMove == Color.WHITE ? Rank.COUNT - 4 : 3) && enPassantTarget != null) {
-            if (Math.abs(fileIndex - enPassantTarget.getFile().ordinal()) == 1) {
-                moves.add(new Move(origin, enPassantTarget, MoveType.EN_PASSANT, null));
+            final int targetSquare = enPassantTarget.getSquareIndex();
+            if ((Attacks.pawnAttacks(toMove, squareIndex) & Bitboards.bit(targetSquare)) != 0) {
+                moves.add(PackedMove.of(squareIndex, targetSquare, MoveType.EN_PASSANT, null));
             }
         }
     }
 
-    private static void addPawnMovePromotionPossible(final Set<Move> moves, final Color pawnColor,
-            final Coordinate from, final Coordinate to) {
-    
-        if (to.getRank() == (pawnColor == Color.WHITE ? Rank.EIGHT : Rank.ONE)) {
-            for (final Piece promotionPiece : Pieces.PROMOTION_CANDIDATES.get(pawnColor)) {
-                moves.add(new Move(from, to, MoveType.PROMOTION, promotionPiece));
+    private static void addPawnMovePromotionPossible(final MoveList moves, final int from, final int to) {
+        final int toRank = Bitboards.rankIndex(to);
+        if (toRank == 0 || toRank == Rank.COUNT - 1) {
+            for (final PieceType promotionType : PROMOTION_TYPES) {
+                moves.add(PackedMove.of(from, to, MoveType.PROMOTION, promotionType));
             }
         } else {
-            moves.add(new Move(from, to, MoveType.NORMAL, null));
+            moves.add(PackedMove.of(from, to, MoveType.NORMAL, null));
         }
     }
 
-    private static void checkPawnThreatsAndAddCastlingMoves(final Position position, final Set<Move> moves,
+    private static void checkPawnThreatsAndAddCastlingMoves(final BoardState position, final MoveList moves,
             final boolean canWhiteCastleKingside, final boolean canWhiteCastleQueenside,
             final boolean canBlackCastleKingside, final boolean canBlackCastleQueenside) {
     
-        Move move;
+        int move;
     
         move = MoveGenerator.checkPawnThreatsForCastling(position, Color.WHITE, canWhiteCastleKingside,
-                new int[] { 5, 6 }, new int[] { 3, 4, 5, 6 }, 0, 6); // White kingside
-        if (move != null) moves.add(move);
+                WHITE_KINGSIDE_CASTLE_GAP, WHITE_KINGSIDE_CASTLE_PATH, 0, 6); // White kingside
+        if (move != PackedMove.NONE) moves.add(move);
     
         move = MoveGenerator.checkPawnThreatsForCastling(position, Color.WHITE, canWhiteCastleQueenside,
-                new int[] { 1, 2, 3 }, new int[] { 2, 3, 4, 5 }, 0, 2); // White queenside
-        if (move != null) moves.add(move);
+                WHITE_QUEENSIDE_CASTLE_GAP, WHITE_QUEENSIDE_CASTLE_PATH, 0, 2); // White queenside
+        if (move != PackedMove.NONE) moves.add(move);
     
         move = MoveGenerator.checkPawnThreatsForCastling(position, Color.BLACK, canBlackCastleKingside,
-                new int[] { 5, 6 }, new int[] { 3, 4, 5, 6 }, 7, 6); // Black kingside
-        if (move != null) moves.add(move);
+                BLACK_KINGSIDE_CASTLE_GAP, BLACK_KINGSIDE_CASTLE_PATH, 7, 6); // Black kingside
+        if (move != PackedMove.NONE) moves.add(move);
     
         move = MoveGenerator.checkPawnThreatsForCastling(position, Color.BLACK, canBlackCastleQueenside,
-                new int[] { 1, 2, 3 }, new int[] { 2, 3, 4, 5 }, 7, 2); // Black queenside
-        if (move != null) moves.add(move);
+                BLACK_QUEENSIDE_CASTLE_GAP, BLACK_QUEENSIDE_CASTLE_PATH, 7, 2); // Black queenside
+        if (move != PackedMove.NONE) moves.add(move);
     }
 
-    private static Move checkPawnThreatsForCastling(final Position position, final Color color, final boolean canCastle,
-                                                    final int[] emptyFileIndices, final int[] pawnCheckFiles, final int rank, final int targetFile) {
+    private static int checkPawnThreatsForCastling(final BoardState position, final Color color, final boolean canCastle,
+                                                   final long gap, final long kingPath, final int rank, final int targetFile) {
     
         if (!canCastle || position.getToMove() != color)
-            return null;
-    
-        for (final int file : emptyFileIndices) {
-            if (!position.getSquare(Coordinate.valueOf(file, rank)).isEmpty())
-                return null;
+            return PackedMove.NONE;
+
+        if ((position.getOccupancy() & gap) != 0)
+            return PackedMove.NONE;
+
+        final long enemyPawns = position.getBitboard(color == Color.WHITE ? Color.BLACK : Color.WHITE, PieceType.PAWN);
+
+        for (long path = kingPath; path != 0; path &= path - 1) {
+            if ((Attacks.pawnAttacks(color, Long.numberOfTrailingZeros(path)) & enemyPawns) != 0)
+                return PackedMove.NONE;
         }
     
-        final int pawnRank = rank + (color == Color.WHITE ? 1 : -1);
-    
-        for (final int file : pawnCheckFiles) {
-            final Piece piece = position.getSquare(file, pawnRank).getPiece();
-            if (piece != null && piece.getColor() != color && piece instanceof Pawn)
-                return null;
+        return PackedMove.of(Bitboards.squareIndex(4, rank), Bitboards.squareIndex(targetFile, rank),
+                MoveType.CASTLING, null);
+    }
+
+    /**
+     * Generates the legal moves of the given position directly, without
+     * applying any move.
+     *
+     * <p>The checkers, the pinned pieces and the squares attacked by the
+     * opponent with the king lifted off the board are computed once. Every
+     * non-king move is then restricted to the check mask (the checker and the
+     * squares between it and the king) and, for a pinned piece, to its pin
+     * ray. King moves are restricted to squares the opponent does not attack.
+     * En passant is verified separately, since removing two pawns from a rank
+     * can expose the king to a slider.</p>
+     *
+     * <p>If the side to move has no king, no move can leave it in check, and
+     * the pseudo-legal moves are generated.</p>
+     *
+     * <p>The moves are appended to <code>moves</code>, which is not cleared
+     * first. Apart from growing <code>moves</code> beyond its capacity, this
+     * method does not allocate.</p>
+     *
+     * @param position the {@link Position} or {@link Board} to generate the
+     *                 legal moves for
+     * @param moves the list the {@link PackedMove packed moves} are appended to
+     * @return the number of moves appended
+     */
+    public static int generateLegalMoves(@NotNull final BoardState position, @NotNull final MoveList moves) {
+        return MoveGenerator.generateLegalMoves(position, moves, null, true, true);
+    }
+
+    /**
+     * Generates the legal captures, en passant captures and promotions of the
+     * given position. Together with
+     * {@link #generateLegalQuiets(BoardState, MoveList)}, this generates
+     * exactly the moves of {@link #generateLegalMoves(BoardState, MoveList)}.
+     *
+     * <p>The moves are appended to <code>moves</code>, which is not cleared
+     * first.</p>
+     *
+     * @param position the {@link Position} or {@link Board} to generate the
+     *                 moves for
+     * @param moves the list the {@link PackedMove packed moves} are appended to
+     * @return the number of moves appended
+     */
+    public static int generateLegalCaptures(@NotNull final BoardState position, @NotNull final MoveList moves) {
+        return MoveGenerator.generateLegalMoves(position, moves, null, true, false);
+    }
+
+    /**
+     * Generates the legal moves of the given position that neither capture
+     * nor promote, including castling.
+     *
+     * <p>The moves are appended to <code>moves</code>, which is not cleared
+     * first.</p>
+     *
+     * @param position the {@link Position} or {@link Board} to generate the
+     *                 moves for
+     * @param moves the list the {@link PackedMove packed moves} are appended to
+     * @return the number of moves appended
+     * @see #generateLegalCaptures(BoardState, MoveList)
+     */
+    public static int generateLegalQuiets(@NotNull final BoardState position, @NotNull final MoveList moves) {
+        return MoveGenerator.generateLegalMoves(position, moves, null, false, true);
+    }
+
+    /**
+     * Returns whether the given move, about to be made on the given position,
+     * captures or promotes. These are the moves generated by
+     * {@link #generateLegalCaptures(BoardState, MoveList)}.
+     *
+     * @param position the position before the move
+     * @param packedMove the {@link PackedMove packed move}
+     * @return <code>true</code> if the move is a capture or a promotion
+     */
+    public static boolean isTactical(@NotNull final BoardState position, final int packedMove) {
+        final MoveType moveType = PackedMove.moveType(packedMove);
+        return moveType == MoveType.PROMOTION || moveType == MoveType.EN_PASSANT
+                || moveType != MoveType.CASTLING
+                        && position.getPieceIndex(PackedMove.to(packedMove)) != Bitboards.NO_PIECE;
+    }
+
+    /**
+     * Returns whether the given move is legal in the given position, that is
+     * whether {@link #generateLegalMoves(BoardState, MoveList)} generates it.
+     *
+     * <p>Only the given move is examined: the piece must be able to reach the
+     * target, the target must resolve a check, a pinned piece must stay on
+     * the line through it and the king, and the king must not move onto an
+     * attacked square or castle without the right, through pieces or through
+     * an attacked square. Apart from the rare positions without a king of the
+     * side to move, this method does not allocate, which makes it suitable
+     * for checking a move from elsewhere, such as a hash move or a parsed
+     * SAN.</p>
+     *
+     * @param position the position before the move
+     * @param packedMove the {@link PackedMove packed move}
+     * @return <code>true</code> if the move is legal
+     */
+    public static boolean isLegal(@NotNull final BoardState position, final int packedMove) {
+        final int from = PackedMove.from(packedMove);
+        final int to = PackedMove.to(packedMove);
+        final MoveType moveType = PackedMove.moveType(packedMove);
+        if (from == to || packedMove != PackedMove.of(from, to, moveType, PackedMove.promotionType(packedMove))) {
+            return false;
         }
-    
-        return new Move(Coordinate.valueOf(4, rank), Coordinate.valueOf(targetFile, rank), MoveType.CASTLING, null);
+
+        final Color us = position.getToMove();
+        final Color them = us == Color.WHITE ? Color.BLACK : Color.WHITE;
+        final int pieceIndex = position.getPieceIndex(from);
+        final long toBit = Bitboards.bit(to);
+        if (pieceIndex == Bitboards.NO_PIECE || Bitboards.colorOf(pieceIndex) != us
+                || (position.getOccupancy(us) & toBit) != 0) {
+            return false;
+        }
+
+        final int kingSquare = position.getKingSquare(us);
+        if (kingSquare == Bitboards.NO_SQUARE) {
+            final MoveList moves = new MoveList();
+            MoveGenerator.generateKinglessMoves(position, moves, null, true, true);
+            return moves.contains(packedMove);
+        }
+
+        final long occupied = position.getOccupancy();
+        final PieceType pieceType = Bitboards.pieceTypeOf(pieceIndex);
+        if (pieceType == PieceType.KING) {
+            if (moveType == MoveType.CASTLING) {
+                return MoveGenerator.isLegalCastling(position, us, them, kingSquare, to);
+            }
+            // with our king removed, so that it cannot step back along a checking ray
+            return moveType == MoveType.NORMAL && (Attacks.kingAttacks(from) & toBit) != 0
+                    && Attacks.attackersTo(position, to, them, occupied ^ Bitboards.bit(from)) == 0;
+        }
+
+        if (pieceType == PieceType.PAWN) {
+            if (!MoveGenerator.isPawnMove(position, us, them, from, to, moveType, occupied)) {
+                return false;
+            }
+        } else if (moveType != MoveType.NORMAL || (Attacks.pieceAttacks(pieceIndex, from, occupied) & toBit) == 0) {
+            return false;
+        }
+
+        final long checkers = Attacks.attackersTo(position, kingSquare, them, occupied);
+        if ((checkers & (checkers - 1)) != 0) {
+            return false; // double check: only the king may move
+        }
+        final long checkMask = checkers == 0
+                ? Bitboards.ALL
+                : checkers | Attacks.between(kingSquare, Long.numberOfTrailingZeros(checkers));
+        final long theirQueens = position.getBitboard(them, PieceType.QUEEN);
+        final long theirRookMovers = position.getBitboard(them, PieceType.ROOK) | theirQueens;
+        final long theirBishopMovers = position.getBitboard(them, PieceType.BISHOP) | theirQueens;
+
+        if (moveType == MoveType.EN_PASSANT) {
+            final int capturedSquare = to + (us == Color.WHITE ? -File.COUNT : File.COUNT);
+            if ((checkMask & (toBit | Bitboards.bit(capturedSquare))) == 0) {
+                return false;
+            }
+            // both pawns leave their squares, which may uncover a slider
+            final long occupiedAfter = (occupied & ~Bitboards.bit(from) & ~Bitboards.bit(capturedSquare)) | toBit;
+            return (Attacks.rookAttacks(kingSquare, occupiedAfter) & theirRookMovers) == 0
+                    && (Attacks.bishopAttacks(kingSquare, occupiedAfter) & theirBishopMovers) == 0;
+        }
+
+        if ((checkMask & toBit) == 0) {
+            return false;
+        }
+        // a piece on a line with the king may only leave it if no slider is behind it
+        final long line = Attacks.line(kingSquare, from);
+        if (line == 0 || (line & toBit) != 0) {
+            return true;
+        }
+        final long occupiedWithout = occupied ^ Bitboards.bit(from);
+        final long sliders = (Attacks.rookAttacks(kingSquare, occupiedWithout) & theirRookMovers)
+                | (Attacks.bishopAttacks(kingSquare, occupiedWithout) & theirBishopMovers);
+        return (sliders & line) == 0;
+    }
+
+    /**
+     * Counts the legal moves of the given position without generating them.
+     *
+     * <p>The count is taken from the sizes of the target sets of the pieces,
+     * restricted by checks and pins, so apart from the rare positions
+     * without a king of the side to move, this method does not allocate.</p>
+     *
+     * @param position the {@link Position} or {@link Board} to count the
+     *                 legal moves of
+     * @return the number of legal moves
+     */
+    public static int countLegalMoves(@NotNull final BoardState position) {
+        return MoveGenerator.generateLegalMoves(position, null, null, true, true);
     }
 
-    private static boolean notOnCastlePath(final Coordinate target, final int... squares) {
-        for (int i = 0; i < squares.length; i += 2) {
-            if (target.equals(Coordinate.valueOf(squares[i], squares[i + 1]))) {
+    /**
+     * Counts the legal moves of the given position per type of the moving
+     * piece, without generating them. Castling counts as a king move, and
+     * every promotion choice counts as a pawn move.
+     *
+     * <p>The counts are added to <code>countsByPieceType</code>, indexed by
+     * {@link PieceType#ordinal()}, which is not cleared first.</p>
+     *
+     * @param position the {@link Position} or {@link Board} to count the
+     *                 legal moves of
+     * @param countsByPieceType the array of at least {@link PieceType#COUNT}
+     *                          counts to add to
+     * @return the total number of legal moves
+     */
+    public static int countLegalMoves(@NotNull final BoardState position, final int @NotNull [] countsByPieceType) {
+        return MoveGenerator.generateLegalMoves(position, null, countsByPieceType, true, true);
+    }
+
+    /**
+     * Counts the legal moves of the given position per type of the moving
+     * piece, without generating them.
+     *
+     * @param position the {@link Position} or {@link Board} to count the
+     *                 legal moves of
+     * @return a map from every {@link PieceType} to its number of legal moves
+     * @see #countLegalMoves(BoardState, int[])
+     */
+    @NotNull
+    public static Map<PieceType, Integer> countLegalMovesByPieceType(@NotNull final BoardState position) {
+        final int[] counts = new int[PieceType.COUNT];
+        MoveGenerator.countLegalMoves(position, counts);
+        final Map<PieceType, Integer> countsByPieceType = new EnumMap<>(PieceType.class);
+        for (final PieceType pieceType : PieceType.values()) {
+            countsByPieceType.put(pieceType, counts[pieceType.ordinal()]);
+        }
+        return countsByPieceType;
+    }
+
+    /**
+     * Generates or counts the legal moves of the given position.
+     *
+     * @param moves the list to append the moves to, or null to only count
+     *              them
+     * @param counts the per piece type counts to add to, or null
+     * @param tactical whether to include captures and promotions
+     * @param quiet whether to include the other moves
+     * @return the number of moves
+     */
+    private static int generateLegalMoves(final BoardState position, final MoveList moves, final int[] counts,
+                                          final boolean tactical, final boolean quiet) {
+        final Color us = position.getToMove();
+        final Color them = us == Color.WHITE ? Color.BLACK : Color.WHITE;
+
+        final int kingSquare = position.getKingSquare(us);
+        if (kingSquare == Bitboards.NO_SQUARE) {
+            return MoveGenerator.generateKinglessMoves(position, moves, counts, tactical, quiet);
+        }
+
+        final long kingBit = Bitboards.bit(kingSquare);
+        final long occupied = position.getOccupancy();
+        final long ours = position.getOccupancy(us);
+        final long theirs = position.getOccupancy(them);
+
+        // squares attacked by the opponent, with our king removed so that it
+        // cannot step back along a checking ray
+        long danger = 0L;
+        for (long pieces = theirs; pieces != 0; pieces &= pieces - 1) {
+            final int squareIndex = Long.numberOfTrailingZeros(pieces);
+            danger |= Attacks.pieceAttacks(position.getPieceIndex(squareIndex), squareIndex, occupied ^ kingBit);
+        }
+
+        final long checkers = Attacks.attackersTo(position, kingSquare, them, occupied);
+        final long checkMask;
+        if (checkers == 0) {
+            checkMask = Bitboards.ALL;
+        } else if ((checkers & (checkers - 1)) == 0) {
+            checkMask = checkers | Attacks.between(kingSquare, Long.numberOfTrailingZeros(checkers));
+        } else {
+            checkMask = Bitboards.EMPTY; // double check: only the king may move
+        }
+
+        // pinned pieces, each confined to the line through it and the king
+        final long theirQueens = position.getBitboard(them, PieceType.QUEEN);
+        final long snipers = (Attacks.rookAttacks(kingSquare, theirs)
+                        & (position.getBitboard(them, PieceType.ROOK) | theirQueens))
+                | (Attacks.bishopAttacks(kingSquare, theirs)
+                        & (position.getBitboard(them, PieceType.BISHOP) | theirQueens));
+        long pinned = 0L;
+        for (long pieces = snipers; pieces != 0; pieces &= pieces - 1) {
+            final int sniperSquare = Long.numberOfTrailingZeros(pieces);
+            final long between = Attacks.between(kingSquare, sniperSquare);
+            final long blockers = between & occupied;
+            if ((blockers & (blockers - 1)) == 0 && (blockers & ours) != 0) {
+                pinned |= blockers;
+            }
+        }
+
+        int count = 0;
+        final long empty = ~occupied;
+        final long targetMask = (tactical ? theirs : Bitboards.EMPTY) | (quiet ? empty : Bitboards.EMPTY);
+        for (long pieces = ours; pieces != 0; pieces &= pieces - 1) {
+            final int squareIndex = Long.numberOfTrailingZeros(pieces);
+
+            if (squareIndex == kingSquare) {
+                final long targets = Attacks.kingAttacks(squareIndex) & targetMask & ~danger;
+                count += MoveGenerator.addMoves(moves, counts, PieceType.KING, squareIndex, targets);
+                continue;
+            }
+
+            final long allowed = ((pinned & Bitboards.bit(squareIndex)) == 0
+                    ? checkMask
+                    : checkMask & Attacks.line(kingSquare, squareIndex));
+            if (allowed == 0) {
+                continue;
+            }
+
+            final int pieceIndex = position.getPieceIndex(squareIndex);
+            final PieceType pieceType = Bitboards.pieceTypeOf(pieceIndex);
+            if (pieceType != PieceType.PAWN) {
+                final long targets = Attacks.pieceAttacks(pieceIndex, squareIndex, occupied) & targetMask & allowed;
+                count += MoveGenerator.addMoves(moves, counts, pieceType, squareIndex, targets);
+                continue;
+            }
+
+            // pawn targets, promoting or not
+            long targets = 0L;
+            final long forwardOne = Attacks.pawnPushes(us, squareIndex) & empty;
+            if (forwardOne != 0) {
+                final boolean promotes = (forwardOne & (Bitboards.RANK_1 | Bitboards.RANK_8)) != 0;
+                if (promotes ? tactical : quiet) {
+                    targets |= forwardOne & allowed;
+                }
+                if (quiet && Bitboards.rankIndex(squareIndex) == (us == Color.WHITE ? 1 : Rank.COUNT - 2)) {
+                    targets |= Attacks.pawnPushes(us, Long.numberOfTrailingZeros(forwardOne)) & empty & allowed;
+                }
+            }
+            if (tactical) {
+                targets |= Attacks.pawnAttacks(us, squareIndex) & theirs & allowed;
+            }
+            count += MoveGenerator.addPawnMoves(moves, counts, squareIndex, targets);
+        }
+
+        if (tactical) {
+            count += MoveGenerator.addLegalEnPassantMoves(position, moves, counts, us, them, kingSquare, checkMask);
+        }
+        if (quiet) {
+            count += MoveGenerator.addLegalCastlingMoves(position, moves, counts, us, kingSquare, danger);
+        }
+
+        return count;
+    }
+
+    /**
+     * Generates or counts the moves of a position without a king of the side
+     * to move, for which every pseudo-legal move is legal.
+     */
+    private static int generateKinglessMoves(final BoardState position, final MoveList moves, final int[] counts,
+                                             final boolean tactical, final boolean quiet) {
+        final MoveList target = moves != null ? moves : new MoveList();
+        final int initialSize = target.size();
+        MoveGenerator.generatePseudoLegalMoves(position, target);
+
+        // keep only the requested kind of move
+        int size = initialSize;
+        for (int i = initialSize; i < target.size(); i++) {
+            final int move = target.get(i);
+            if (tactical && quiet || MoveGenerator.isTactical(position, move) == tactical) {
+                target.set(size++, move);
+                if (counts != null) {
+                    counts[Bitboards.pieceTypeOf(position.getPieceIndex(PackedMove.from(move))).ordinal()]++;
+                }
+            }
+        }
+        target.truncate(size);
+        return size - initialSize;
+    }
+
+    /**
+     * Adds a normal move from the given square to each target, if
+     * <code>moves</code> is not null, and counts them.
+     */
+    private static int addMoves(final MoveList moves, final int[] counts, final PieceType pieceType,
+                                final int from, final long targets) {
+        if (moves != null) {
+            for (long remaining = targets; remaining != 0; remaining &= remaining - 1) {
+                moves.add(PackedMove.of(from, Long.numberOfTrailingZeros(remaining), MoveType.NORMAL, null));
+            }
+        }
+        final int count = Long.bitCount(targets);
+        if (counts != null) {
+            counts[pieceType.ordinal()] += count;
+        }
+        return count;
+    }
+
+    /**
+     * Adds the pawn moves from the given square to each target, one per
+     * promotion choice on the last ranks, if <code>moves</code> is not null,
+     * and counts them.
+     */
+    private static int addPawnMoves(final MoveList moves, final int[] counts, final int from, final long targets) {
+        if (moves != null) {
+            for (long remaining = targets; remaining != 0; remaining &= remaining - 1) {
+                MoveGenerator.addPawnMovePromotionPossible(moves, from, Long.numberOfTrailingZeros(remaining));
+            }
+        }
+        final int count = Long.bitCount(targets & ~(Bitboards.RANK_1 | Bitboards.RANK_8))
+                + PROMOTION_TYPES.length * Long.bitCount(targets & (Bitboards.RANK_1 | Bitboards.RANK_8));
+        if (counts != null) {
+            counts[PieceType.PAWN.ordinal()] += count;
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether a pawn of the side to move can make the given move,
+     * ignoring checks and pins.
+     */
+    private static boolean isPawnMove(final BoardState position, final Color us, final Color them, final int from,
+                                      final int to, final MoveType moveType, final long occupied) {
+        final long toBit = Bitboards.bit(to);
+        final long attacks = Attacks.pawnAttacks(us, from);
+        if (moveType == MoveType.EN_PASSANT) {
+            final Coordinate enPassantTarget = position.getEnPassantTarget();
+            final int capturedSquare = to + (us == Color.WHITE ? -File.COUNT : File.COUNT);
+            return enPassantTarget != null && enPassantTarget.getSquareIndex() == to && (attacks & toBit) != 0
+                    && capturedSquare >= 0 && capturedSquare < Bitboards.SQUARE_COUNT;
+        }
+        final boolean promotes = (toBit & (Bitboards.RANK_1 | Bitboards.RANK_8)) != 0;
+        if (moveType == MoveType.CASTLING || promotes != (moveType == MoveType.PROMOTION)) {
+            return false;
+        }
+        if ((attacks & toBit) != 0) {
+            return (position.getOccupancy(them) & toBit) != 0;
+        }
+        final long forwardOne = Attacks.pawnPushes(us, from) & ~occupied;
+        if ((forwardOne & toBit) != 0) {
+            return true;
+        }
+        return forwardOne != 0 && Bitboards.rankIndex(from) == (us == Color.WHITE ? 1 : Rank.COUNT - 2)
+                && (Attacks.pawnPushes(us, Long.numberOfTrailingZeros(forwardOne)) & ~occupied & toBit) != 0;
+    }
+
+    /**
+     * Returns whether the king on the given square may castle to the given
+     * square.
+     */
+    private static boolean isLegalCastling(final BoardState position, final Color us, final Color them,
+                                           final int kingSquare, final int to) {
+        final int rank = us == Color.WHITE ? 0 : Rank.COUNT - 1;
+        final boolean kingside = to == Bitboards.squareIndex(6, rank);
+        if (kingSquare != Bitboards.squareIndex(4, rank) || !kingside && to != Bitboards.squareIndex(2, rank)) {
+            return false;
+        }
+
+        final CastlingRights castlingRights = position.getCastlingRights();
+        final boolean allowed;
+        final long gap;
+        final long path;
+        if (kingside) {
+            allowed = us == Color.WHITE ? castlingRights.whiteKingside() : castlingRights.blackKingside();
+            gap = us == Color.WHITE ? WHITE_KINGSIDE_CASTLE_GAP : BLACK_KINGSIDE_CASTLE_GAP;
+            path = us == Color.WHITE ? WHITE_KINGSIDE_CASTLE_PATH : BLACK_KINGSIDE_CASTLE_PATH;
+        } else {
+            allowed = us == Color.WHITE ? castlingRights.whiteQueenside() : castlingRights.blackQueenside();
+            gap = us == Color.WHITE ? WHITE_QUEENSIDE_CASTLE_GAP : BLACK_QUEENSIDE_CASTLE_GAP;
+            path = us == Color.WHITE ? WHITE_QUEENSIDE_CASTLE_PATH : BLACK_QUEENSIDE_CASTLE_PATH;
+        }
+        final long rookBit = Bitboards.bit(Bitboards.squareIndex(kingside ? File.COUNT - 1 : 0, rank));
+        final long occupied = position.getOccupancy();
+        if (!allowed || (position.getBitboard(us, PieceType.ROOK) & rookBit) == 0 || (occupied & gap) != 0) {
+            return false;
+        }
+
+        final long occupiedWithoutKing = occupied ^ Bitboards.bit(kingSquare);
+        for (long squares = path; squares != 0; squares &= squares - 1) {
+            if (Attacks.attackersTo(position, Long.numberOfTrailingZeros(squares), them, occupiedWithoutKing) != 0) {
                 return false;
             }
         }
         return true;
     }
 
-    private static Set<Move> generateLegalMoves(final Position position) {
-        final Set<Move> moves = new HashSet<>();
-        for (final Move move : generatePseudoLegalMoves(position)) {
-            final Position newPosition = position.applyTo(move);
-            // find the notToMoveKing
-            Coordinate notToMoveKingCoordinate = null;
-            final Color toMove = newPosition.getToMove();
-            final Color notToMove = toMove == Color.WHITE ? Color.BLACK : Color.WHITE;
-            notToMoveKingCoordinate = getNotToMoveKingCoordinate(newPosition, notToMove, notToMoveKingCoordinate);
-            if (!Positions.isTargetedByColor(notToMoveKingCoordinate, toMove, newPosition)) {
-                moves.add(move);
+    private static int addLegalEnPassantMoves(final BoardState position, final MoveList moves, final int[] counts,
+                                              final Color us, final Color them, final int kingSquare,
+                                              final long checkMask) {
+        final Coordinate enPassantTarget = position.getEnPassantTarget();
+        if (enPassantTarget == null) {
+            return 0;
+        }
+
+        final int targetSquare = enPassantTarget.getSquareIndex();
+        final int capturedSquare = targetSquare + (us == Color.WHITE ? -File.COUNT : File.COUNT);
+        if (capturedSquare < 0 || capturedSquare >= Bitboards.SQUARE_COUNT
+                || (checkMask & (Bitboards.bit(targetSquare) | Bitboards.bit(capturedSquare))) == 0) {
+            return 0;
+        }
+
+        final long theirQueens = position.getBitboard(them, PieceType.QUEEN);
+        final long theirRookMovers = position.getBitboard(them, PieceType.ROOK) | theirQueens;
+        final long theirBishopMovers = position.getBitboard(them, PieceType.BISHOP) | theirQueens;
+
+        // a pawn attacks the target square from wherever an enemy pawn on the
+        // target square would attack
+        int count = 0;
+        for (long pawns = Attacks.pawnAttacks(them, targetSquare) & position.getBitboard(us, PieceType.PAWN);
+                pawns != 0; pawns &= pawns - 1) {
+            final int squareIndex = Long.numberOfTrailingZeros(pawns);
+            final long occupied = (position.getOccupancy()
+                    & ~Bitboards.bit(squareIndex) & ~Bitboards.bit(capturedSquare))
+                    | Bitboards.bit(targetSquare);
+
+            // both pawns leave their squares, which may uncover a slider
+            if ((Attacks.rookAttacks(kingSquare, occupied) & theirRookMovers) == 0
+                    && (Attacks.bishopAttacks(kingSquare, occupied) & theirBishopMovers) == 0) {
+                if (moves != null) {
+                    moves.add(PackedMove.of(squareIndex, targetSquare, MoveType.EN_PASSANT, null));
+                }
+                count++;
             }
         }
-        return moves;
+        if (counts != null) {
+            counts[PieceType.PAWN.ordinal()] += count;
+        }
+        return count;
     }
 
-    private static Coordinate getNotToMoveKingCoordinate(Position newPosition, Color notToMove, Coordinate notToMoveKingCoordinate) {
-        for (int fileIndex = 0; fileIndex < File.COUNT; fileIndex++) {
-            for (int rankIndex = 0; rankIndex < Rank.COUNT; rankIndex++) {
-                final Coordinate candidateCoordinate = Coordinate.valueOf(fileIndex, rankIndex);
-                final Piece candidate = newPosition.getSquare(candidateCoordinate).getPiece();
-                if (candidate instanceof final King king && king.getColor() == notToMove) {
-                    return candidateCoordinate;
-                }
+    private static int addLegalCastlingMoves(final BoardState position, final MoveList moves, final int[] counts,
+                                             final Color us, final int kingSquare, final long danger) {
+        final CastlingRights castlingRights = position.getCastlingRights();
+        final int rank = us == Color.WHITE ? 0 : Rank.COUNT - 1;
+        if (kingSquare != Bitboards.squareIndex(4, rank)) {
+            return 0;
+        }
+
+        final boolean kingside = us == Color.WHITE ? castlingRights.whiteKingside() : castlingRights.blackKingside();
+        final boolean queenside = us == Color.WHITE ? castlingRights.whiteQueenside() : castlingRights.blackQueenside();
+        final long kingsideGap = us == Color.WHITE ? WHITE_KINGSIDE_CASTLE_GAP : BLACK_KINGSIDE_CASTLE_GAP;
+        final long queensideGap = us == Color.WHITE ? WHITE_QUEENSIDE_CASTLE_GAP : BLACK_QUEENSIDE_CASTLE_GAP;
+        final long kingsidePath = us == Color.WHITE ? WHITE_KINGSIDE_CASTLE_PATH : BLACK_KINGSIDE_CASTLE_PATH;
+        final long queensidePath = us == Color.WHITE ? WHITE_QUEENSIDE_CASTLE_PATH : BLACK_QUEENSIDE_CASTLE_PATH;
+        final long rooks = position.getBitboard(us, PieceType.ROOK);
+        final long occupied = position.getOccupancy();
+
+        int count = 0;
+        if (kingside && (rooks & Bitboards.bit(Bitboards.squareIndex(File.COUNT - 1, rank))) != 0
+                && (occupied & kingsideGap) == 0 && (danger & kingsidePath) == 0) {
+            if (moves != null) {
+                moves.add(PackedMove.of(kingSquare, Bitboards.squareIndex(6, rank), MoveType.CASTLING, null));
             }
+            count++;
+        }
+
+        if (queenside && (rooks & Bitboards.bit(Bitboards.squareIndex(0, rank))) != 0
+                && (occupied & queensideGap) == 0 && (danger & queensidePath) == 0) {
+            if (moves != null) {
+                moves.add(PackedMove.of(kingSquare, Bitboards.squareIndex(2, rank), MoveType.CASTLING, null));
+            }
+            count++;
+        }
+        if (counts != null) {
+            counts[PieceType.KING.ordinal()] += count;
         }
-        return notToMoveKingCoordinate;
+        return count;
     }
 
     private MoveGenerator() {
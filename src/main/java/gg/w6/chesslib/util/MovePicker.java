@@ -0,0 +1,311 @@
+package gg.w6.chesslib.util;
+
+import gg.w6.chesslib.model.*;
+import gg.w6.chesslib.model.piece.PieceType;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * Yields the legal moves of a position one at a time, in the order a search
+ * would like to try them, generating each group of moves only when it is
+ * reached.
+ *
+ * <p>The moves are yielded in {@link Stage stages}: first the hash move, then
+ * the winning and even captures and the promotions, best first, then the
+ * killer moves, then the remaining quiet moves, and finally the losing
+ * captures. The hash and killer moves are checked one by one with
+ * {@link MoveGenerator#isLegal(BoardState, int)}, so a search that cuts off
+ * after the hash move, a good capture or a killer never pays for generating
+ * the quiet moves. Every legal move is yielded exactly once; hash and killer
+ * moves that are not legal in the position are ignored.</p>
+ *
+ * <p>Captures are ordered by most valuable victim, least valuable attacker.
+ * A capture is considered losing if the captured piece is worth less than the
+ * capturing one and the target square is defended.</p>
+ *
+ * <p>The position must not change between calls to {@link #next()}. Making a
+ * move on a {@link Board} and unmaking it before asking for the next one is
+ * fine. A <code>MovePicker</code> can be {@link #reset reset} and reused, in
+ * which case it does not allocate.</p>
+ *
+ * <p>Usage example:</p>
+ * <pre><code>
+ * final MovePicker picker = new MovePicker(board, hashMove, killers[0], killers[1]);
+ * for (int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+ *     board.makeMove(move);
+ *     // ...
+ *     board.unmakeMove();
+ * }
+ * </code></pre>
+ */
+@NotThreadSafe
+public final class MovePicker {
+
+    /**
+     * The stages of a {@link MovePicker}, in the order they are visited.
+     */
+    public enum Stage {
+        /** The hash move, if it is legal. */
+        HASH_MOVE,
+        /** Promotions and captures that do not lose material. */
+        GOOD_CAPTURES,
+        /** The killer moves that are legal quiet moves. */
+        KILLERS,
+        /** The remaining moves that neither capture nor promote. */
+        QUIETS,
+        /** Captures of a defended piece worth less than the capturing one. */
+        BAD_CAPTURES,
+        /** All moves have been yielded. */
+        DONE
+    }
+
+    /**
+     * The values of the pieces by {@link PieceType} ordinal, used for
+     * ordering captures.
+     */
+    private static final int[] PIECE_VALUES = { 100, 320, 330, 500, 900, 20000 };
+
+    /**
+     * Subtracted from the score of a losing capture, so that it sorts after
+     * every good capture.
+     */
+    private static final int BAD_CAPTURE_PENALTY = 1 << 20;
+
+    private final MoveList captures = new MoveList();
+    private final MoveList quiets = new MoveList();
+    private int[] scores = new int[MoveList.DEFAULT_CAPACITY];
+
+    private BoardState position;
+    private int hashMove;
+    private int firstKiller;
+    private int secondKiller;
+
+    private Stage stage;
+    private int step;
+    private boolean hashMoveLegal;
+    private boolean capturesGenerated;
+    private boolean quietsGenerated;
+    private int captureIndex;
+    private int quietIndex;
+
+    /**
+     * Constructs a <code>MovePicker</code> for the given position without a
+     * hash move or killer moves.
+     *
+     * @param position the position to pick the moves of
+     */
+    public MovePicker(@NotNull final BoardState position) {
+        this(position, PackedMove.NONE, PackedMove.NONE, PackedMove.NONE);
+    }
+
+    /**
+     * Constructs a <code>MovePicker</code> for the given position.
+     *
+     * @param position the position to pick the moves of
+     * @param hashMove the {@link PackedMove packed} hash move, or
+     *                 {@link PackedMove#NONE}
+     * @param firstKiller the first packed killer move, or
+     *                    {@link PackedMove#NONE}
+     * @param secondKiller the second packed killer move, or
+     *                     {@link PackedMove#NONE}
+     */
+    public MovePicker(@NotNull final BoardState position, final int hashMove,
+                      final int firstKiller, final int secondKiller) {
+        reset(position, hashMove, firstKiller, secondKiller);
+    }
+
+    /**
+     * Restarts this picker on the given position, reusing its buffers.
+     *
+     * @param position the position to pick the moves of
+     * @param hashMove the {@link PackedMove packed} hash move, or
+     *                 {@link PackedMove#NONE}
+     * @param firstKiller the first packed killer move, or
+     *                    {@link PackedMove#NONE}
+     * @param secondKiller the second packed killer move, or
+     *                     {@link PackedMove#NONE}
+     */
+    public void reset(@NotNull final BoardState position, final int hashMove,
+                      final int firstKiller, final int secondKiller) {
+        this.position = position;
+        this.hashMove = hashMove;
+        this.firstKiller = firstKiller;
+        this.secondKiller = secondKiller;
+        this.stage = Stage.HASH_MOVE;
+        this.step = 0;
+        this.hashMoveLegal = false;
+        this.capturesGenerated = false;
+        this.quietsGenerated = false;
+        this.captureIndex = 0;
+        this.quietIndex = 0;
+        captures.clear();
+        quiets.clear();
+    }
+
+    /**
+     * Returns the stage of the move returned last by {@link #next()}, or
+     * {@link Stage#HASH_MOVE} if no move has been asked for yet.
+     *
+     * @return the current stage
+     */
+    @NotNull
+    public Stage getStage() {
+        return stage;
+    }
+
+    /**
+     * Returns the next move.
+     *
+     * @return the next {@link PackedMove packed move}, or
+     *         {@link PackedMove#NONE} if all moves have been yielded
+     */
+    public int next() {
+        while (true) {
+            switch (stage) {
+                case HASH_MOVE -> {
+                    if (step++ == 0 && hashMove != PackedMove.NONE && isLegalHashMove()) {
+                        return hashMove;
+                    }
+                    hashMove = hashMoveLegal ? hashMove : PackedMove.NONE;
+                    advance(Stage.GOOD_CAPTURES);
+                }
+                case GOOD_CAPTURES -> {
+                    generateCaptures();
+                    while (captureIndex < captures.size()) {
+                        selectBestCapture();
+                        if (scores[captureIndex] < 0) {
+                            break;
+                        }
+                        final int move = captures.get(captureIndex++);
+                        if (move != hashMove) {
+                            return move;
+                        }
+                    }
+                    advance(Stage.KILLERS);
+                }
+                case KILLERS -> {
+                    if (step == 0) {
+                        step++;
+                        if (isUsableKiller(firstKiller)) {
+                            return firstKiller;
+                        }
+                    }
+                    if (step == 1) {
+                        step++;
+                        if (secondKiller != firstKiller && isUsableKiller(secondKiller)) {
+                            return secondKiller;
+                        }
+                    }
+                    advance(Stage.QUIETS);
+                }
+                case QUIETS -> {
+                    generateQuiets();
+                    while (quietIndex < quiets.size()) {
+                        final int move = quiets.get(quietIndex++);
+                        if (move != hashMove && move != firstKiller && move != secondKiller) {
+                            return move;
+                        }
+                    }
+                    advance(Stage.BAD_CAPTURES);
+                }
+                case BAD_CAPTURES -> {
+                    while (captureIndex < captures.size()) {
+                        selectBestCapture();
+                        final int move = captures.get(captureIndex++);
+                        if (move != hashMove) {
+                            return move;
+                        }
+                    }
+                    advance(Stage.DONE);
+                }
+                case DONE -> {
+                    return PackedMove.NONE;
+                }
+            }
+        }
+    }
+
+    private boolean isUsableKiller(final int killer) {
+        return killer != PackedMove.NONE && killer != hashMove
+                && !MoveGenerator.isTactical(position, killer) && MoveGenerator.isLegal(position, killer);
+    }
+
+    private void advance(final Stage nextStage) {
+        stage = nextStage;
+        step = 0;
+    }
+
+    private boolean isLegalHashMove() {
+        hashMoveLegal = MoveGenerator.isLegal(position, hashMove);
+        return hashMoveLegal;
+    }
+
+    private void generateCaptures() {
+        if (capturesGenerated) {
+            return;
+        }
+        capturesGenerated = true;
+        final int count = MoveGenerator.generateLegalCaptures(position, captures);
+        if (scores.length < count) {
+            scores = Arrays.copyOf(scores, count);
+        }
+        final Color them = position.getToMove() == Color.WHITE ? Color.BLACK : Color.WHITE;
+        final long occupancy = position.getOccupancy();
+        for (int i = 0; i < count; i++) {
+            scores[i] = score(captures.get(i), them, occupancy);
+        }
+    }
+
+    private void generateQuiets() {
+        if (!quietsGenerated) {
+            quietsGenerated = true;
+            MoveGenerator.generateLegalQuiets(position, quiets);
+        }
+    }
+
+    /**
+     * Scores a capture or promotion by most valuable victim, least valuable
+     * attacker. Losing captures get a negative score.
+     */
+    private int score(final int move, final Color them, final long occupancy) {
+        final int from = PackedMove.from(move);
+        final int to = PackedMove.to(move);
+        final int attacker = PIECE_VALUES[Bitboards.pieceTypeOf(position.getPieceIndex(from)).ordinal()];
+        final int capturedIndex = position.getPieceIndex(to);
+        final int victim = PackedMove.moveType(move) == MoveType.EN_PASSANT
+                ? PIECE_VALUES[PieceType.PAWN.ordinal()]
+                : capturedIndex == Bitboards.NO_PIECE ? 0 : PIECE_VALUES[Bitboards.pieceTypeOf(capturedIndex).ordinal()];
+        final PieceType promotionType = PackedMove.promotionType(move);
+        if (promotionType != null) {
+            return PIECE_VALUES[promotionType.ordinal()] + victim;
+        }
+        final int score = victim * 16 - attacker / 100;
+        if (victim < attacker
+                && Attacks.attackersTo(position, to, them, occupancy ^ Bitboards.bit(from)) != 0) {
+            return score - BAD_CAPTURE_PENALTY;
+        }
+        return score;
+    }
+
+    /**
+     * Swaps the best scored of the remaining captures to the current index.
+     */
+    private void selectBestCapture() {
+        int best = captureIndex;
+        for (int i = captureIndex + 1; i < captures.size(); i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (best != captureIndex) {
+            final int move = captures.get(best);
+            captures.set(best, captures.get(captureIndex));
+            captures.set(captureIndex, move);
+            final int score = scores[best];
+            scores[best] = scores[captureIndex];
+            scores[captureIndex] = score;
+        }
+    }
+}
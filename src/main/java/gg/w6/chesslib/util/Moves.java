@@ -1,13 +1,23 @@
 package gg.w6.chesslib.util;
 
+import gg.w6.chesslib.model.Bitboards;
+import gg.w6.chesslib.model.Board;
+import gg.w6.chesslib.model.BoardState;
+import gg.w6.chesslib.model.Color;
 import gg.w6.chesslib.model.Coordinate;
+import gg.w6.chesslib.model.MoveList;
 import gg.w6.chesslib.model.MoveType;
+import gg.w6.chesslib.model.PackedMove;
 import gg.w6.chesslib.model.Position;
 import gg.w6.chesslib.model.Move;
 import gg.w6.chesslib.model.piece.Pawn;
 import gg.w6.chesslib.model.piece.Piece;
+import gg.w6.chesslib.model.piece.PieceType;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * This class consists exclusively of static methods that operate on or return
  * {@link Move}s. It is not instantiable.
@@ -57,6 +67,95 @@ public final class Moves {
                 && Math.abs(from.getRank().ordinal() - to.getRank().ordinal()) == 2;
     }
 
+    /**
+     * Determines whether the given move, made in the given position, checks
+     * the opponent's king.
+     *
+     * @param move the {@link Move} to test
+     * @param position the {@link Position} <i>before</i> the move is made
+     * @return <code>true</code> if the move gives check
+     * @see #givesCheck(BoardState, int)
+     */
+    public static boolean givesCheck(@NotNull final Move move, @NotNull final Position position) {
+        return Moves.givesCheck(position, PackedMove.valueOf(move));
+    }
+
+    /**
+     * Determines whether the given packed move, made in the given position,
+     * checks the opponent's king, without making the move.
+     *
+     * <p>The occupancy after the move is derived from the move alone, and
+     * the opponent's king is checked for attacks by the moved piece, by any
+     * slider the move uncovers, including through the square of a pawn
+     * captured en passant, and by the rook of a castling move. This method
+     * does not allocate.</p>
+     *
+     * @param position the {@link Position} or {@link Board} <i>before</i>
+     *                 the move is made
+     * @param packedMove the {@link PackedMove packed move} to test, legal in
+     *                   <code>position</code>
+     * @return <code>true</code> if the move gives check
+     */
+    public static boolean givesCheck(@NotNull final BoardState position, final int packedMove) {
+        final Color us = position.getToMove();
+        final Color them = us == Color.WHITE ? Color.BLACK : Color.WHITE;
+        final int kingSquare = position.getKingSquare(them);
+        if (kingSquare == Bitboards.NO_SQUARE) {
+            return false;
+        }
+
+        final int from = PackedMove.from(packedMove);
+        final int to = PackedMove.to(packedMove);
+        final long fromBit = Bitboards.bit(from);
+        final long toBit = Bitboards.bit(to);
+        final long kingBit = Bitboards.bit(kingSquare);
+        final MoveType moveType = PackedMove.moveType(packedMove);
+
+        long occupied = (position.getOccupancy() & ~fromBit) | toBit;
+        final long queens = position.getBitboard(us, PieceType.QUEEN);
+        long rookMovers = (position.getBitboard(us, PieceType.ROOK) | queens) & ~fromBit;
+        long bishopMovers = (position.getBitboard(us, PieceType.BISHOP) | queens) & ~fromBit;
+
+        final PieceType movedType = moveType == MoveType.PROMOTION
+                ? PackedMove.promotionType(packedMove)
+                : Bitboards.pieceTypeOf(position.getPieceIndex(from));
+        switch (movedType) {
+            case PAWN -> {
+                if ((Attacks.pawnAttacks(us, to) & kingBit) != 0) {
+                    return true;
+                }
+            }
+            case KNIGHT -> {
+                if ((Attacks.knightAttacks(to) & kingBit) != 0) {
+                    return true;
+                }
+            }
+            case BISHOP -> bishopMovers |= toBit;
+            case ROOK -> rookMovers |= toBit;
+            case QUEEN -> {
+                bishopMovers |= toBit;
+                rookMovers |= toBit;
+            }
+            case KING -> {
+                // a king never checks directly
+            }
+        }
+
+        if (moveType == MoveType.EN_PASSANT) {
+            occupied &= ~Bitboards.bit(Bitboards.squareIndex(Bitboards.fileIndex(to), Bitboards.rankIndex(from)));
+        } else if (moveType == MoveType.CASTLING) {
+            final int rank = Bitboards.rankIndex(from);
+            final boolean kingside = Bitboards.fileIndex(to) > Bitboards.fileIndex(from);
+            final long rookFromBit = Bitboards.bit(Bitboards.squareIndex(kingside ? 7 : 0, rank));
+            final long rookToBit = Bitboards.bit(Bitboards.squareIndex(kingside ? 5 : 3, rank));
+            occupied = (occupied & ~rookFromBit) | rookToBit;
+            rookMovers = (rookMovers & ~rookFromBit) | rookToBit;
+        }
+
+        return (Attacks.rookAttacks(kingSquare, occupied) & rookMovers) != 0
+                || (Attacks.bishopAttacks(kingSquare, occupied) & bishopMovers) != 0;
+    }
+
     /**
      * Generates the Standard Algebraic Notation (SAN) representation for the
      * given {@link Move} in the context of the provided {@link Position}
@@ -88,7 +187,7 @@ public final class Moves {
                 }
             );
 
-            appendSANSuffix(sanStringBuilder, position.applyTo(move));
+            appendSANSuffix(sanStringBuilder, move, position);
             return sanStringBuilder.toString();
         }
 
@@ -147,20 +246,20 @@ public final class Moves {
 
         }
 
-        appendSANSuffix(sanStringBuilder, position.applyTo(move));
+        appendSANSuffix(sanStringBuilder, move, position);
 
         return sanStringBuilder.toString();
     }
 
     private static void appendSANSuffix(final StringBuilder sanStringBuilder,
-                                        final Position position) {
-        if (!Positions.isKingToMoveInCheck(position)) return;
-        sanStringBuilder.append(MoveGenerator.getLegalMoves(position).isEmpty() ? "#" : "+");
+                                        final Move move, final Position position) {
+        if (!Moves.givesCheck(move, position)) return;
+        sanStringBuilder.append(position.applyTo(move).isCheckmate() ? "#" : "+");
     }
 
     private static boolean isPieceAmbiguous(final Move move, final Position position) {
         final Coordinate from = move.getFrom();
-        for (final Move candidateMove : MoveGenerator.getLegalMoves(position)) {
+        for (final Move candidateMove : position.getLegalMoves()) {
             final Coordinate candidateFrom = candidateMove.getFrom();
 
             // if the piece is the same, the move is diff, and the tooCordinate is the same
@@ -190,7 +289,7 @@ public final class Moves {
     }
 
     private static boolean isRankAmbiguous(final Move move, final Position position) {
-        for (final Move candidateMove : MoveGenerator.getLegalMoves(position)) {
+        for (final Move candidateMove : position.getLegalMoves()) {
             if (candidateMove.getFrom().getFile() == move.getFrom().getFile()) {
                 continue;
             }
@@ -211,7 +310,7 @@ public final class Moves {
     }
 
     private static boolean isFileAmbiguous(final Move move, final Position position) {
-        for (final Move candidateMove : MoveGenerator.getLegalMoves(position)) {
+        for (final Move candidateMove : position.getLegalMoves()) {
             if (candidateMove.getFrom().getRank() == move.getFrom().getRank()) {
                 continue;
             }
@@ -231,6 +330,98 @@ public final class Moves {
         return false;
     }
 
+    /**
+     * Generates the Standard Algebraic Notation (SAN) of every legal move of
+     * the given {@link Position} in a single pass.
+     *
+     * <p>This produces the same strings as calling
+     * {@link #generateSAN(Move, Position)} for each legal move, but generates
+     * the legal moves only once. Moves are disambiguated by grouping them by
+     * piece type and destination square. Checks are found with
+     * {@link #givesCheck(BoardState, int)}, and only checking moves are made
+     * on a {@link Board} to test for a legal reply.</p>
+     *
+     * @param position the {@link Position} the moves are made in
+     * @return a map from every legal move to its SAN string, in generation
+     *         order
+     */
+    @NotNull
+    public static Map<Move, String> generateAllSAN(@NotNull final Position position) {
+        final MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, moves);
+
+        // the origins of the moves of each (piece type, destination) pair
+        final long[] origins = new long[PieceType.COUNT * Bitboards.SQUARE_COUNT];
+        for (int i = 0; i < moves.size(); i++) {
+            final int move = moves.get(i);
+            final int pieceIndex = position.getPieceIndex(PackedMove.from(move));
+            origins[Bitboards.pieceTypeOf(pieceIndex).ordinal() * Bitboards.SQUARE_COUNT + PackedMove.to(move)]
+                    |= Bitboards.bit(PackedMove.from(move));
+        }
+
+        final Board board = new Board(position);
+        final Map<Move, String> sans = new LinkedHashMap<>(moves.size() * 2);
+        final StringBuilder sanStringBuilder = new StringBuilder();
+        for (int i = 0; i < moves.size(); i++) {
+            final int move = moves.get(i);
+            final int from = PackedMove.from(move);
+            final int to = PackedMove.to(move);
+            final MoveType moveType = PackedMove.moveType(move);
+            final PieceType pieceType = Bitboards.pieceTypeOf(position.getPieceIndex(from));
+            final boolean capture = moveType == MoveType.EN_PASSANT
+                    || position.getPieceIndex(to) != Bitboards.NO_PIECE;
+            sanStringBuilder.setLength(0);
+
+            if (moveType == MoveType.CASTLING) {
+                sanStringBuilder.append(Bitboards.fileIndex(to) == 6 ? "O-O" : "O-O-O");
+            } else if (pieceType == PieceType.PAWN) {
+                if (capture) {
+                    Moves.appendFile(sanStringBuilder, from).append('x');
+                }
+                Moves.appendSquare(sanStringBuilder, to);
+                final PieceType promotionType = PackedMove.promotionType(move);
+                if (promotionType != null) {
+                    sanStringBuilder.append('=').append(promotionType.getWhiteLetter());
+                }
+            } else {
+                sanStringBuilder.append(pieceType.getWhiteLetter());
+                final long others = origins[pieceType.ordinal() * Bitboards.SQUARE_COUNT + to] & ~Bitboards.bit(from);
+                if (others != 0) {
+                    final boolean fileIsAmbiguous = (others & Bitboards.file(Bitboards.fileIndex(from))) != 0;
+                    final boolean rankIsAmbiguous = (others & Bitboards.rank(Bitboards.rankIndex(from))) != 0;
+                    if (fileIsAmbiguous && rankIsAmbiguous) {
+                        Moves.appendSquare(sanStringBuilder, from);
+                    } else if (!fileIsAmbiguous) {
+                        Moves.appendFile(sanStringBuilder, from);
+                    } else {
+                        sanStringBuilder.append((char) ('1' + Bitboards.rankIndex(from)));
+                    }
+                }
+                if (capture) {
+                    sanStringBuilder.append('x');
+                }
+                Moves.appendSquare(sanStringBuilder, to);
+            }
+
+            if (Moves.givesCheck(position, move)) {
+                board.makeMove(move);
+                sanStringBuilder.append(MoveGenerator.hasLegalMoves(board) ? '+' : '#');
+                board.unmakeMove();
+            }
+
+            sans.put(PackedMove.toMove(move), sanStringBuilder.toString());
+        }
+        return sans;
+    }
+
+    private static StringBuilder appendFile(final StringBuilder stringBuilder, final int squareIndex) {
+        return stringBuilder.append((char) ('a' + Bitboards.fileIndex(squareIndex)));
+    }
+
+    private static StringBuilder appendSquare(final StringBuilder stringBuilder, final int squareIndex) {
+        return Moves.appendFile(stringBuilder, squareIndex).append((char) ('1' + Bitboards.rankIndex(squareIndex)));
+    }
+
     private Moves() {
     } // ensure non-instantiability
 
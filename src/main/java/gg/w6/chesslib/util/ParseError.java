@@ -0,0 +1,81 @@
+package gg.w6.chesslib.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The reasons a parser can reject its input, as reported by a failed
+ * {@link ParseResult}.
+ */
+@Immutable
+public enum ParseError {
+    /**
+     * The SAN is not well-formed.
+     */
+    MALFORMED_SAN("Unrecognized SAN"),
+
+    /**
+     * The SAN is well-formed, but the move it names is not legal for the
+     * side to move.
+     */
+    ILLEGAL_SAN("Illegal SAN"),
+
+    /**
+     * The SAN is well-formed, but more than one piece of the side to move
+     * can make it.
+     */
+    AMBIGUOUS_SAN("Ambiguous SAN"),
+
+    /**
+     * The FEN does not have exactly six space-separated fields.
+     */
+    MALFORMED_FEN_FIELD_COUNT("Malformed FEN field count"),
+
+    /**
+     * The piece placement field of the FEN is malformed.
+     */
+    MALFORMED_PIECE_PLACEMENT("Malformed piece placement field"),
+
+    /**
+     * The active color field of the FEN is malformed.
+     */
+    MALFORMED_ACTIVE_COLOR("Malformed color field"),
+
+    /**
+     * The castling rights field of the FEN is malformed.
+     */
+    MALFORMED_CASTLING_RIGHTS("Malformed castling rights field"),
+
+    /**
+     * The en passant target field of the FEN is malformed.
+     */
+    MALFORMED_EN_PASSANT_TARGET("Malformed en passant target field"),
+
+    /**
+     * The halfmove clock field of the FEN is malformed.
+     */
+    MALFORMED_HALFMOVE_CLOCK("Malformed halfmove clock field"),
+
+    /**
+     * The fullmove number field of the FEN is malformed.
+     */
+    MALFORMED_FULLMOVE_NUMBER("Malformed fullmove number field");
+
+    private final String description;
+
+    ParseError(final String description) {
+        this.description = description;
+    }
+
+    /**
+     * Returns a short human-readable description of this error, suitable as
+     * the start of an exception message.
+     *
+     * @return the description of this error
+     */
+    @NotNull
+    public String getDescription() {
+        return description;
+    }
+}
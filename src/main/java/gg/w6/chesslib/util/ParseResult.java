@@ -0,0 +1,113 @@
+package gg.w6.chesslib.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The outcome of parsing untrusted input: either the parsed value, or a
+ * {@link ParseError} and the offset in the input at which it was detected.
+ *
+ * <p>The <code>tryParse</code> methods of the parsers return a
+ * <code>ParseResult</code> instead of throwing, so rejecting bad input costs
+ * one small object rather than an exception with a stack trace and a
+ * formatted message. This matters when bulk input, such as a PGN database,
+ * contains many broken records.</p>
+ *
+ * <p>Usage example:</p>
+ * <pre><code>
+ * final ParseResult&lt;Position&gt; result = FenParser.tryParse(line);
+ * if (result.isSuccess()) {
+ *     final Position position = result.getValue();
+ *     // ...
+ * } else {
+ *     log(result.getError(), result.getOffset());
+ * }
+ * </code></pre>
+ *
+ * @param <T> the type of the parsed value
+ */
+@Immutable
+public final class ParseResult<T> {
+
+    private final T value;
+    private final ParseError error;
+    private final int offset;
+
+    private ParseResult(final T value, final ParseError error, final int offset) {
+        this.value = value;
+        this.error = error;
+        this.offset = offset;
+    }
+
+    @NotNull
+    static <T> ParseResult<T> success(@NotNull final T value) {
+        return new ParseResult<>(value, null, -1);
+    }
+
+    @NotNull
+    static <T> ParseResult<T> failure(@NotNull final ParseError error, final int offset) {
+        return new ParseResult<>(null, error, offset);
+    }
+
+    /**
+     * Returns whether the input was parsed successfully.
+     *
+     * @return <code>true</code> if this result holds a value
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Returns the parsed value.
+     *
+     * @return the parsed value, or null if parsing failed
+     */
+    @Nullable
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the reason parsing failed.
+     *
+     * @return the error, or null if parsing succeeded
+     */
+    @Nullable
+    public ParseError getError() {
+        return error;
+    }
+
+    /**
+     * Returns the offset in the input at which the error was detected.
+     *
+     * @return the index of the offending character, or <code>-1</code> if
+     *         parsing succeeded
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the parsed value, or throws if parsing failed.
+     *
+     * @return the parsed value
+     * @throws IllegalArgumentException if parsing failed
+     */
+    @NotNull
+    public T getValueOrThrow() {
+        if (error != null) {
+            throw new IllegalArgumentException(error.getDescription() + " at offset " + offset + ".");
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return error == null
+                ? "ParseResult[" + value + "]"
+                : "ParseResult[" + error + " at offset " + offset + "]";
+    }
+}
@@ -0,0 +1,380 @@
+package gg.w6.chesslib.util;
+
+import gg.w6.chesslib.model.*;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the leaf nodes of the legal move tree of a position to a given
+ * depth, for validating the move generator and measuring its throughput.
+ *
+ * <p>The tree is walked with {@link Board#makeMove(int)} and
+ * {@link Board#unmakeMove()}, so the walk does not allocate. Nodes one ply
+ * above the leaves are counted in bulk with
+ * {@link MoveGenerator#countLegalMoves(BoardState)} instead of being
+ * visited. Subtrees at least {@link #SPLIT_DEPTH} deep are
+ * split into {@link ForkJoinPool} tasks, so idle workers steal work below the
+ * root as well as at it.</p>
+ *
+ * <p>Subtree counts are shared between the tasks in a lock-free hash table
+ * keyed by {@link Zobrist} key and depth. Each slot stores the key exclusive
+ * or-ed with the data next to the data, so a slot torn by concurrent writes
+ * fails verification and is treated as a miss. Like every Zobrist hash table,
+ * it would return a wrong count for two positions with the same 64-bit key,
+ * which is vanishingly unlikely; construct with a hash table size of
+ * <code>0</code> to rule it out.</p>
+ *
+ * <p>Usage example:</p>
+ * <pre><code>
+ * final Perft.Result result = new Perft().divide(Position.valueOf(fen), 6);
+ * System.out.println(result);
+ * </code></pre>
+ *
+ * @see <a href="https://www.chessprogramming.org/Perft">Perft on the Chess
+ *      Programming Wiki</a>
+ */
+@ThreadSafe
+public final class Perft {
+
+    /**
+     * The number of hash table entries of a <code>Perft</code> constructed
+     * with {@link #Perft()}, 16 MiB worth.
+     */
+    public static final int DEFAULT_HASH_ENTRIES = 1 << 20;
+
+    /**
+     * The smallest remaining depth at which a subtree is split into parallel
+     * tasks. Shallower subtrees are cheaper to walk than to schedule.
+     */
+    public static final int SPLIT_DEPTH = 4;
+
+    /**
+     * The greatest supported depth; the depth is stored in 6 bits of a hash
+     * table entry.
+     */
+    public static final int MAX_DEPTH = 63;
+
+    private static final int DEPTH_BITS = 6;
+    private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Pairs of (key exclusive or data, data), or null if hashing is disabled.
+     * The data is the node count shifted left by {@link #DEPTH_BITS}, or-ed
+     * with the depth.
+     */
+    private final AtomicLongArray table;
+    private final int tableMask;
+
+    /**
+     * Constructs a <code>Perft</code> with {@link #DEFAULT_HASH_ENTRIES} hash
+     * table entries, running on the common {@link ForkJoinPool}.
+     */
+    public Perft() {
+        this(DEFAULT_HASH_ENTRIES, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a <code>Perft</code> with the given hash table size, running
+     * on the given pool.
+     *
+     * @param hashEntries the number of hash table entries, rounded down to a
+     *                    power of two, or <code>0</code> to disable hashing
+     * @param pool the pool to run the tasks in
+     * @throws IllegalArgumentException if <code>hashEntries</code> is
+     *                                  negative
+     */
+    public Perft(final int hashEntries, @NotNull final ForkJoinPool pool) {
+        if (hashEntries < 0) {
+            throw new IllegalArgumentException("Illegal hash table size: " + hashEntries + ".");
+        }
+        this.pool = pool;
+        final int entries = Integer.highestOneBit(hashEntries);
+        this.table = entries == 0 ? null : new AtomicLongArray(entries * 2);
+        this.tableMask = entries - 1;
+    }
+
+    /**
+     * Counts the leaf nodes of the legal move tree of the given position.
+     *
+     * @param position the root position
+     * @param depth the depth of the tree in plies
+     * @return the number of leaf nodes
+     * @throws IllegalArgumentException if the depth is negative or greater
+     *                                  than {@link #MAX_DEPTH}
+     */
+    public long count(@NotNull final Position position, final int depth) {
+        checkDepth(depth);
+        return pool.invoke(new PerftTask(position, depth));
+    }
+
+    /**
+     * Counts the leaf nodes below each legal move of the given position, and
+     * measures the throughput.
+     *
+     * @param position the root position
+     * @param depth the depth of the tree in plies, including the root move
+     * @return the node counts per root move and in total
+     * @throws IllegalArgumentException if the depth is not between
+     *                                  <code>1</code> and {@link #MAX_DEPTH}
+     */
+    @NotNull
+    public Result divide(@NotNull final Position position, final int depth) {
+        checkDepth(depth);
+        if (depth == 0) {
+            throw new IllegalArgumentException("Illegal depth for divide: 0.");
+        }
+        final long start = System.nanoTime();
+
+        final MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, moves);
+        final Board board = new Board(position);
+        final List<PerftTask> tasks = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            tasks.add(new PerftTask(board.toPosition(), depth - 1));
+            board.unmakeMove();
+        }
+        pool.invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                invokeAll(tasks);
+                return null;
+            }
+        });
+
+        final Map<Move, Long> nodesPerMove = new LinkedHashMap<>();
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            final long moveNodes = tasks.get(i).join();
+            nodesPerMove.put(PackedMove.toMove(moves.get(i)), moveNodes);
+            nodes += moveNodes;
+        }
+        return new Result(depth, nodes, nodesPerMove, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Empties the hash table.
+     */
+    public void clearHashTable() {
+        if (table != null) {
+            for (int i = 0; i < table.length(); i++) {
+                table.set(i, 0L);
+            }
+        }
+    }
+
+    private static void checkDepth(final int depth) {
+        if (depth < 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Illegal depth: " + depth + ".");
+        }
+    }
+
+    private long probe(final long key, final int depth) {
+        final int index = (int) (key & tableMask) * 2;
+        // opaque access suffices: a torn or stale pair fails the key check
+        final long data = table.getOpaque(index + 1);
+        if ((table.getOpaque(index) ^ data) == key && (data & DEPTH_MASK) == depth) {
+            return data >>> DEPTH_BITS;
+        }
+        return -1L;
+    }
+
+    private void store(final long key, final int depth, final long nodes) {
+        final int index = (int) (key & tableMask) * 2;
+        final long data = nodes << DEPTH_BITS | depth;
+        table.setOpaque(index, key ^ data);
+        table.setOpaque(index + 1, data);
+    }
+
+    /**
+     * Counts a subtree, splitting it into subtasks if it is deep enough.
+     */
+    private final class PerftTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Position position;
+        private final int depth;
+
+        PerftTask(final Position position, final int depth) {
+            this.position = position;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth < SPLIT_DEPTH) {
+                final MoveList[] moveLists = new MoveList[Math.max(depth, 1)];
+                for (int i = 0; i < moveLists.length; i++) {
+                    moveLists[i] = new MoveList();
+                }
+                return perft(new Board(position), depth, moveLists);
+            }
+
+            final long key = position.getZobristKey();
+            if (table != null) {
+                final long nodes = probe(key, depth);
+                if (nodes >= 0) {
+                    return nodes;
+                }
+            }
+
+            final MoveList moves = new MoveList();
+            MoveGenerator.generateLegalMoves(position, moves);
+            final Board board = new Board(position);
+            final List<PerftTask> subtasks = new ArrayList<>(moves.size());
+            for (int i = 0; i < moves.size(); i++) {
+                board.makeMove(moves.get(i));
+                subtasks.add(new PerftTask(board.toPosition(), depth - 1));
+                board.unmakeMove();
+            }
+            invokeAll(subtasks);
+
+            long nodes = 0;
+            for (final PerftTask subtask : subtasks) {
+                nodes += subtask.join();
+            }
+            if (table != null) {
+                store(key, depth, nodes);
+            }
+            return nodes;
+        }
+
+        /**
+         * Walks a subtree sequentially, with one reused move list per ply.
+         */
+        private long perft(final Board board, final int depth, final MoveList[] moveLists) {
+            if (depth == 0) {
+                return 1L;
+            }
+            if (depth == 1) {
+                return MoveGenerator.countLegalMoves(board);
+            }
+
+            final long key = board.getZobristKey();
+            if (table != null) {
+                final long nodes = probe(key, depth);
+                if (nodes >= 0) {
+                    return nodes;
+                }
+            }
+
+            final MoveList moves = moveLists[depth - 1];
+            moves.clear();
+            final int count = MoveGenerator.generateLegalMoves(board, moves);
+            long nodes = 0;
+            for (int i = 0; i < count; i++) {
+                board.makeMove(moves.get(i));
+                nodes += perft(board, depth - 1, moveLists);
+                board.unmakeMove();
+            }
+            if (table != null) {
+                store(key, depth, nodes);
+            }
+            return nodes;
+        }
+    }
+
+    /**
+     * The result of {@link #divide(Position, int)}.
+     */
+    @Immutable
+    public static final class Result {
+
+        private final int depth;
+        private final long nodes;
+        private final Map<Move, Long> nodesPerMove;
+        private final Duration elapsed;
+
+        Result(final int depth, final long nodes, final Map<Move, Long> nodesPerMove, final Duration elapsed) {
+            this.depth = depth;
+            this.nodes = nodes;
+            this.nodesPerMove = Collections.unmodifiableMap(nodesPerMove);
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * Returns the depth that was searched.
+         *
+         * @return the depth in plies
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Returns the total number of leaf nodes.
+         *
+         * @return the number of leaf nodes
+         */
+        public long getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Returns the number of leaf nodes below each legal root move, in
+         * generation order.
+         *
+         * @return the unmodifiable map from root move to node count
+         */
+        @NotNull
+        public Map<Move, Long> getNodesPerMove() {
+            return nodesPerMove;
+        }
+
+        /**
+         * Returns the wall-clock time the count took.
+         *
+         * @return the elapsed time
+         */
+        @NotNull
+        public Duration getElapsed() {
+            return elapsed;
+        }
+
+        /**
+         * Returns the number of leaf nodes counted per second of wall-clock
+         * time.
+         *
+         * @return the throughput in nodes per second
+         */
+        public long getNodesPerSecond() {
+            final long nanos = Math.max(1L, elapsed.toNanos());
+            return (long) (nodes * 1e9 / nanos);
+        }
+
+        /**
+         * Returns one <code>move: nodes</code> line per root move, followed
+         * by the totals, in the format printed by most engines' divide
+         * command.
+         *
+         * @return a string representation of this result
+         */
+        @Override
+        public String toString() {
+            final StringBuilder stringBuilder = new StringBuilder();
+            for (final Map.Entry<Move, Long> entry : nodesPerMove.entrySet()) {
+                stringBuilder.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+            }
+            return stringBuilder.append('\n')
+                    .append("Depth: ").append(depth).append('\n')
+                    .append("Nodes: ").append(nodes).append('\n')
+                    .append("Time: ").append(elapsed.toMillis()).append(" ms").append('\n')
+                    .append("Nodes/s: ").append(getNodesPerSecond())
+                    .toString();
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package gg.w6.chesslib.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link Spliterator} over the games of a PGN (Portable Game Notation)
+ * database file, for splitting large databases across threads.
+ *
+ * <p>The file is memory-mapped in windows and scanned byte by byte. A game
+ * starts at a line beginning with an <code>[Event</code> tag, optionally
+ * indented, and extends to the start of the next one, so every game must have
+ * an <code>Event</code> tag, as the PGN standard requires. Anything before the
+ * first game, including a UTF-8 byte order mark, is skipped. Each game is
+ * returned as a string with its trailing whitespace removed. Games that are
+ * pure ASCII, the common case, are decoded by a plain copy; others are
+ * decoded as UTF-8.</p>
+ *
+ * <p>{@link #trySplit()} cuts the remaining byte range in half. A game belongs
+ * to the half its <code>[Event</code> line starts in, so the halves
+ * resynchronise on game boundaries without coordinating.</p>
+ *
+ * <p>Usage example:</p>
+ * <pre><code>
+ * try (Stream&lt;String&gt; pgnStrings = PgnDatabaseSpliterator.stream(Path.of("games.pgn"))) {
+ *     final List&lt;Game&gt; games = pgnStrings.parallel().map(PgnParser::parse).toList();
+ * }
+ * </code></pre>
+ *
+ * <p>A single instance is not thread-safe; the instances returned by
+ * {@link #trySplit()} may be used concurrently with each other and with the
+ * original, as parallel streams do.</p>
+ *
+ * @see PgnDatabaseSplitter
+ */
+@NotThreadSafe
+public final class PgnDatabaseSpliterator implements Spliterator<String> {
+
+    /**
+     * The default number of bytes mapped at a time.
+     */
+    static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+
+    /**
+     * The default smallest number of remaining bytes that is split.
+     */
+    static final long DEFAULT_MIN_SPLIT_SIZE = 1 << 20;
+
+    /**
+     * A rough average size of a game, used to estimate the number of games
+     * in a byte range.
+     */
+    private static final int ESTIMATED_GAME_SIZE = 1024;
+
+    private static final byte[] EVENT_TAG = "[Event".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BYTE_ORDER_MARK = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long dataStart;
+    private final int windowSize;
+    private final long minSplitSize;
+
+    /** The offset from which to look for the next game. */
+    private long position;
+    /** The offset before which this spliterator's games start. */
+    private long end;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int windowLength;
+    private byte[] scratch = new byte[ESTIMATED_GAME_SIZE * 4];
+
+    /**
+     * Constructs a <code>PgnDatabaseSpliterator</code> over all games of the
+     * file open in the given channel. The channel is not closed by this
+     * spliterator.
+     *
+     * @param channel a channel open for reading on a PGN file
+     * @throws IOException if an I/O error occurs reading the file
+     */
+    public PgnDatabaseSpliterator(@NotNull final FileChannel channel) throws IOException {
+        this(channel, DEFAULT_WINDOW_SIZE, DEFAULT_MIN_SPLIT_SIZE);
+    }
+
+    PgnDatabaseSpliterator(final FileChannel channel, final int windowSize, final long minSplitSize)
+            throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+        this.minSplitSize = minSplitSize;
+        this.dataStart = startsWithByteOrderMark() ? BYTE_ORDER_MARK.length : 0;
+        this.position = dataStart;
+        this.end = fileSize;
+    }
+
+    private PgnDatabaseSpliterator(final PgnDatabaseSpliterator parent, final long position, final long end) {
+        this.channel = parent.channel;
+        this.fileSize = parent.fileSize;
+        this.dataStart = parent.dataStart;
+        this.windowSize = parent.windowSize;
+        this.minSplitSize = parent.minSplitSize;
+        this.position = position;
+        this.end = end;
+    }
+
+    /**
+     * Opens the given PGN file and returns a sequential stream of its games.
+     * Closing the stream closes the file; call
+     * {@link Stream#parallel()} to split it across threads.
+     *
+     * @param path the path of the PGN file
+     * @return the stream of PGN game strings
+     * @throws IOException if an I/O error occurs opening the file
+     */
+    @NotNull
+    public static Stream<String> stream(@NotNull final Path path) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return StreamSupport.stream(new PgnDatabaseSpliterator(channel), false)
+                    .onClose(() -> {
+                        try {
+                            channel.close();
+                        } catch (final IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(@NotNull final Consumer<? super String> action) {
+        try {
+            final long gameStart = findGameStart(position, end);
+            if (gameStart < 0) {
+                position = end;
+                return false;
+            }
+            final long nextGameStart = findGameStart(nextLineStart(gameStart), fileSize);
+            position = nextGameStart < 0 ? fileSize : nextGameStart;
+            action.accept(decode(gameStart, position));
+            return true;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    @Nullable
+    public Spliterator<String> trySplit() {
+        final long remaining = end - position;
+        if (remaining < minSplitSize) {
+            return null;
+        }
+        final long middle = position + remaining / 2;
+        final PgnDatabaseSpliterator prefix = new PgnDatabaseSpliterator(this, position, middle);
+        position = middle;
+        return prefix;
+    }
+
+    /**
+     * Returns an estimate of the number of remaining games, based on the
+     * number of remaining bytes.
+     *
+     * @return the estimated number of remaining games
+     */
+    @Override
+    public long estimateSize() {
+        return Math.max(0, end - position) / ESTIMATED_GAME_SIZE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * Returns the offset of the first line at or after <code>from</code>
+     * that starts before <code>limit</code> and opens with an
+     * <code>[Event</code> tag, or <code>-1</code> if there is none.
+     */
+    private long findGameStart(final long from, final long limit) throws IOException {
+        long lineStart = isLineStart(from) ? from : nextLineStart(from);
+        while (lineStart < limit) {
+            if (isEventTagLine(lineStart)) {
+                return lineStart;
+            }
+            lineStart = nextLineStart(lineStart);
+        }
+        return -1;
+    }
+
+    private boolean isLineStart(final long offset) throws IOException {
+        return offset <= dataStart || (offset < fileSize && byteAt(offset - 1) == '\n');
+    }
+
+    /**
+     * Returns the offset after the next line feed at or after the given
+     * offset, or the file size if there is none.
+     */
+    private long nextLineStart(long offset) throws IOException {
+        while (offset < fileSize) {
+            if (byteAt(offset++) == '\n') {
+                return offset;
+            }
+        }
+        return fileSize;
+    }
+
+    private boolean isEventTagLine(long offset) throws IOException {
+        while (offset < fileSize && (byteAt(offset) == ' ' || byteAt(offset) == '\t')) {
+            offset++;
+        }
+        if (offset + EVENT_TAG.length >= fileSize) {
+            return false;
+        }
+        for (final byte b : EVENT_TAG) {
+            if (byteAt(offset++) != b) {
+                return false;
+            }
+        }
+        final byte next = byteAt(offset);
+        return next == ' ' || next == '\t';
+    }
+
+    private boolean startsWithByteOrderMark() throws IOException {
+        if (fileSize < BYTE_ORDER_MARK.length) {
+            return false;
+        }
+        for (int i = 0; i < BYTE_ORDER_MARK.length; i++) {
+            if (byteAt(i) != BYTE_ORDER_MARK[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the given range of the file, without its trailing whitespace,
+     * as ASCII if it is, and as UTF-8 otherwise.
+     */
+    private String decode(final long start, long end) throws IOException {
+        while (end > start && byteAt(end - 1) <= ' ' && byteAt(end - 1) >= 0) {
+            end--;
+        }
+        final long length = end - start;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IOException("Game at offset " + start + " is too large: " + length + " bytes.");
+        }
+        final int size = (int) length;
+        if (start < windowStart || end > windowStart + windowLength) {
+            map(start, Math.max(windowSize, size));
+        }
+        if (scratch.length < size) {
+            scratch = new byte[Math.max(size, scratch.length * 2)];
+        }
+        window.get((int) (start - windowStart), scratch, 0, size);
+
+        boolean ascii = true;
+        for (int i = 0; i < size; i++) {
+            if (scratch[i] < 0) {
+                ascii = false;
+                break;
+            }
+        }
+        return new String(scratch, 0, size, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+
+    private byte byteAt(final long offset) throws IOException {
+        long relative = offset - windowStart;
+        if (window == null || relative < 0 || relative >= windowLength) {
+            map(offset, windowSize);
+            relative = 0;
+        }
+        return window.get((int) relative);
+    }
+
+    /**
+     * Maps up to <code>length</code> bytes of the file starting at the given
+     * offset.
+     */
+    private void map(final long offset, final int length) throws IOException {
+        windowStart = offset;
+        windowLength = (int) Math.min(length, fileSize - offset);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, windowLength);
+    }
+}
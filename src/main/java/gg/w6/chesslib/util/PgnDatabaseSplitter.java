@@ -23,7 +23,8 @@ import java.util.NoSuchElementException;
  * }
  * </code></pre>
  *
- * <p>This class is not thread-safe.</p>
+ * <p>This class is not thread-safe. To split a large database across threads,
+ * use {@link PgnDatabaseSpliterator}.</p>
  */
 public class PgnDatabaseSplitter implements Iterator<String>, Iterable<String>, AutoCloseable {
     private final BufferedReader reader;
@@ -0,0 +1,524 @@
+package gg.w6.chesslib.util;
+
+import gg.w6.chesslib.model.Game;
+import gg.w6.chesslib.model.Move;
+import gg.w6.chesslib.model.Position;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Converts a PGN database into replayed games on several threads: one thread
+ * splits the database into games, a pool of workers parses each game with
+ * {@link PgnParser} and replays its moves with {@link SanParser} and
+ * {@link Position#applyTo(Move)}, and the calling thread receives the
+ * results.
+ *
+ * <p>The stages are connected by bounded queues, and at most the configured
+ * queue capacity of games are in flight at once, so a slow consumer slows the
+ * splitter down instead of filling the heap. Results are delivered in
+ * completion order, or in the order of the source if the pipeline is
+ * ordered.</p>
+ *
+ * <p>A game whose SAN cannot be replayed, because it is malformed, ambiguous
+ * or names a move that is not legal, is delivered as a failed
+ * {@link ReplayedGame} holding the moves up to the bad one; it does not stop
+ * the pipeline. An exception thrown by the source or the consumer does.</p>
+ *
+ * <p>Usage example:</p>
+ * <pre><code>
+ * final PgnPipeline pipeline = new PgnPipelineBuilder()
+ *     .setSource(Path.of("games.pgn"))
+ *     .setParallelism(32)
+ *     .toPipeline();
+ * final PgnPipeline.Statistics statistics = pipeline.run(replayedGame -&gt; {
+ *     // ...
+ * });
+ * System.out.println(statistics);
+ * </code></pre>
+ *
+ * @see PgnPipelineBuilder
+ */
+@ThreadSafe
+public final class PgnPipeline {
+
+    private static final Position STARTING_POSITION =
+            Position.valueOf("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+
+    /** Tells a worker that the source is exhausted. */
+    private static final Task END_OF_INPUT = new Task(-1, null);
+    /** Tells the consumer that a worker has finished. */
+    private static final ReplayedGame END_OF_OUTPUT =
+            new ReplayedGame(-1, null, Collections.emptyList(), null, null, -1);
+
+    private static final long POLL_MILLIS = 100;
+
+    private final Path path;
+    private final Iterable<String> pgnStrings;
+    private final int parallelism;
+    private final int queueCapacity;
+    private final boolean ordered;
+    private final ThreadFactory threadFactory;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder gamesSplit = new LongAdder();
+    private final LongAdder gamesParsed = new LongAdder();
+    private final LongAdder gamesReplayed = new LongAdder();
+    private final LongAdder gamesFailed = new LongAdder();
+    private final LongAdder pliesReplayed = new LongAdder();
+    private final LongAdder gamesDelivered = new LongAdder();
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    PgnPipeline(final Path path, final Iterable<String> pgnStrings, final int parallelism,
+                final int queueCapacity, final boolean ordered, final ThreadFactory threadFactory) {
+        this.path = path;
+        this.pgnStrings = pgnStrings;
+        this.parallelism = parallelism;
+        this.queueCapacity = queueCapacity;
+        this.ordered = ordered;
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Runs the pipeline over the whole source, passing every replayed game
+     * to the given consumer on the calling thread, and waits for it to
+     * finish.
+     *
+     * @param consumer receives the replayed games
+     * @return the final statistics of the run
+     * @throws InterruptedException if the calling thread is interrupted;
+     *                              the pipeline is stopped
+     * @throws UncheckedIOException if reading the source fails
+     * @throws IllegalStateException if the pipeline is already running
+     */
+    @NotNull
+    public Statistics run(@NotNull final Consumer<? super ReplayedGame> consumer) throws InterruptedException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Pipeline is already running.");
+        }
+        try {
+            resetStatistics();
+            final BlockingQueue<Task> input = new ArrayBlockingQueue<>(queueCapacity);
+            // room for every game in flight and every worker's end marker,
+            // so workers never block on output
+            final BlockingQueue<ReplayedGame> output = new ArrayBlockingQueue<>(queueCapacity + parallelism);
+            final Semaphore inFlight = new Semaphore(queueCapacity);
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+            final ExecutorService executor = Executors.newFixedThreadPool(parallelism + 1, threadFactory);
+            try {
+                executor.execute(() -> split(input, inFlight, failure));
+                for (int i = 0; i < parallelism; i++) {
+                    executor.execute(() -> work(input, output, failure));
+                }
+                consume(output, inFlight, failure, consumer);
+            } finally {
+                executor.shutdownNow();
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                endNanos = System.nanoTime();
+            }
+
+            final Throwable throwable = failure.get();
+            if (throwable instanceof final RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (throwable instanceof final Error error) {
+                throw error;
+            } else if (throwable instanceof final IOException ioException) {
+                throw new UncheckedIOException(ioException);
+            }
+            return getStatistics();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Returns the counters of the current or last run. While the pipeline
+     * runs, this may be called from any thread to monitor its progress.
+     *
+     * @return a snapshot of the statistics
+     */
+    @NotNull
+    public Statistics getStatistics() {
+        final long start = startNanos;
+        final long end = running.get() ? System.nanoTime() : endNanos;
+        return new Statistics(gamesSplit.sum(), gamesParsed.sum(), gamesReplayed.sum(), gamesFailed.sum(),
+                pliesReplayed.sum(), gamesDelivered.sum(), Duration.ofNanos(Math.max(0, end - start)));
+    }
+
+    private void resetStatistics() {
+        gamesSplit.reset();
+        gamesParsed.reset();
+        gamesReplayed.reset();
+        gamesFailed.reset();
+        pliesReplayed.reset();
+        gamesDelivered.reset();
+        startNanos = System.nanoTime();
+        endNanos = startNanos;
+    }
+
+    /**
+     * The splitter stage: numbers the games of the source and queues them,
+     * then queues one end marker per worker.
+     */
+    private void split(final BlockingQueue<Task> input, final Semaphore inFlight,
+                       final AtomicReference<Throwable> failure) {
+        try {
+            if (path != null) {
+                try (Stream<String> stream = PgnDatabaseSpliterator.stream(path)) {
+                    queueAll(stream.iterator(), input, inFlight, failure);
+                }
+            } else {
+                queueAll(pgnStrings.iterator(), input, inFlight, failure);
+            }
+            for (int i = 0; i < parallelism; i++) {
+                input.put(END_OF_INPUT);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final Throwable t) {
+            failure.compareAndSet(null, t instanceof UncheckedIOException e ? e.getCause() : t);
+        }
+    }
+
+    private void queueAll(final Iterator<String> pgnIterator, final BlockingQueue<Task> input,
+                          final Semaphore inFlight, final AtomicReference<Throwable> failure)
+            throws InterruptedException {
+        long sequenceNumber = 0;
+        while (failure.get() == null && pgnIterator.hasNext()) {
+            final String pgn = pgnIterator.next();
+            inFlight.acquire();
+            input.put(new Task(sequenceNumber++, pgn));
+            gamesSplit.increment();
+        }
+    }
+
+    /**
+     * The worker stage: parses and replays queued games until it takes an
+     * end marker.
+     */
+    private void work(final BlockingQueue<Task> input, final BlockingQueue<ReplayedGame> output,
+                      final AtomicReference<Throwable> failure) {
+        try {
+            for (Task task = input.take(); task != END_OF_INPUT; task = input.take()) {
+                output.put(replay(task));
+            }
+            output.put(END_OF_OUTPUT);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+    }
+
+    private ReplayedGame replay(final Task task) {
+        final Game game = PgnParser.parse(task.pgn());
+        gamesParsed.increment();
+
+        final List<String> sanStrings = game.sanStrings();
+        final List<Move> moves = new ArrayList<>(sanStrings.size());
+        Position position = STARTING_POSITION;
+        for (int ply = 0; ply < sanStrings.size(); ply++) {
+            final String san = sanStrings.get(ply);
+            if (san.isEmpty()) {
+                continue;
+            }
+            // only legal moves are parsed, so applying them cannot fail
+            final ParseResult<Move> result = SanParser.tryParse(san, position);
+            if (!result.isSuccess()) {
+                gamesFailed.increment();
+                pliesReplayed.add(moves.size());
+                return new ReplayedGame(task.sequenceNumber(), game, moves, position, result.getError(), ply);
+            }
+            final Move move = result.getValue();
+            moves.add(move);
+            position = position.applyTo(move);
+        }
+        gamesReplayed.increment();
+        pliesReplayed.add(moves.size());
+        return new ReplayedGame(task.sequenceNumber(), game, moves, position, null, -1);
+    }
+
+    /**
+     * The consumer stage, on the calling thread: delivers results, in order
+     * if required, until every worker has finished or a stage has failed.
+     */
+    private void consume(final BlockingQueue<ReplayedGame> output, final Semaphore inFlight,
+                         final AtomicReference<Throwable> failure, final Consumer<? super ReplayedGame> consumer)
+            throws InterruptedException {
+        final Map<Long, ReplayedGame> pending = new HashMap<>();
+        long nextSequenceNumber = 0;
+        int finishedWorkers = 0;
+        try {
+            while (finishedWorkers < parallelism && failure.get() == null) {
+                final ReplayedGame replayedGame = output.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (replayedGame == null) {
+                    continue;
+                } else if (replayedGame == END_OF_OUTPUT) {
+                    finishedWorkers++;
+                } else if (!ordered) {
+                    deliver(replayedGame, inFlight, consumer);
+                } else {
+                    pending.put(replayedGame.getSequenceNumber(), replayedGame);
+                    for (ReplayedGame next = pending.remove(nextSequenceNumber); next != null;
+                         next = pending.remove(nextSequenceNumber)) {
+                        deliver(next, inFlight, consumer);
+                        nextSequenceNumber++;
+                    }
+                }
+            }
+        } catch (final RuntimeException | Error e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    private void deliver(final ReplayedGame replayedGame, final Semaphore inFlight,
+                         final Consumer<? super ReplayedGame> consumer) {
+        inFlight.release();
+        consumer.accept(replayedGame);
+        gamesDelivered.increment();
+    }
+
+    private record Task(long sequenceNumber, String pgn) {
+    }
+
+    /**
+     * A game of the source, parsed and replayed as far as possible.
+     */
+    @Immutable
+    public static final class ReplayedGame {
+
+        private final long sequenceNumber;
+        private final Game game;
+        private final List<Move> moves;
+        private final Position finalPosition;
+        private final ParseError error;
+        private final int errorPly;
+
+        ReplayedGame(final long sequenceNumber, final Game game, final List<Move> moves,
+                     final Position finalPosition, final ParseError error, final int errorPly) {
+            this.sequenceNumber = sequenceNumber;
+            this.game = game;
+            this.moves = Collections.unmodifiableList(moves);
+            this.finalPosition = finalPosition;
+            this.error = error;
+            this.errorPly = errorPly;
+        }
+
+        /**
+         * Returns the position of this game in the source, counting from
+         * <code>0</code>.
+         *
+         * @return the sequence number of this game
+         */
+        public long getSequenceNumber() {
+            return sequenceNumber;
+        }
+
+        /**
+         * Returns the parsed game.
+         *
+         * @return the game
+         */
+        @NotNull
+        public Game getGame() {
+            return game;
+        }
+
+        /**
+         * Returns the moves of the game, up to but excluding the first one
+         * that could not be replayed.
+         *
+         * @return the unmodifiable list of replayed moves
+         */
+        @NotNull
+        public List<Move> getMoves() {
+            return moves;
+        }
+
+        /**
+         * Returns the position after the replayed moves.
+         *
+         * @return the final position, or the position before the bad move
+         *         if the replay failed
+         */
+        @NotNull
+        public Position getFinalPosition() {
+            return finalPosition;
+        }
+
+        /**
+         * Returns whether every move of the game was replayed.
+         *
+         * @return <code>true</code> if the replay succeeded
+         */
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * Returns why the replay failed.
+         *
+         * @return the error, or null if the replay succeeded
+         */
+        @Nullable
+        public ParseError getError() {
+            return error;
+        }
+
+        /**
+         * Returns the index in {@link Game#sanStrings()} of the SAN that
+         * could not be replayed.
+         *
+         * @return the index of the bad SAN, or <code>-1</code> if the replay
+         *         succeeded
+         */
+        public int getErrorPly() {
+            return errorPly;
+        }
+    }
+
+    /**
+     * The throughput counters of a run of a {@link PgnPipeline}, per stage.
+     */
+    @Immutable
+    public static final class Statistics {
+
+        private final long gamesSplit;
+        private final long gamesParsed;
+        private final long gamesReplayed;
+        private final long gamesFailed;
+        private final long pliesReplayed;
+        private final long gamesDelivered;
+        private final Duration elapsed;
+
+        Statistics(final long gamesSplit, final long gamesParsed, final long gamesReplayed, final long gamesFailed,
+                   final long pliesReplayed, final long gamesDelivered, final Duration elapsed) {
+            this.gamesSplit = gamesSplit;
+            this.gamesParsed = gamesParsed;
+            this.gamesReplayed = gamesReplayed;
+            this.gamesFailed = gamesFailed;
+            this.pliesReplayed = pliesReplayed;
+            this.gamesDelivered = gamesDelivered;
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * Returns the number of games the splitter has queued.
+         *
+         * @return the number of games split
+         */
+        public long getGamesSplit() {
+            return gamesSplit;
+        }
+
+        /**
+         * Returns the number of games the workers have parsed.
+         *
+         * @return the number of games parsed
+         */
+        public long getGamesParsed() {
+            return gamesParsed;
+        }
+
+        /**
+         * Returns the number of games replayed to the end.
+         *
+         * @return the number of games replayed
+         */
+        public long getGamesReplayed() {
+            return gamesReplayed;
+        }
+
+        /**
+         * Returns the number of games with a SAN that could not be replayed.
+         *
+         * @return the number of failed games
+         */
+        public long getGamesFailed() {
+            return gamesFailed;
+        }
+
+        /**
+         * Returns the number of moves replayed, over all games.
+         *
+         * @return the number of plies replayed
+         */
+        public long getPliesReplayed() {
+            return pliesReplayed;
+        }
+
+        /**
+         * Returns the number of games passed to the consumer.
+         *
+         * @return the number of games delivered
+         */
+        public long getGamesDelivered() {
+            return gamesDelivered;
+        }
+
+        /**
+         * Returns the wall-clock time of the run so far.
+         *
+         * @return the elapsed time
+         */
+        @NotNull
+        public Duration getElapsed() {
+            return elapsed;
+        }
+
+        /**
+         * Returns the number of games delivered per second of wall-clock
+         * time.
+         *
+         * @return the throughput in games per second
+         */
+        public long getGamesPerSecond() {
+            return perSecond(gamesDelivered);
+        }
+
+        private long perSecond(final long count) {
+            return (long) (count * 1e9 / Math.max(1L, elapsed.toNanos()));
+        }
+
+        /**
+         * Returns one line per stage with its count and rate.
+         *
+         * @return a string representation of these statistics
+         */
+        @Override
+        public String toString() {
+            return "Split: " + gamesSplit + " games (" + perSecond(gamesSplit) + "/s)\n"
+                    + "Parsed: " + gamesParsed + " games (" + perSecond(gamesParsed) + "/s)\n"
+                    + "Replayed: " + gamesReplayed + " games, " + gamesFailed + " failed, "
+                    + pliesReplayed + " plies (" + perSecond(pliesReplayed) + "/s)\n"
+                    + "Delivered: " + gamesDelivered + " games (" + perSecond(gamesDelivered) + "/s)\n"
+                    + "Time: " + elapsed.toMillis() + " ms";
+        }
+    }
+}
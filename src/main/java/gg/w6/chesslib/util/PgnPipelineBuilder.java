@@ -0,0 +1,161 @@
+package gg.w6.chesslib.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A mutable builder class for configuring {@link PgnPipeline} instances.
+ *
+ * <p>Usage example:</p>
+ * <pre><code>
+ * PgnPipeline pipeline = new PgnPipelineBuilder()
+ *     .setSource(Path.of("games.pgn"))
+ *     .setParallelism(32)
+ *     .setOrdered(true)
+ *     .toPipeline();
+ * </code></pre>
+ *
+ * <p>By default, the pipeline runs one worker per available processor,
+ * holds at most {@link #DEFAULT_QUEUE_CAPACITY} games in flight, and delivers
+ * results in completion order.</p>
+ */
+public class PgnPipelineBuilder {
+
+    /**
+     * The default capacity of the queues between the stages.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private Path path;
+    private Iterable<String> pgnStrings;
+    private int parallelism;
+    private int queueCapacity;
+    private boolean ordered;
+    private ThreadFactory threadFactory;
+
+    /**
+     * Constructs a new {@code PgnPipelineBuilder} with the default settings
+     * and no source.
+     */
+    public PgnPipelineBuilder() {
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        this.ordered = false;
+        this.threadFactory = defaultThreadFactory();
+    }
+
+    /**
+     * Sets a PGN database file as the source. It is split with a
+     * {@link PgnDatabaseSpliterator}.
+     *
+     * @param path the path of the PGN file
+     * @return this <code>PgnPipelineBuilder</code> instance
+     */
+    @NotNull
+    public PgnPipelineBuilder setSource(@NotNull final Path path) {
+        this.path = path;
+        this.pgnStrings = null;
+        return this;
+    }
+
+    /**
+     * Sets the PGN strings of single games as the source, e.g. a
+     * {@link PgnDatabaseSplitter}. The source is iterated by one thread.
+     *
+     * @param pgnStrings the PGN strings of the games
+     * @return this <code>PgnPipelineBuilder</code> instance
+     */
+    @NotNull
+    public PgnPipelineBuilder setSource(@NotNull final Iterable<String> pgnStrings) {
+        this.pgnStrings = pgnStrings;
+        this.path = null;
+        return this;
+    }
+
+    /**
+     * Sets the number of worker threads that parse and replay games.
+     *
+     * @param parallelism the number of worker threads
+     * @return this <code>PgnPipelineBuilder</code> instance
+     * @throws IllegalArgumentException if <code>parallelism</code> is not
+     *                                  positive
+     */
+    @NotNull
+    public PgnPipelineBuilder setParallelism(final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Illegal parallelism: " + parallelism + ".");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the capacity of the queues between the stages, which is also the
+     * greatest number of games in flight at once.
+     *
+     * @param queueCapacity the queue capacity
+     * @return this <code>PgnPipelineBuilder</code> instance
+     * @throws IllegalArgumentException if <code>queueCapacity</code> is not
+     *                                  positive
+     */
+    @NotNull
+    public PgnPipelineBuilder setQueueCapacity(final int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Illegal queue capacity: " + queueCapacity + ".");
+        }
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Sets whether results are delivered in the order of the source, rather
+     * than in the order they are completed.
+     *
+     * @param ordered {@code true} to preserve the input order
+     * @return this <code>PgnPipelineBuilder</code> instance
+     */
+    @NotNull
+    public PgnPipelineBuilder setOrdered(final boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    /**
+     * Sets the factory for the splitter and worker threads. By default they
+     * are daemon threads named <code>pgn-pipeline-</code><i>n</i>.
+     *
+     * @param threadFactory the thread factory
+     * @return this <code>PgnPipelineBuilder</code> instance
+     */
+    @NotNull
+    public PgnPipelineBuilder setThreadFactory(@NotNull final ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+        return this;
+    }
+
+    /**
+     * Builds a {@link PgnPipeline} with the current settings.
+     *
+     * @return the pipeline
+     * @throws IllegalStateException if no source has been set
+     */
+    @NotNull
+    public PgnPipeline toPipeline() {
+        if (path == null && pgnStrings == null) {
+            throw new IllegalStateException("No source set.");
+        }
+        return new PgnPipeline(path, pgnStrings, parallelism, queueCapacity, ordered, threadFactory);
+    }
+
+    private static ThreadFactory defaultThreadFactory() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, "pgn-pipeline-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,13 +1,8 @@
 package gg.w6.chesslib.util;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import gg.w6.chesslib.model.*;
-import gg.w6.chesslib.model.piece.King;
-import gg.w6.chesslib.model.piece.Pawn;
 import gg.w6.chesslib.model.piece.Piece;
-import gg.w6.chesslib.model.piece.Rider;
+import gg.w6.chesslib.model.piece.PieceType;
 
 
 /**
@@ -85,88 +80,27 @@ public class PositionValidator {
     public static Legality getLegality(Position position)
             throws IllegalStateException {
         
-        Square whiteKingSquare = null;
-        Square blackKingSquare = null;
-        List<Square> occupiedSquares = new ArrayList<>();
-
-        for (File file : File.values()) {
-
-            for (Rank rank : Rank.values()) {
-
-                Square currentSquare = position.getSquare(file, rank);
-                Piece currentPiece = currentSquare.getPiece();
-
-                if (currentPiece == null) continue;
-
-                if (currentPiece instanceof King) {
-                    if (currentPiece.getColor() == Color.WHITE) {
-                        if (whiteKingSquare != null) {
-                            return Legality.TOO_MANY_KINGS;
-                        }
-                        whiteKingSquare = currentSquare;
-                    } else {
-                        if (blackKingSquare != null) {
-                            return Legality.TOO_MANY_KINGS;
-                        }
-                        blackKingSquare = currentSquare;
-                    }
-                }
-
-                occupiedSquares.add(currentSquare);
-            }
+        final long whiteKings = position.getBitboard(Color.WHITE, PieceType.KING);
+        final long blackKings = position.getBitboard(Color.BLACK, PieceType.KING);
 
+        if (Long.bitCount(whiteKings) > 1 || Long.bitCount(blackKings) > 1) {
+            return Legality.TOO_MANY_KINGS;
         }
 
-        if (whiteKingSquare == null || blackKingSquare == null) {
+        if (whiteKings == 0 || blackKings == 0) {
             return Legality.MISSING_KING;
         }
 
-        final Color toMove = position.getToMove();
-
-        final Square notToMoveKingSquare = toMove == Color.WHITE
-                ? blackKingSquare
-                : whiteKingSquare;
-
-        for (final Square square : occupiedSquares) {
-            if (square.equals(notToMoveKingSquare)) continue;
-
-            final Piece piece = square.getPiece();
-            assert piece != null;
-            final Color pieceColor = piece.getColor();
-
-            if (pieceColor != position.getToMove() && !(piece instanceof Pawn))
-                continue;
-
-            if (piece instanceof Pawn) {
-
-                if (square.getCoordinate().getRank() == Rank.ONE
-                        || square.getCoordinate().getRank() == Rank.EIGHT)
-                    return Legality.ILLEGAL_PAWN_RANK;
-
-                if (pieceColor != toMove) continue;
-
-                if (Math.abs(notToMoveKingSquare.getCoordinate().getFile()
-                        .ordinal() - square.getCoordinate().getFile().ordinal())
-                        == 1 && notToMoveKingSquare.getCoordinate().getRank()
-                        .ordinal() - square.getCoordinate().getRank().ordinal()
-                        == (toMove == Color.WHITE ? 1 : -1))
-                    return Legality.CAN_CAPTURE_KING;
-            }
+        final long pawns = position.getBitboard(Color.WHITE, PieceType.PAWN)
+                | position.getBitboard(Color.BLACK, PieceType.PAWN);
+        if ((pawns & (Bitboards.RANK_1 | Bitboards.RANK_8)) != 0) {
+            return Legality.ILLEGAL_PAWN_RANK;
+        }
 
-            if (piece instanceof final Rider rider) {
-                for (Offset offset : rider.getOffsets()) {
-                    for (Coordinate coordinate
-                            : offset.extendFrom(
-                            square.getCoordinate(), rider.getRange())) {
-                        Square visionSquare = position.getSquare(coordinate);
-                        Piece visionPiece = visionSquare.getPiece();
-                        if (visionPiece == null) continue;
-                        if (visionSquare.equals(notToMoveKingSquare)) {
-                            return Legality.CAN_CAPTURE_KING;
-                        } else break;
-                    }
-                }
-            }
+        final Color toMove = position.getToMove();
+        final Color notToMove = toMove == Color.WHITE ? Color.BLACK : Color.WHITE;
+        if (Attacks.attackersTo(position, position.getKingSquare(notToMove), toMove, position.getOccupancy()) != 0) {
+            return Legality.CAN_CAPTURE_KING;
         }
 
         // TODO: return the rest of the enums? Don't want to slow down getLegalMoves() though...
@@ -1,7 +1,6 @@
 package gg.w6.chesslib.util;
 
 import gg.w6.chesslib.model.*;
-import gg.w6.chesslib.model.piece.King;
 import gg.w6.chesslib.model.piece.Pawn;
 import gg.w6.chesslib.model.piece.Piece;
 import gg.w6.chesslib.model.piece.Rider;
@@ -10,7 +9,6 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 
 /**
  * A utility class providing static methods for analyzing chess {@link Position} states.
@@ -30,70 +28,15 @@ public class Positions {
      * Determines whether the king of the player whose turn it is in the given {@link Position}
      * is currently in check.
      *
-     * <p>This method is useful for legal move generation.</p>
+     * <p>Rather than iterating over the opponent's pieces, this method looks
+     * outward from the king's square for pieces that attack it. The result is
+     * cached on the position, see {@link Position#isInCheck()}.</p>
      *
      * @param position the current position to evaluate
      * @return {@code true} if the king to move is in check, {@code false} otherwise
      */
     public static boolean isKingToMoveInCheck(@NotNull final Position position) {
-        for (int fileIndex = 0; fileIndex < File.COUNT; fileIndex++) {
-            for (int rankIndex = 0; rankIndex < Rank.COUNT; rankIndex++) {
-    
-                final Square origin = position.getSquare(fileIndex, rankIndex);
-                final Piece originPiece = origin.getPiece();
-    
-                if (originPiece == null)
-                    continue;
-                if (originPiece.getColor() == position.getToMove())
-                    continue;
-    
-                if (originPiece instanceof final Rider rider) {
-                    for (final Offset offset : rider.getOffsets()) {
-                        for (final Coordinate coordinate : offset.extendFrom(origin.getCoordinate(),
-                                rider.getRange())) {
-                            final Square targetSquare = position.getSquare(coordinate);
-                            final Piece targetPiece = targetSquare.getPiece();
-    
-                            if (targetPiece == null)
-                                continue;
-    
-                            if (targetPiece.getColor() == position.getToMove() && targetPiece instanceof King) {
-                                return true;
-                            } else {
-                                break;
-                            }
-                        }
-                    }
-                } else if (originPiece instanceof Pawn) {
-                    final int direction = originPiece.getColor() == Color.WHITE ? 1 : -1;
-    
-                    if (fileIndex != 0) {
-                        if (!position.getSquare(fileIndex - 1, rankIndex + direction).isEmpty()
-                                && position.getSquare(fileIndex - 1, rankIndex + direction).getPiece() instanceof King
-                                && Objects.requireNonNull(position.getSquare(fileIndex - 1, rankIndex + direction).getPiece())
-                                        .getColor() == position.getToMove()) {
-                            return true;
-                        }
-                    }
-    
-                    if (fileIndex != File.COUNT - 1) {
-                        if (!position.getSquare(fileIndex + 1, rankIndex + direction).isEmpty()
-                                && position.getSquare(fileIndex + 1, rankIndex + direction).getPiece() instanceof King
-                                && Objects.requireNonNull(position.getSquare(fileIndex + 1, rankIndex + direction).getPiece())
-                                        .getColor() == position.getToMove()) {
-                            return true;
-                        }
-                    }
-    
-                } else {
-                    throw new IllegalStateException("The " + originPiece.getColor()
-                            + "\"" + originPiece + "\" at " + origin + " is not a"
-                            + " Rider or Pawn. FEN: \"" + position.generateFEN()
-                            + "\".");
-                }
-            }
-        }
-        return false;
+        return position.isInCheck();
     }
 
     /**
@@ -101,6 +44,9 @@ public class Positions {
      * "see" from its origin, taking into account board boundaries and blocking
      * pieces.
      *
+     * <p>The coordinates are listed in ascending square index order (a1, b1,
+     * ..., h8). See {@link Attacks#riderAttacks(Rider, int, long)}.</p>
+     *
      * @param rider the {@link Rider} piece to evaluate
      * @param originCoordinate the starting coordinate of the rider
      * @param position the current board position
@@ -111,13 +57,9 @@ public class Positions {
                                                   @NotNull final Coordinate originCoordinate,
                                                   @NotNull final Position position) {
         final List<Coordinate> visionList = new ArrayList<>();
-        for (final Offset offset : rider.getOffsets()) {
-            for (final Coordinate candidate : offset.extendFrom(originCoordinate, rider.getRange())) {
-                visionList.add(candidate);
-                if (position.getSquare(candidate).getPiece() != null) {
-                    break;
-                }
-            }
+        for (long vision = Attacks.riderAttacks(rider, originCoordinate.getSquareIndex(), position.getOccupancy());
+                vision != 0; vision &= vision - 1) {
+            visionList.add(Coordinate.valueOf(Long.numberOfTrailingZeros(vision)));
         }
         return visionList;
     }
@@ -126,6 +68,11 @@ public class Positions {
      * Determines whether the specified {@code target} square is attacked by any piece
      * of the given {@code targeterColor} in the provided {@link Position}.
      *
+     * <p>The lookup is done in reverse: knight, king and pawn attack tables
+     * and slider rays are probed from the target square and intersected with
+     * the targeter's pieces, so its cost does not depend on how many pieces
+     * are on the board.</p>
+     *
      * @param target the square being checked for targeting
      * @param targeterColor the color of the attacking pieces
      * @param position the current board position
@@ -134,37 +81,7 @@ public class Positions {
     public static boolean isTargetedByColor(@NotNull final Coordinate target,
                                             @NotNull final Color targeterColor,
                                             @NotNull final Position position) {
-
-        for (int fileIndex = 0; fileIndex < File.COUNT; fileIndex++) {
-            for (int rankIndex = 0; rankIndex < Rank.COUNT; rankIndex++) {
-                final Coordinate origin = Coordinate.valueOf(fileIndex, rankIndex);
-                final Piece piece = position.getSquare(origin).getPiece();
-
-                if (piece == null || piece.getColor() != targeterColor) {
-                    continue;
-                }
-
-                if (piece instanceof final Rider rider) {
-                    for (final Offset offset : rider.getOffsets()) {
-                        for (final Coordinate candidate : offset.extendFrom(origin, rider.getRange())) {
-                            if (candidate.equals(target)) {
-                                return true;
-                            } else if(position.getSquare(candidate).getPiece() != null) {
-                                break;
-                            }
-                        }
-                    }
-                } else {
-                    // piece must be a pawn
-
-                    final int direction = targeterColor == Color.WHITE ? 1 : -1;
-                    if (origin.getRankIndex() + direction == target.getRankIndex() && Math.abs(origin.getFileIndex() - target.getFileIndex()) == 1) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+        return Attacks.attackersTo(position, target.getSquareIndex(), targeterColor, position.getOccupancy()) != 0;
     }
 
     /**
@@ -205,7 +122,7 @@ public class Positions {
      * @return <code>true</code> if the <code>Position</code> is checkmate, <code>false</code> otherwise.
      */
     public static boolean isCheckmate(Position position) {
-        return !MoveGenerator.oneOrMoreLegalMoves(position) && isKingToMoveInCheck(position);
+        return position.isCheckmate();
     }
 
     /**
@@ -215,11 +132,11 @@ public class Positions {
      * @return <code>true</code> if the <code>Position</code> is stalemate, <code>false</code> otherwise.
      */
     public static boolean isStalemate(Position position) {
-        return !MoveGenerator.oneOrMoreLegalMoves(position) && !isKingToMoveInCheck(position);
+        return position.isStalemate();
     }
 
     /**
-     * Returns a list of all coordinates from which pieces of the specified {@code targeterColor}
+     * Returns the set of all coordinates from which pieces of the specified {@code targeterColor}
      * are attacking the given {@code target} square in the provided {@link Position}.
      *
      * <p>This includes:
@@ -227,63 +144,24 @@ public class Positions {
      *     <li>{@link Rider} pieces (e.g., rooks, bishops, queens, knights, kings) that can reach
      *         the target square through their movement patterns without being blocked.</li>
      *     <li>Pawns that can capture the target square diagonally.</li>
-     *     <li>Pawns that can perform an en passant capture onto the target square, if applicable.</li>
+     *     <li>Pawns that can perform an en passant capture onto the target square, if applicable.
+     *         These are exactly the pawns attacking it diagonally.</li>
      * </ul>
      *
+     * <p>Like {@link #isTargetedByColor(Coordinate, Color, Position)}, this is
+     * a reverse lookup from the target square.</p>
+     *
      * @param target the square being checked for attacks
      * @param targeterColor the color of the attacking pieces
      * @param position the current board position
-     * @return a list of coordinates from which the target square is being attacked
+     * @return the set of coordinates from which the target square is being attacked
      */
-    public static List<Coordinate> getTargetingCoordinates(@NotNull final Coordinate target,
-                                                           @NotNull final Color targeterColor,
-                                                           @NotNull final Position position) {
-        final List<Coordinate> targeting = new ArrayList<>();
-
-        for (int fileIndex = 0; fileIndex < File.COUNT; fileIndex++) {
-            for (int rankIndex = 0; rankIndex < Rank.COUNT; rankIndex++) {
-                final Coordinate origin = Coordinate.valueOf(fileIndex, rankIndex);
-                final Piece piece = position.getSquare(origin).getPiece();
-
-                if (piece == null || piece.getColor() != targeterColor) {
-                    continue;
-                }
-
-                if (piece instanceof final Rider rider) {
-                    for (final Offset offset : rider.getOffsets()) {
-                        for (final Coordinate candidate : offset.extendFrom(origin, rider.getRange())) {
-                            if (candidate.equals(target)) {
-                                targeting.add(origin);
-                                break;
-                            } else if (position.getSquare(candidate).getPiece() != null) {
-                                break;
-                            }
-                        }
-                    }
-                } else {
-                    // must be a pawn
-                    final int direction = targeterColor == Color.WHITE ? 1 : -1;
-                    final int expectedRank = origin.getRankIndex() + direction;
-
-                    // normal diagonal capture
-                    if (expectedRank == target.getRankIndex() &&
-                            Math.abs(origin.getFileIndex() - target.getFileIndex()) == 1) {
-                        targeting.add(origin);
-                    }
-
-                    // en passant
-                    final Coordinate epTarget = position.getEnPassantTarget();
-                    if (epTarget != null && epTarget.equals(target)) {
-                        if (origin.getRankIndex() == (targeterColor == Color.WHITE ? 4 : 3) &&
-                                Math.abs(origin.getFileIndex() - target.getFileIndex()) == 1) {
-                            targeting.add(origin);
-                        }
-                    }
-                }
-            }
-        }
-
-        return targeting;
+    @NotNull
+    public static SquareSet getTargetingCoordinates(@NotNull final Coordinate target,
+                                                    @NotNull final Color targeterColor,
+                                                    @NotNull final Position position) {
+        return SquareSet.of(Attacks.attackersTo(position, target.getSquareIndex(), targeterColor,
+                position.getOccupancy()));
     }
 
 }
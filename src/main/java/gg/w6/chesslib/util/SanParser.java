@@ -2,31 +2,40 @@ package gg.w6.chesslib.util;
 
 
 import gg.w6.chesslib.model.*;
-import gg.w6.chesslib.model.piece.*;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import gg.w6.chesslib.model.piece.PieceType;
+import org.jetbrains.annotations.NotNull;
 
 /**
  * A utility class for parsing Standard Algebraic Notation (SAN) strings into {@link Move} objects.
  *
  * <p>This class supports castling, pawn moves (including captures and en passant),
- * promotions, and disambiguated piece moves. It assumes all input SAN strings are legal
- * and that the associated {@link Position} accurately reflects the game state.</p>
+ * promotions, and disambiguated piece moves. It assumes that the associated
+ * {@link Position} accurately reflects the game state.</p>
+ *
+ * <p>The resolved move is checked against the legal moves of the position, so
+ * castling without the right or through check, pawn pushes onto occupied
+ * squares and moves of pinned pieces are rejected. Illegal SAN inputs will
+ * result in an {@link IllegalArgumentException}.</p>
+ *
+ * <p>The SAN is tokenized in a single pass over its characters, without
+ * regular expressions or intermediate strings, so a range of a larger
+ * {@link CharSequence}, such as the movetext of a PGN game, can be parsed in
+ * place.</p>
  *
- * <p>This parser does not validate legality beyond what is required for unambiguous interpretation.
- * Illegal SAN inputs will result in an {@link IllegalArgumentException}.</p>
+ * <p>{@link #tryParse(CharSequence, int, int, Position)} reports bad input
+ * as a {@link ParseResult} instead of throwing, which is much cheaper when
+ * replaying bulk PGN that contains broken games.</p>
  *
  * <p>This class is not instantiable.</p>
  */
 public class SanParser {
-    private static final Pattern CASTLING_SHORT = Pattern.compile("O-O");
-    private static final Pattern CASTLING_LONG = Pattern.compile("O-O-O");
-    private static final Pattern PAWN_PROMOTION = Pattern.compile("^([a-h])?(x)?([a-h][18])=([NBRQ])$");
-    private static final Pattern PAWN_MOVE = Pattern.compile("^([a-h])?(x)?([a-h][2-7])$");
-    private static final Pattern PIECE_MOVE = Pattern.compile("^([NBRQK])([a-h]?[1-8]?)(x)?([a-h][1-8])$");
+
+    private static final int NONE = -1;
+
+    private static final ParseError[] PARSE_ERRORS = ParseError.values();
+
+    private SanParser() {
+    } // ensure non-instantiability
 
     /**
      * Parses a legal SAN (Standard Algebraic Notation) string into a {@link Move}
@@ -40,181 +49,335 @@ public class SanParser {
      * </ul>
      *
      * <p>The input need not contain check/mate suffixes (+, #); they are
-     * stripped automatically.</p>
+     * stripped automatically, as are annotation suffixes (!, ?).</p>
      *
      * @param san the SAN string representing a move
      * @param position the current {@link Position} the move applies to
      * @return the parsed {@link Move}
-     * @throws IllegalArgumentException if the SAN is unrecognized or ambiguous
+     * @throws IllegalArgumentException if the SAN is unrecognized, illegal or ambiguous
      */
     public static Move parse(final String san, final Position position) {
-        final String cleanSan = san.replace("+", "")
-                .replace("#", "")
-                .replace("!", "")
-                .replace("?", "");
+        return parse(san, 0, san.length(), position);
+    }
 
-        if (CASTLING_SHORT.matcher(cleanSan).matches()) {
-            return parseCastling(position, true);
-        } else if (CASTLING_LONG.matcher(cleanSan).matches()) {
-            return parseCastling(position, false);
+    /**
+     * Parses the SAN in the given range of a character sequence into a
+     * {@link Move} based on the given {@link Position}.
+     *
+     * <p>Accepts the same syntax as {@link #parse(String, Position)}. The
+     * message of a thrown exception names the problem and the SAN, but not
+     * the position, so that a failure does not pay for writing its FEN.</p>
+     *
+     * @param chars the characters containing the SAN
+     * @param start the index of the first character of the SAN
+     * @param end the index after the last character of the SAN
+     * @param position the current {@link Position} the move applies to
+     * @return the parsed {@link Move}
+     * @throws IllegalArgumentException if the SAN is unrecognized, illegal or ambiguous
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     */
+    public static Move parse(@NotNull final CharSequence chars, final int start, final int end,
+                             @NotNull final Position position) {
+        final int packed = resolve(chars, start, end, position);
+        if (packed < 0) {
+            throw new IllegalArgumentException(PARSE_ERRORS[-1 - packed].getDescription() + ": "
+                    + chars.subSequence(start, end) + ".");
         }
+        return PackedMove.toMove(packed);
+    }
 
-        final Matcher promo = PAWN_PROMOTION.matcher(cleanSan);
-        if (promo.matches()) {
-            return parsePawnPromotion(promo, position);
-        }
+    /**
+     * Parses a SAN string into a {@link Move} based on the given
+     * {@link Position}, reporting bad input without throwing.
+     *
+     * @param san the SAN string representing a move
+     * @param position the current {@link Position} the move applies to
+     * @return the parsed move, or the {@link ParseError} and <code>0</code>
+     *         as the offset
+     * @see #parse(String, Position)
+     */
+    @NotNull
+    public static ParseResult<Move> tryParse(@NotNull final CharSequence san, @NotNull final Position position) {
+        return tryParse(san, 0, san.length(), position);
+    }
 
-        final Matcher pawn = PAWN_MOVE.matcher(cleanSan);
-        if (pawn.matches()) {
-            return parsePawnMove(pawn, position);
-        }
+    /**
+     * Parses the SAN in the given range of a character sequence into a
+     * {@link Move} based on the given {@link Position}, reporting bad input
+     * without throwing.
+     *
+     * <p>A failed result carries {@link ParseError#MALFORMED_SAN},
+     * {@link ParseError#ILLEGAL_SAN} if the move is not legal in the
+     * position, or {@link ParseError#AMBIGUOUS_SAN}, and <code>start</code>
+     * as the offset.</p>
+     *
+     * @param chars the characters containing the SAN
+     * @param start the index of the first character of the SAN
+     * @param end the index after the last character of the SAN
+     * @param position the current {@link Position} the move applies to
+     * @return the parsed move, or the error
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     * @see #parse(String, Position)
+     */
+    @NotNull
+    public static ParseResult<Move> tryParse(@NotNull final CharSequence chars, final int start, final int end,
+                                             @NotNull final Position position) {
+        final int packed = resolve(chars, start, end, position);
+        return packed < 0
+                ? ParseResult.failure(PARSE_ERRORS[-1 - packed], start)
+                : ParseResult.success(PackedMove.toMove(packed));
+    }
 
-        final Matcher piece = PIECE_MOVE.matcher(cleanSan);
-        if (piece.matches()) {
-            return parsePieceMove(piece, position, san);
+    /**
+     * Tokenizes and resolves the SAN in the given range, and checks that the
+     * move is legal.
+     *
+     * @return the {@link PackedMove packed move}, or the negative error code
+     *         of a {@link ParseError}, see {@link #error(ParseError)}
+     */
+    private static int resolve(final CharSequence chars, final int start, final int end,
+                               final BoardState position) {
+        final int packed = interpret(chars, start, end, position);
+        if (packed >= 0 && !MoveGenerator.isLegal(position, packed)) {
+            return error(ParseError.ILLEGAL_SAN);
         }
-
-        throw new IllegalArgumentException("Unrecognized SAN: " + san + ". fen=" + position.generateFEN());
+        return packed;
     }
 
-    private static Move parseCastling(Position position, boolean kingside) {
-        final Coordinate from = position.getToMove() == Color.WHITE ? Coordinate.valueOf("e1") : Coordinate.valueOf("e8");
-        final Coordinate to = position.getToMove() == Color.WHITE ?
-                (kingside ? Coordinate.valueOf("g1") : Coordinate.valueOf("c1")) :
-                (kingside ? Coordinate.valueOf("g8") : Coordinate.valueOf("c8"));
-        return new Move(from, to, MoveType.CASTLING, null);
-    }
+    /**
+     * Tokenizes the SAN in the given range and finds the move it names,
+     * without checking that the move is legal.
+     *
+     * @return the {@link PackedMove packed move}, or the negative error code
+     *         of a {@link ParseError}, see {@link #error(ParseError)}
+     */
+    private static int interpret(final CharSequence chars, final int start, final int end,
+                                 final BoardState position) {
+        if (start < 0 || end > chars.length() || start > end) {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of bounds for length "
+                    + chars.length() + ".");
+        }
 
-    private static Move parsePawnPromotion(Matcher matcher, Position position) {
-        String fromFile = matcher.group(1);
-        boolean isCapture = matcher.group(2) != null;
-        String toStr = matcher.group(3);
-        String promoPiece = matcher.group(4);
+        int last = end;
+        while (last > start && isSuffix(chars.charAt(last - 1))) {
+            last--;
+        }
+        final int length = last - start;
+        if (length < 2) {
+            return error(ParseError.MALFORMED_SAN);
+        }
 
-        Coordinate to = Coordinate.valueOf(toStr);
-        int toRank = to.getRankIndex();
-        int fromRank = position.getToMove() == Color.WHITE ? toRank - 1 : toRank + 1;
+        final char first = chars.charAt(start);
+        if (first == 'O') {
+            if (length == 3 && isCastling(chars, start)) {
+                return castling(position, true);
+            } else if (length == 5 && isCastling(chars, start) && chars.charAt(start + 3) == '-'
+                    && chars.charAt(start + 4) == 'O') {
+                return castling(position, false);
+            }
+            return error(ParseError.MALFORMED_SAN);
+        }
 
-        final Coordinate from;
-        if (isCapture) {
-            int offset = fromFile.charAt(0) - 'a';
-            from = Coordinate.valueOf(offset, fromRank);
-        } else {
-            from = Coordinate.valueOf(to.getFileIndex(), fromRank);
+        // a piece move: a piece letter, up to two disambiguating characters,
+        // an optional 'x' and the destination square
+        final PieceType pieceType = pieceType(first);
+        if (pieceType != null) {
+            final int to = squareIndex(chars, last - 2);
+            if (to == NONE || length < 3) {
+                return error(ParseError.MALFORMED_SAN);
+            }
+            int disambiguationEnd = last - 2;
+            if (chars.charAt(disambiguationEnd - 1) == 'x') {
+                disambiguationEnd--;
+            }
+            int index = start + 1;
+            int fromFile = NONE;
+            int fromRank = NONE;
+            if (index < disambiguationEnd && isFile(chars.charAt(index))) {
+                fromFile = chars.charAt(index++) - 'a';
+            }
+            if (index < disambiguationEnd && isRank(chars.charAt(index))) {
+                fromRank = chars.charAt(index++) - '1';
+            }
+            if (index != disambiguationEnd) {
+                return error(ParseError.MALFORMED_SAN);
+            }
+            return pieceMove(pieceType, fromFile, fromRank, to, position);
         }
 
-        Piece promotionPiece = createPieceFromSymbol(promoPiece, position.getToMove());
-        return new Move(from, to, MoveType.PROMOTION, promotionPiece);
+        // a pawn move: an optional origin file and 'x', the destination
+        // square and, on the last rank, '=' and the promotion piece letter
+        int squareEnd = last;
+        PieceType promotionType = null;
+        if (length >= 4 && chars.charAt(last - 2) == '=') {
+            promotionType = pieceType(chars.charAt(last - 1));
+            if (promotionType == null || promotionType == PieceType.KING) {
+                return error(ParseError.MALFORMED_SAN);
+            }
+            squareEnd -= 2;
+        }
+        final int to = squareIndex(chars, squareEnd - 2);
+        final int squareStart = squareEnd - 2;
+        if (to == NONE || squareStart < start) {
+            return error(ParseError.MALFORMED_SAN);
+        }
+        final int fromFile;
+        if (squareStart == start) {
+            fromFile = NONE;
+        } else if (squareStart == start + 2 && isFile(first) && chars.charAt(start + 1) == 'x') {
+            fromFile = first - 'a';
+        } else {
+            return error(ParseError.MALFORMED_SAN);
+        }
+        final int toRank = Bitboards.rankIndex(to);
+        final boolean lastRank = toRank == 0 || toRank == Rank.COUNT - 1;
+        if (lastRank != (promotionType != null)) {
+            return error(ParseError.MALFORMED_SAN);
+        }
+        return pawnMove(fromFile, to, promotionType, position);
     }
 
-    private static Move parsePawnMove(Matcher matcher, Position position) {
-        String fromFile = matcher.group(1);
-        boolean isCapture = matcher.group(2) != null;
-        String toStr = matcher.group(3);
+    private static int error(final ParseError error) {
+        return -1 - error.ordinal();
+    }
 
-        Coordinate to = Coordinate.valueOf(toStr);
-        int toRank = to.getRankIndex();
-        int fromRank = position.getToMove() == Color.WHITE ? toRank - 1 : toRank + 1;
+    private static boolean isSuffix(final char c) {
+        return c == '+' || c == '#' || c == '!' || c == '?';
+    }
 
-        Coordinate from;
-        if (isCapture) {
-            int fileIdx = fromFile.charAt(0) - 'a';
-            from = Coordinate.valueOf(fileIdx, fromRank);
+    private static boolean isCastling(final CharSequence chars, final int start) {
+        return chars.charAt(start) == 'O' && chars.charAt(start + 1) == '-' && chars.charAt(start + 2) == 'O';
+    }
 
-            if (position.getSquare(to).getPiece() == null &&
-                    to.equals(position.getEnPassantTarget())) {
-                return new Move(from, to, MoveType.EN_PASSANT, null);
-            }
-        } else {
-            from = Coordinate.valueOf(to.getFileIndex(), fromRank);
-            if (position.getSquare(from).getPiece() == null) {
-                fromRank = position.getToMove() == Color.WHITE ? toRank - 2 : toRank + 2;
-                from = Coordinate.valueOf(to.getFileIndex(), fromRank);
-            }
-        }
+    private static boolean isFile(final char c) {
+        return c >= 'a' && c <= 'h';
+    }
 
-        return new Move(from, to, MoveType.NORMAL, null);
+    private static boolean isRank(final char c) {
+        return c >= '1' && c <= '8';
     }
 
-    private static Move parsePieceMove(Matcher matcher, Position position, String san) {
-        String symbol = matcher.group(1);
-        String disambiguation = matcher.group(2);
-        String toStr = matcher.group(4);
+    /**
+     * Returns the square index of the coordinate at the given index, or
+     * {@link #NONE} if there is none.
+     */
+    private static int squareIndex(final CharSequence chars, final int index) {
+        if (index < 0 || index + 2 > chars.length()) {
+            return NONE;
+        }
+        final char file = chars.charAt(index);
+        final char rank = chars.charAt(index + 1);
+        return isFile(file) && isRank(rank) ? Bitboards.squareIndex(file - 'a', rank - '1') : NONE;
+    }
 
-        Coordinate to = Coordinate.valueOf(toStr);
-        Color activeColor = position.getToMove();
-        List<Coordinate> candidates = new ArrayList<>();
+    /**
+     * Returns the type of the piece with the given uppercase SAN letter, or
+     * null if it is not one.
+     */
+    private static PieceType pieceType(final char c) {
+        return switch (c) {
+            case 'N' -> PieceType.KNIGHT;
+            case 'B' -> PieceType.BISHOP;
+            case 'R' -> PieceType.ROOK;
+            case 'Q' -> PieceType.QUEEN;
+            case 'K' -> PieceType.KING;
+            default -> null;
+        };
+    }
 
-        for (Square square : position) {
-            Piece p = square.getPiece();
-            if (p == null) continue;
-            if (!p.getColor().equals(activeColor)) continue;
-            if (Character.toUpperCase(p.getLetter()) != symbol.charAt(0)) continue;
+    private static int castling(BoardState position, boolean kingside) {
+        final int rankIndex = position.getToMove() == Color.WHITE ? 0 : Rank.COUNT - 1;
+        final int from = Bitboards.squareIndex(4, rankIndex);
+        final int to = Bitboards.squareIndex(kingside ? 6 : 2, rankIndex);
+        return PackedMove.of(from, to, MoveType.CASTLING, null);
+    }
 
+    private static int pawnMove(int fromFile, int to, PieceType promotionType, BoardState position) {
+        final Color us = position.getToMove();
+        final int direction = us == Color.WHITE ? -1 : 1;
+        final int toRank = Bitboards.rankIndex(to);
+        final int fromRank = toRank + direction;
+        if (fromRank < 0 || fromRank >= Rank.COUNT) {
+            return error(ParseError.ILLEGAL_SAN);
+        }
 
-            if (p instanceof final Rider rider) {
-                for (Offset offset : rider.getOffsets()) {
-                    for (Coordinate coordinate : offset.extendFrom(square.getCoordinate(), rider.getRange())) {
-                        if (coordinate.equals(to)) {
-                            candidates.add(square.getCoordinate());
-                            break;
-                        }
-                        if (position.getSquare(coordinate).getPiece() != null) break;
-                    }
-                }
-            }
+        final int pawnIndex = Bitboards.pieceIndex(us, PieceType.PAWN);
+        int from = Bitboards.squareIndex(fromFile == NONE ? Bitboards.fileIndex(to) : fromFile, fromRank);
+        if (fromFile == NONE && promotionType == null && position.getPieceIndex(from) == Bitboards.NO_PIECE
+                && fromRank + direction >= 0 && fromRank + direction < Rank.COUNT) {
+            // a double push, through the empty square
+            from = Bitboards.squareIndex(Bitboards.fileIndex(to), fromRank + direction);
+        }
+        if (position.getPieceIndex(from) != pawnIndex) {
+            return error(ParseError.ILLEGAL_SAN);
         }
 
-        Coordinate from = disambiguate(candidates, disambiguation, position, to, san);
-        return new Move(from, to, MoveType.NORMAL, null);
+        if (promotionType != null) {
+            return PackedMove.of(from, to, MoveType.PROMOTION, promotionType);
+        }
+        final Coordinate enPassantTarget = position.getEnPassantTarget();
+        if (fromFile != NONE && position.getPieceIndex(to) == Bitboards.NO_PIECE
+                && enPassantTarget != null && enPassantTarget.getSquareIndex() == to) {
+            return PackedMove.of(from, to, MoveType.EN_PASSANT, null);
+        }
+        return PackedMove.of(from, to, MoveType.NORMAL, null);
     }
 
-    private static Coordinate disambiguate(List<Coordinate> candidates, String disambiguation, Position position, Coordinate to, String san) {
-        if (candidates.size() == 1) return candidates.get(0);
+    /**
+     * Finds the origin of a piece move by looking outward from the
+     * destination square for pieces of the named type, narrowing the
+     * candidates by the disambiguation and then by whether moving them would
+     * expose the king.
+     */
+    private static int pieceMove(PieceType pieceType, int fromFile, int fromRank, int to, BoardState position) {
+        final Color us = position.getToMove();
+        final long occupancy = position.getOccupancy();
+        final int pieceIndex = Bitboards.pieceIndex(us, pieceType);
+        long candidates = Attacks.pieceAttacks(pieceIndex, to, occupancy) & position.getBitboard(pieceIndex);
+        if (fromFile != NONE) {
+            candidates &= Bitboards.file(fromFile);
+        }
+        if (fromRank != NONE) {
+            candidates &= Bitboards.rank(fromRank);
+        }
 
-        for (Coordinate c : candidates) {
-            if (disambiguation.length() == 1) {
-                char ch = disambiguation.charAt(0);
-                if (ch >= 'a' && ch <= 'h' && c.getFile().name().toLowerCase().charAt(0) == ch) {
-                    return c;
-                } else if (ch >= '1' && ch <= '8') {
-                    int disambiguationRankIndex = ch - '1';
-                    if (c.getRankIndex() == disambiguationRankIndex) {
-                        return c;
+        if (Long.bitCount(candidates) > 1) {
+            final int kingSquare = position.getKingSquare(us);
+            if (kingSquare != Bitboards.NO_SQUARE) {
+                for (long remaining = candidates; remaining != 0; remaining &= remaining - 1) {
+                    final int from = Long.numberOfTrailingZeros(remaining);
+                    if (isPinned(position, from, to, kingSquare, occupancy)) {
+                        candidates &= ~Bitboards.bit(from);
                     }
                 }
-            } else if (disambiguation.length() == 2) {
-                Coordinate d = Coordinate.valueOf(disambiguation);
-                if (c.equals(d)) return c;
-            }
-        }
-
-        final List<Coordinate> legalCandidateCoordinates = new ArrayList<>();
-
-        for (Coordinate c : candidates) {
-            final Move candidateMove = new Move(c, to, MoveType.NORMAL, null);
-            final Position newPosition = position.applyTo(candidateMove);
-            final PositionValidator.Legality legality = PositionValidator.getLegality(newPosition);
-            if (legality != PositionValidator.Legality.CAN_CAPTURE_KING) {
-                legalCandidateCoordinates.add(c);
             }
         }
 
-        if (legalCandidateCoordinates.size() == 1) {
-            return legalCandidateCoordinates.get(0);
+        if (candidates == 0) {
+            return error(ParseError.ILLEGAL_SAN);
+        } else if (Long.bitCount(candidates) > 1) {
+            return error(ParseError.AMBIGUOUS_SAN);
         }
-
-        throw new IllegalArgumentException("Ambiguous SAN: " + candidates + " with disambiguation: " + disambiguation +  ". san=\"" + san + "\" fen=" + position.generateFEN());
+        return PackedMove.of(Long.numberOfTrailingZeros(candidates), to, MoveType.NORMAL, null);
     }
 
-    private static Piece createPieceFromSymbol(String symbol, Color color) {
-        return switch (symbol) {
-            case "Q" -> new Queen(color);
-            case "R" -> new Rook(color);
-            case "B" -> new Bishop(color);
-            case "N" -> new Knight(color);
-            default -> throw new IllegalArgumentException("Unknown promotion symbol: " + symbol);
-        };
+    /**
+     * Returns whether moving the piece on <code>from</code> to
+     * <code>to</code> would expose the king to an enemy slider behind it.
+     */
+    private static boolean isPinned(BoardState position, int from, int to, int kingSquare, long occupancy) {
+        final long line = Attacks.line(kingSquare, from);
+        if (line == 0 || (line & Bitboards.bit(to)) != 0) {
+            return false;
+        }
+        final Color them = position.getToMove() == Color.WHITE ? Color.BLACK : Color.WHITE;
+        final long occupancyAfter = occupancy ^ Bitboards.bit(from) | Bitboards.bit(to);
+        final long queens = position.getBitboard(them, PieceType.QUEEN);
+        final long sliders = (Attacks.bishopAttacks(kingSquare, occupancyAfter)
+                        & (position.getBitboard(them, PieceType.BISHOP) | queens))
+                | (Attacks.rookAttacks(kingSquare, occupancyAfter)
+                        & (position.getBitboard(them, PieceType.ROOK) | queens));
+        return (sliders & line) != 0;
     }
 
 }
@@ -0,0 +1,86 @@
+package gg.w6.chesslib.model;
+
+import gg.w6.chesslib.util.MoveGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardTest {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+    };
+
+    private static void assertSameState(final Position expected, final Board actual) {
+        assertEquals(expected.generateFEN(), actual.toString());
+        for (int pieceIndex = 0; pieceIndex < Bitboards.PIECE_INDEX_COUNT; pieceIndex++) {
+            assertEquals(expected.getBitboard(pieceIndex), actual.getBitboard(pieceIndex));
+        }
+        assertEquals(expected.getOccupancy(Color.WHITE), actual.getOccupancy(Color.WHITE));
+        assertEquals(expected.getOccupancy(Color.BLACK), actual.getOccupancy(Color.BLACK));
+        assertEquals(expected.getZobristKey(), actual.getZobristKey());
+        assertEquals(Zobrist.compute(actual), actual.getZobristKey());
+    }
+
+    /**
+     * Walks the tree to the given depth, checking every make against
+     * {@link Position#applyTo(Move)} and every unmake against the parent.
+     */
+    private static void walk(final Position position, final Board board, final int depth) {
+        if (depth == 0) {
+            return;
+        }
+        final MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(board, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            final Move move = PackedMove.toMove(moves.get(i));
+            final Position child = position.applyTo(move);
+            board.makeMove(moves.get(i));
+            assertSameState(child, board);
+            walk(child, board, depth - 1);
+            board.unmakeMove();
+            assertSameState(position, board);
+        }
+    }
+
+    @Test
+    void testMakeAndUnmakeMatchApplyTo() {
+        for (final String fen : FENS) {
+            final Position position = Position.valueOf(fen);
+            final Board board = new Board(position);
+            walk(position, board, 3);
+            assertEquals(0, board.getPly());
+        }
+    }
+
+    @Test
+    void testGeneratesSameMovesAsPosition() {
+        for (final String fen : FENS) {
+            final Position position = Position.valueOf(fen);
+            final MoveList moves = new MoveList();
+            MoveGenerator.generateLegalMoves(new Board(position), moves);
+            assertEquals(MoveGenerator.getLegalMoves(position), moves.toMoveSet());
+        }
+    }
+
+    @Test
+    void testUnmakeWithoutMoveThrows() {
+        final Board board = new Board(Position.valueOf(FENS[0]));
+        assertThrows(IllegalStateException.class, board::unmakeMove);
+    }
+
+    @Test
+    void testEnPassantTargetAndClocks() {
+        final Board board = new Board(Position.valueOf(FENS[0]));
+        board.makeMove(new Move(Coordinate.valueOf("e2"), Coordinate.valueOf("e4"), MoveType.NORMAL, null));
+        assertEquals(Coordinate.valueOf("e3"), board.getEnPassantTarget());
+        board.makeMove(new Move(Coordinate.valueOf("g8"), Coordinate.valueOf("f6"), MoveType.NORMAL, null));
+        assertNull(board.getEnPassantTarget());
+        assertEquals(1, board.getHalfMoveClock());
+        assertEquals(2, board.getFullMoves());
+        assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 1 2", board.toPosition().generateFEN());
+    }
+}
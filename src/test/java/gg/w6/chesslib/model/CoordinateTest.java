@@ -2,6 +2,7 @@ package gg.w6.chesslib.model;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -61,6 +62,17 @@ public class CoordinateTest {
         assertThrows(IllegalArgumentException.class, () -> Coordinate.valueOf("Malformed Coordinate"));
     }
 
+    @Test
+    void testTryValueOf() {
+        assertSame(Coordinate.valueOf(4, 3), Coordinate.tryValueOf("e4"));
+        assertSame(Coordinate.valueOf(7, 7), Coordinate.tryValueOf(new StringBuilder("h8")));
+        assertNull(Coordinate.tryValueOf("i1"));
+        assertNull(Coordinate.tryValueOf("a9"));
+        assertNull(Coordinate.tryValueOf("E4"));
+        assertNull(Coordinate.tryValueOf("e4 "));
+        assertNull(Coordinate.tryValueOf(""));
+    }
+
     @Test
     void testValueOfString() {
         Coordinate coordinate = Coordinate.valueOf("g5");
@@ -99,6 +111,24 @@ public class CoordinateTest {
         assertNotEquals("Hello, world!", coordinate);
     }
 
+    @Test
+    void testValueOfSquareIndex() {
+        assertEquals(Coordinate.valueOf("a1"), Coordinate.valueOf(0));
+        assertEquals(Coordinate.valueOf("h1"), Coordinate.valueOf(7));
+        assertEquals(Coordinate.valueOf("e4"), Coordinate.valueOf(28));
+        assertEquals(Coordinate.valueOf("h8"), Coordinate.valueOf(63));
+    }
 
+    @Test
+    void testValueOfSquareIndexOutOfBounds() {
+        assertThrows(IllegalArgumentException.class, () -> Coordinate.valueOf(-1));
+        assertThrows(IllegalArgumentException.class, () -> Coordinate.valueOf(64));
+    }
 
+    @Test
+    void testGetSquareIndex() {
+        for (int squareIndex = 0; squareIndex < 64; squareIndex++) {
+            assertEquals(squareIndex, Coordinate.valueOf(squareIndex).getSquareIndex());
+        }
+    }
 }
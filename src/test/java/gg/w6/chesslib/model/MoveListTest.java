@@ -0,0 +1,42 @@
+package gg.w6.chesslib.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveListTest {
+
+    @Test
+    void testAddGetAndClear() {
+        final MoveList moves = new MoveList(1);
+        final int e2e4 = PackedMove.of(12, 28, MoveType.NORMAL, null);
+        final int g1f3 = PackedMove.of(6, 21, MoveType.NORMAL, null);
+        moves.add(e2e4);
+        moves.add(g1f3);
+        assertEquals(2, moves.size());
+        assertEquals(e2e4, moves.get(0));
+        assertEquals(g1f3, moves.get(1));
+        assertTrue(moves.contains(g1f3));
+        assertEquals("[e2e4, g1f3]", moves.toString());
+
+        moves.truncate(1);
+        assertEquals("[e2e4]", moves.toString());
+        assertThrows(IndexOutOfBoundsException.class, () -> moves.truncate(2));
+
+        moves.clear();
+        assertTrue(moves.isEmpty());
+        assertFalse(moves.contains(e2e4));
+        assertThrows(IndexOutOfBoundsException.class, () -> moves.get(0));
+    }
+
+    @Test
+    void testToMoveSet() {
+        final MoveList moves = new MoveList();
+        moves.add(PackedMove.of(4, 6, MoveType.CASTLING, null));
+        final Set<Move> set = moves.toMoveSet();
+        assertEquals(Set.of(new Move(Coordinate.valueOf("e1"), Coordinate.valueOf("g1"), MoveType.CASTLING, null)),
+                set);
+    }
+}
@@ -0,0 +1,52 @@
+package gg.w6.chesslib.model;
+
+import gg.w6.chesslib.model.piece.Knight;
+import gg.w6.chesslib.model.piece.PieceType;
+import gg.w6.chesslib.model.piece.Queen;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedMoveTest {
+
+    @Test
+    void testRoundTripNormalMove() {
+        final Move move = new Move(Coordinate.valueOf("e2"), Coordinate.valueOf("e4"), MoveType.NORMAL, null);
+        final int packed = PackedMove.valueOf(move);
+        assertEquals(12, PackedMove.from(packed));
+        assertEquals(28, PackedMove.to(packed));
+        assertEquals(MoveType.NORMAL, PackedMove.moveType(packed));
+        assertNull(PackedMove.promotionType(packed));
+        assertEquals(move, PackedMove.toMove(packed));
+        assertTrue((packed & ~0xFFFF) == 0);
+    }
+
+    @Test
+    void testRoundTripPromotionsDeriveColorFromRank() {
+        final Move white = new Move(Coordinate.valueOf("a7"), Coordinate.valueOf("b8"), MoveType.PROMOTION,
+                new Queen(Color.WHITE));
+        final Move black = new Move(Coordinate.valueOf("h2"), Coordinate.valueOf("h1"), MoveType.PROMOTION,
+                new Knight(Color.BLACK));
+        assertEquals(PieceType.QUEEN, PackedMove.promotionType(PackedMove.valueOf(white)));
+        assertEquals(white, PackedMove.toMove(PackedMove.valueOf(white)));
+        assertEquals(black, PackedMove.toMove(PackedMove.valueOf(black)));
+        assertEquals("h2h1n", PackedMove.toString(PackedMove.valueOf(black)));
+    }
+
+    @Test
+    void testNoneIsNotAMove() {
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                if (from != to) {
+                    assertNotEquals(PackedMove.NONE, PackedMove.of(from, to, MoveType.NORMAL, null));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testIllegalPromotionType() {
+        assertThrows(IllegalArgumentException.class,
+                () -> PackedMove.of(52, 60, MoveType.PROMOTION, PieceType.KING));
+    }
+}
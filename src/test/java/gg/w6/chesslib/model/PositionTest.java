@@ -3,12 +3,20 @@ package gg.w6.chesslib.model;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import gg.w6.chesslib.model.piece.Piece;
+import gg.w6.chesslib.model.piece.PieceType;
 import org.junit.jupiter.api.Test;
 
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
 class PositionTest {
 
     @Test
@@ -140,4 +148,151 @@ class PositionTest {
         
         assertDoesNotThrow(() -> new Position(squares, new CastlingRights(), null, Color.WHITE, 0, 0));
     }
+
+    @Test
+    void testBitboardsMatchSquares() {
+        final Position position = Position.valueOf("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+
+        long occupancy = 0L;
+        for (final Color color : Color.values()) {
+            for (final PieceType pieceType : PieceType.values()) {
+                occupancy |= position.getBitboard(color, pieceType);
+            }
+        }
+        assertEquals(position.getOccupancy(), occupancy);
+        assertEquals(position.getOccupancy(), position.getOccupancy(Color.WHITE) | position.getOccupancy(Color.BLACK));
+        assertEquals(0L, position.getOccupancy(Color.WHITE) & position.getOccupancy(Color.BLACK));
+
+        for (final Square square : position) {
+            final Piece piece = square.getPiece();
+            final long bit = 1L << square.getCoordinate().getSquareIndex();
+            if (piece == null) {
+                assertEquals(0L, position.getOccupancy() & bit);
+            } else {
+                assertNotEquals(0L, position.getBitboard(piece.getColor(), piece.getType()) & bit);
+            }
+        }
+    }
+
+    @Test
+    void testIteratorIsFileMajor() {
+        final Position position = Position.valueOf("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        final Iterator<Square> iterator = position.iterator();
+
+        for (int fileIndex = 0; fileIndex < File.COUNT; fileIndex++) {
+            for (int rankIndex = 0; rankIndex < Rank.COUNT; rankIndex++) {
+                assertEquals(Coordinate.valueOf(fileIndex, rankIndex), iterator.next().getCoordinate());
+            }
+        }
+        assertFalse(iterator.hasNext());
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+
+    @Test
+    void testGetSquareOutOfBounds() {
+        final Position position = Position.valueOf("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> position.getSquare(File.COUNT, 0));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> position.getSquare(0, -1));
+    }
+
+    @Test
+    void testApplyToUpdatesBitboards() {
+        final Position position = Position.valueOf("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1")
+                .applyTo(new Move(Coordinate.valueOf("e1"), Coordinate.valueOf("g1"), MoveType.CASTLING, null));
+
+        assertEquals(1L << Coordinate.valueOf("g1").getSquareIndex(), position.getBitboard(Color.WHITE, PieceType.KING));
+        assertEquals(1L << Coordinate.valueOf("a1").getSquareIndex() | 1L << Coordinate.valueOf("f1").getSquareIndex(),
+                position.getBitboard(Color.WHITE, PieceType.ROOK));
+        assertEquals("r3k2r/8/8/8/8/8/8/R4RK1 b kq - 1 1", position.generateFEN());
+    }
+
+    @Test
+    void testTranspositionsAreEqualAndShareZobristKey() {
+        final Position start = Position.valueOf("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        final Move nf3 = new Move(Coordinate.valueOf("g1"), Coordinate.valueOf("f3"), MoveType.NORMAL, null);
+        final Move nc3 = new Move(Coordinate.valueOf("b1"), Coordinate.valueOf("c3"), MoveType.NORMAL, null);
+        final Move nf6 = new Move(Coordinate.valueOf("g8"), Coordinate.valueOf("f6"), MoveType.NORMAL, null);
+        final Move nc6 = new Move(Coordinate.valueOf("b8"), Coordinate.valueOf("c6"), MoveType.NORMAL, null);
+
+        final Position first = start.applyTo(nf3).applyTo(nf6).applyTo(nc3).applyTo(nc6);
+        final Position second = start.applyTo(nc3).applyTo(nc6).applyTo(nf3).applyTo(nf6);
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertEquals(first.getZobristKey(), second.getZobristKey());
+        assertEquals(Zobrist.compute(first), first.getZobristKey());
+        assertEquals(Position.valueOf(first.generateFEN()).getZobristKey(), first.getZobristKey());
+    }
+
+    @Test
+    void testEqualsIgnoresClocksButNotState() {
+        final Position position = Position.valueOf("4k3/8/8/8/4Pp2/8/8/4K3 b - e3 0 1");
+        assertEquals(position, Position.valueOf("4k3/8/8/8/4Pp2/8/8/4K3 b - e3 7 30"));
+        assertNotEquals(position, Position.valueOf("4k3/8/8/8/4Pp2/8/8/4K3 b - - 0 1"));
+        assertNotEquals(position, Position.valueOf("4k3/8/8/8/4Pp2/8/8/4K3 w - e3 0 1"));
+        assertNotEquals(position.getZobristKey(),
+                Position.valueOf("4k3/8/8/8/4Pp2/8/8/4K3 b - - 0 1").getZobristKey());
+    }
+
+    @Test
+    void testKingSquaresFollowMoves() {
+        final Position position = Position.valueOf("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        assertEquals(Coordinate.valueOf("e1"), position.getKingCoordinate(Color.WHITE));
+        assertEquals(Coordinate.valueOf("e8"), position.getKingCoordinate(Color.BLACK));
+
+        final Position castled = position.applyTo(
+                new Move(Coordinate.valueOf("e1"), Coordinate.valueOf("g1"), MoveType.CASTLING, null));
+        assertEquals(Coordinate.valueOf("g1"), castled.getKingCoordinate(Color.WHITE));
+        assertEquals(Bitboards.squareIndex(6, 0), castled.getKingSquare(Color.WHITE));
+
+        final Position kingless = Position.valueOf("8/8/8/8/8/8/8/4K3 w - - 0 1");
+        assertNull(kingless.getKingCoordinate(Color.BLACK));
+        assertEquals(Bitboards.NO_SQUARE, kingless.getKingSquare(Color.BLACK));
+    }
+
+    @Test
+    void testDerivedFactsAreComputedOnce() {
+        final String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        final Position position = Position.valueOf(fen);
+        assertEquals(fen, position.generateFEN());
+        assertSame(position.generateFEN(), position.toString());
+        assertEquals(48, position.getLegalMoves().size());
+        assertSame(position.getLegalMoves(), position.getLegalMoves());
+        assertThrows(UnsupportedOperationException.class, () -> position.getLegalMoves().clear());
+        assertFalse(position.isInCheck());
+        assertFalse(position.isCheckmate());
+        assertFalse(position.isStalemate());
+    }
+
+    @Test
+    void testCheckmateAndStalemate() {
+        final Position foolsMate = Position.valueOf("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+        assertTrue(foolsMate.isInCheck());
+        assertTrue(foolsMate.isCheckmate());
+        assertFalse(foolsMate.isStalemate());
+        assertTrue(foolsMate.getLegalMoves().isEmpty());
+
+        final Position stalemate = Position.valueOf("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        assertFalse(stalemate.isInCheck());
+        assertFalse(stalemate.isCheckmate());
+        assertTrue(stalemate.isStalemate());
+
+        final Position check = Position.valueOf("4k3/8/8/8/8/8/4r3/4K3 w - - 0 1");
+        assertTrue(check.isInCheck());
+        assertFalse(check.isCheckmate());
+        assertFalse(check.isStalemate());
+    }
+
+    @Test
+    void testStatusFlagsInAnyOrder() {
+        final String foolsMate = "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3";
+        final Position mateFirst = Position.valueOf(foolsMate);
+        assertTrue(mateFirst.isCheckmate());
+        assertTrue(mateFirst.isInCheck());
+
+        final Position stalemateFirst = Position.valueOf(foolsMate);
+        assertFalse(stalemateFirst.isStalemate());
+        assertTrue(stalemateFirst.isInCheck());
+        assertTrue(stalemateFirst.isCheckmate());
+    }
 }
@@ -0,0 +1,36 @@
+package gg.w6.chesslib.model;
+
+import gg.w6.chesslib.util.Positions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SquareSetTest {
+
+    @Test
+    void testSetOperations() {
+        final SquareSet set = SquareSet.of(Bitboards.bit(0) | Bitboards.bit(63));
+        assertEquals(2, set.size());
+        assertTrue(set.contains(Coordinate.valueOf("a1")));
+        assertTrue(set.contains(Coordinate.valueOf("h8")));
+        assertFalse(set.contains(Coordinate.valueOf("e4")));
+        assertFalse(set.contains("a1"));
+        assertEquals(List.of(Coordinate.valueOf("a1"), Coordinate.valueOf("h8")), List.copyOf(set));
+        assertEquals(Set.of(Coordinate.valueOf("h8"), Coordinate.valueOf("a1")), set);
+        assertTrue(SquareSet.of(Bitboards.EMPTY).isEmpty());
+    }
+
+    @Test
+    void testTargetingCoordinates() {
+        final Position position = Position.valueOf("4k3/8/8/3pP3/8/2N5/8/4K2R w - d6 0 1");
+        assertEquals(Set.of(Coordinate.valueOf("e5")),
+                Positions.getTargetingCoordinates(Coordinate.valueOf("d6"), Color.WHITE, position));
+        assertEquals(Set.of(Coordinate.valueOf("c3"), Coordinate.valueOf("e1")),
+                Positions.getTargetingCoordinates(Coordinate.valueOf("e2"), Color.WHITE, position));
+        assertTrue(Positions.isTargetedByColor(Coordinate.valueOf("h7"), Color.WHITE, position));
+        assertFalse(Positions.isTargetedByColor(Coordinate.valueOf("a8"), Color.WHITE, position));
+    }
+}
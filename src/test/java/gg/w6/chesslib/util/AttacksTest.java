@@ -0,0 +1,102 @@
+package gg.w6.chesslib.util;
+
+import gg.w6.chesslib.model.Color;
+import gg.w6.chesslib.model.Coordinate;
+import gg.w6.chesslib.model.Offset;
+import gg.w6.chesslib.model.piece.Bishop;
+import gg.w6.chesslib.model.piece.King;
+import gg.w6.chesslib.model.piece.Knight;
+import gg.w6.chesslib.model.piece.Queen;
+import gg.w6.chesslib.model.piece.Rider;
+import gg.w6.chesslib.model.piece.Rook;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AttacksTest {
+
+    private static long walkRays(final Rider rider, final int squareIndex, final long occupancy) {
+        long attacks = 0L;
+        for (final Offset offset : rider.getOffsets()) {
+            for (final Coordinate target : offset.extendFrom(Coordinate.valueOf(squareIndex), rider.getRange())) {
+                final long bit = 1L << target.getSquareIndex();
+                attacks |= bit;
+                if ((occupancy & bit) != 0) break;
+            }
+        }
+        return attacks;
+    }
+
+    @Test
+    void testSliderAttacksMatchRayWalking() {
+        final Random random = new Random(42);
+        final Rider rook = new Rook(Color.WHITE);
+        final Rider bishop = new Bishop(Color.WHITE);
+        final Rider queen = new Queen(Color.WHITE);
+
+        for (int i = 0; i < 2000; i++) {
+            final long occupancy = random.nextLong() & random.nextLong();
+            for (int squareIndex = 0; squareIndex < 64; squareIndex++) {
+                assertEquals(walkRays(rook, squareIndex, occupancy), Attacks.rookAttacks(squareIndex, occupancy));
+                assertEquals(walkRays(bishop, squareIndex, occupancy), Attacks.bishopAttacks(squareIndex, occupancy));
+                assertEquals(walkRays(queen, squareIndex, occupancy), Attacks.queenAttacks(squareIndex, occupancy));
+            }
+        }
+    }
+
+    @Test
+    void testRookAttacksOnEmptyBoard() {
+        final int a1 = Coordinate.valueOf("a1").getSquareIndex();
+        assertEquals(14, Long.bitCount(Attacks.rookAttacks(a1, 0L)));
+    }
+
+    @Test
+    void testBishopAttacksStopAtBlocker() {
+        final int c1 = Coordinate.valueOf("c1").getSquareIndex();
+        final long blocker = 1L << Coordinate.valueOf("e3").getSquareIndex();
+        final long expected = 1L << Coordinate.valueOf("b2").getSquareIndex()
+                | 1L << Coordinate.valueOf("a3").getSquareIndex()
+                | 1L << Coordinate.valueOf("d2").getSquareIndex()
+                | blocker;
+        assertEquals(expected, Attacks.bishopAttacks(c1, blocker));
+    }
+
+    @Test
+    void testLeaperAttacksMatchRayWalking() {
+        final Rider knight = new Knight(Color.WHITE);
+        final Rider king = new King(Color.WHITE);
+        for (int squareIndex = 0; squareIndex < 64; squareIndex++) {
+            assertEquals(walkRays(knight, squareIndex, 0L), Attacks.knightAttacks(squareIndex));
+            assertEquals(walkRays(king, squareIndex, 0L), Attacks.kingAttacks(squareIndex));
+        }
+    }
+
+    @Test
+    void testPawnAttacksDoNotWrap() {
+        final int a2 = Coordinate.valueOf("a2").getSquareIndex();
+        final int h7 = Coordinate.valueOf("h7").getSquareIndex();
+        assertEquals(1L << Coordinate.valueOf("b3").getSquareIndex(), Attacks.pawnAttacks(Color.WHITE, a2));
+        assertEquals(1L << Coordinate.valueOf("g6").getSquareIndex(), Attacks.pawnAttacks(Color.BLACK, h7));
+    }
+
+    @Test
+    void testPawnPushes() {
+        final int e2 = Coordinate.valueOf("e2").getSquareIndex();
+        assertEquals(1L << Coordinate.valueOf("e3").getSquareIndex(), Attacks.pawnPushes(Color.WHITE, e2));
+        assertEquals(1L << Coordinate.valueOf("e1").getSquareIndex(), Attacks.pawnPushes(Color.BLACK, e2));
+    }
+
+    @Test
+    void testBetweenAndLine() {
+        final int b2 = Coordinate.valueOf("b2").getSquareIndex();
+        final int e5 = Coordinate.valueOf("e5").getSquareIndex();
+        final long between = 1L << Coordinate.valueOf("c3").getSquareIndex()
+                | 1L << Coordinate.valueOf("d4").getSquareIndex();
+        assertEquals(between, Attacks.between(b2, e5));
+        assertEquals(0x8040201008040201L, Attacks.line(b2, e5));
+        assertEquals(0L, Attacks.between(b2, Coordinate.valueOf("c4").getSquareIndex()));
+        assertEquals(0L, Attacks.line(b2, Coordinate.valueOf("c4").getSquareIndex()));
+    }
+}
@@ -0,0 +1,81 @@
+package gg.w6.chesslib.util;
+
+import gg.w6.chesslib.model.Position;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FenParserTest {
+
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    @Test
+    void testTryParse() {
+        final ParseResult<Position> result = FenParser.tryParse(START_FEN);
+        assertTrue(result.isSuccess());
+        assertNull(result.getError());
+        assertEquals(-1, result.getOffset());
+        assertEquals(START_FEN, result.getValue().generateFEN());
+        assertEquals(FenParser.parse(START_FEN), result.getValue());
+    }
+
+    @Test
+    void testTryParseCastlingAndEnPassant() {
+        final String fen = "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w Kq d6 0 3";
+        assertEquals(fen, FenParser.tryParse(fen).getValue().generateFEN());
+    }
+
+    @Test
+    void testTryParseErrors() {
+        assertError(ParseError.MALFORMED_PIECE_PLACEMENT, 8,
+                "rnbqkbnrr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertError(ParseError.MALFORMED_PIECE_PLACEMENT, 10,
+                "rnbqkbnr/pXpppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertError(ParseError.MALFORMED_PIECE_PLACEMENT, 34,
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1");
+        assertError(ParseError.MALFORMED_ACTIVE_COLOR, 44, START_FEN.replace(" w ", " x "));
+        assertError(ParseError.MALFORMED_CASTLING_RIGHTS, 47, START_FEN.replace("KQkq", "KKq"));
+        assertError(ParseError.MALFORMED_EN_PASSANT_TARGET, 51, START_FEN.replace(" - ", " e9 "));
+        assertError(ParseError.MALFORMED_HALFMOVE_CLOCK, 53, START_FEN.replace(" 0 ", " x "));
+        assertError(ParseError.MALFORMED_FULLMOVE_NUMBER, 55, START_FEN.replace(" 1", " 99999999999"));
+        assertError(ParseError.MALFORMED_FEN_FIELD_COUNT, 52, START_FEN.substring(0, 52));
+        assertError(ParseError.MALFORMED_FEN_FIELD_COUNT, 56, START_FEN + " extra");
+    }
+
+    @Test
+    void testTryParseRange() {
+        final String line = "id 1; " + START_FEN + "\n";
+        final ParseResult<Position> result = FenParser.tryParse(line, 6, line.length() - 1);
+        assertEquals(START_FEN, result.getValue().generateFEN());
+
+        final ParseResult<Position> error = FenParser.tryParse(line.replace(" w ", " x "), 6, line.length() - 1);
+        assertEquals(ParseError.MALFORMED_ACTIVE_COLOR, error.getError());
+        assertEquals(6 + 44, error.getOffset());
+        assertThrows(IndexOutOfBoundsException.class, () -> FenParser.tryParse(line, 6, line.length() + 1));
+    }
+
+    @Test
+    void testTryParseByteBuffer() {
+        final ByteBuffer buffer = ByteBuffer.wrap((START_FEN + "\n" + START_FEN).getBytes(StandardCharsets.US_ASCII));
+        final int second = START_FEN.length() + 1;
+        assertEquals(START_FEN, FenParser.tryParse(buffer, second, buffer.limit()).getValue().generateFEN());
+        assertEquals(START_FEN, FenParser.tryParse(buffer, 0, START_FEN.length()).getValue().generateFEN());
+        assertEquals(0, buffer.position());
+        assertEquals(ParseError.MALFORMED_FULLMOVE_NUMBER, FenParser.tryParse(buffer, 0, second).getError());
+    }
+
+    @Test
+    void testParseThrows() {
+        assertThrows(IllegalArgumentException.class, () -> FenParser.parse(START_FEN.replace(" w ", " x ")));
+    }
+
+    private static void assertError(final ParseError error, final int offset, final String fen) {
+        final ParseResult<Position> result = FenParser.tryParse(fen);
+        assertFalse(result.isSuccess(), fen);
+        assertEquals(error, result.getError(), fen);
+        assertEquals(offset, result.getOffset(), fen);
+    }
+}
@@ -0,0 +1,69 @@
+package gg.w6.chesslib.util;
+
+import gg.w6.chesslib.model.Board;
+import gg.w6.chesslib.model.Position;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FenWriterTest {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w Kq d6 0 3",
+            "8/8/8/8/8/8/8/8 b - - 99 1234567890",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+    };
+
+    @Test
+    void testAppendStringBuilder() {
+        final StringBuilder stringBuilder = new StringBuilder("fen: ");
+        for (final String fen : FENS) {
+            stringBuilder.setLength(5);
+            assertSame(stringBuilder, FenWriter.append(Position.valueOf(fen), stringBuilder));
+            assertEquals("fen: " + fen, stringBuilder.toString());
+        }
+    }
+
+    @Test
+    void testWriteAppendable() throws IOException {
+        for (final String fen : FENS) {
+            final Board board = new Board(Position.valueOf(fen));
+            final StringWriter writer = FenWriter.write(board, board.getHalfMoveClock(), board.getFullMoves(),
+                    new StringWriter());
+            assertEquals(fen, writer.toString());
+            assertEquals(fen, board.toString());
+        }
+    }
+
+    @Test
+    void testPutByteBuffer() {
+        final ByteBuffer buffer = ByteBuffer.allocate(FenWriter.MAX_LENGTH * FENS.length);
+        final StringBuilder expected = new StringBuilder();
+        for (final String fen : FENS) {
+            FenWriter.put(Position.valueOf(fen), buffer).put((byte) '\n');
+            expected.append(fen).append('\n');
+        }
+        assertEquals(expected.toString(),
+                new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII));
+        assertThrows(BufferOverflowException.class,
+                () -> FenWriter.put(Position.valueOf(FENS[0]), ByteBuffer.allocate(10)));
+    }
+
+    @Test
+    void testMaxLength() {
+        final Position position = new PositionBuilder()
+                .setHalfMoveClock(Integer.MIN_VALUE)
+                .setFullMoves(Integer.MIN_VALUE)
+                .toPosition();
+        assertTrue(FenWriter.append(position, new StringBuilder()).length() <= FenWriter.MAX_LENGTH);
+        assertEquals(Integer.toString(Integer.MIN_VALUE),
+                position.generateFEN().substring(position.generateFEN().lastIndexOf(' ') + 1));
+    }
+}
@@ -0,0 +1,108 @@
+package gg.w6.chesslib.util;
+
+import gg.w6.chesslib.model.Move;
+import gg.w6.chesslib.model.MoveList;
+import gg.w6.chesslib.model.Position;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LegalMoveCacheTest {
+
+    private static final Position KIWIPETE =
+            Position.valueOf("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+
+    @Test
+    void testHitsAndMisses() {
+        final LegalMoveCache cache = new LegalMoveCache(16);
+        assertNull(cache.getIfPresent(KIWIPETE));
+        final Set<Move> moves = cache.get(KIWIPETE);
+        assertEquals(48, moves.size());
+        assertSame(moves, cache.get(KIWIPETE));
+        // equal positions with different clocks share the entry
+        assertSame(moves, cache.get(Position.valueOf(
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 12 40")));
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.size());
+        assertThrows(UnsupportedOperationException.class, moves::clear);
+    }
+
+    @Test
+    void testBoundedByCapacity() {
+        final LegalMoveCache cache = new LegalMoveCache(20);
+        final List<Position> positions = children(KIWIPETE);
+        for (final Position position : positions) {
+            assertEquals(MoveGenerator.generateLegalMoves(position, new MoveList()),
+                    cache.get(position).size());
+        }
+        assertEquals(20, cache.size());
+        assertEquals(positions.size() - 20, cache.getEvictionCount());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertThrows(IllegalArgumentException.class, () -> new LegalMoveCache(0));
+    }
+
+    @Test
+    void testRecentlyReadEntriesSurvive() {
+        final LegalMoveCache cache = new LegalMoveCache(8);
+        final List<Position> positions = children(KIWIPETE);
+        cache.get(KIWIPETE);
+        for (final Position position : positions) {
+            cache.get(KIWIPETE);
+            cache.get(position);
+        }
+        assertNotNull(cache.getIfPresent(KIWIPETE));
+    }
+
+    @Test
+    void testConcurrentAccess() throws Exception {
+        final LegalMoveCache cache = new LegalMoveCache(64);
+        final List<Position> positions = children(KIWIPETE);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < 20; round++) {
+                        for (final Position position : positions) {
+                            final Set<Move> moves = cache.get(position);
+                            assertEquals(MoveGenerator.getLegalMoves(position), moves);
+                        }
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(4L * 20 * positions.size(), cache.getHitCount() + cache.getMissCount());
+        assertTrue(cache.size() <= 64);
+    }
+
+    @Test
+    void testSharedSet() {
+        final LegalMoveCache cache = new LegalMoveCache();
+        assertSame(cache.get(KIWIPETE), cache.get(KIWIPETE));
+        assertEquals(1, cache.getHitCount());
+        assertNotSame(MoveGenerator.getLegalMoves(KIWIPETE), MoveGenerator.getLegalMoves(KIWIPETE));
+    }
+
+    private static List<Position> children(final Position position) {
+        final List<Position> children = new ArrayList<>();
+        for (final Move move : MoveGenerator.getLegalMoves(position)) {
+            children.add(position.applyTo(move));
+        }
+        return children;
+    }
+}
@@ -3,33 +3,44 @@ package gg.w6.chesslib.util;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import gg.w6.chesslib.model.Bitboards;
+import gg.w6.chesslib.model.Board;
 import gg.w6.chesslib.model.Move;
+import gg.w6.chesslib.model.MoveList;
+import gg.w6.chesslib.model.MoveType;
+import gg.w6.chesslib.model.PackedMove;
+import gg.w6.chesslib.model.piece.PieceType;
 import gg.w6.chesslib.util.jsonmappings.movegenerator.testgetlegalmoves.ExpectedMove;
 import gg.w6.chesslib.util.jsonmappings.movegenerator.testgetlegalmoves.TestCase;
 import gg.w6.chesslib.util.jsonmappings.movegenerator.testgetlegalmoves.TestCaseFile;
 import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestFactory;
 
 import gg.w6.chesslib.model.Position;
 import org.junit.jupiter.api.function.Executable;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class MoveGeneratorTest {
 
     private static final String PERFT_TEST_CASES_CSV_FILE_PATH = "/testcases/movegeneratortest/perft/perft.csv";
     private static final String PERFT_TEST_CASES_CSV_FILE_HEADER = "fen,depth,perft";
     private static final String GET_LEGAL_MOVES_TEST_CASES_JSON_FILES_PATH = "/testcases/movegeneratortest/positions/";
+    private static final int APPLY_TO_PERFT_MAX_DEPTH = 3;
 
     @TestFactory
     List<DynamicTest> generatePerftTests() throws URISyntaxException, IOException {
@@ -55,14 +66,40 @@ public class MoveGeneratorTest {
             dynamicTests.add(DynamicTest.dynamicTest("[perft] depth=" + depth + " | FEN='" + fen + "'", testSourceUri, 
                 () -> {
                     final Position position = Position.valueOf(fen);
-                    final long actual = Perft.perft(depth, position);
+                    // no hash table, so every case walks its whole tree
+                    final long actual = new Perft(0, ForkJoinPool.commonPool()).count(position, depth);
                     assertEquals(expected, actual);
                 }
             ));
+
+            // the same tree walked through Position.applyTo, at a shallower depth
+            final int applyToDepth = Math.min(depth, APPLY_TO_PERFT_MAX_DEPTH);
+            dynamicTests.add(DynamicTest.dynamicTest("[perft applyTo] depth=" + applyToDepth + " | FEN='" + fen + "'",
+                testSourceUri,
+                () -> {
+                    final Position position = Position.valueOf(fen);
+                    final long expectedNodes = new Perft(0, ForkJoinPool.commonPool()).count(position, applyToDepth);
+                    assertEquals(expectedNodes, applyToPerft(position, applyToDepth, new LegalMoveCache()));
+                }
+            ));
         }
         return dynamicTests;
     }
 
+    private static long applyToPerft(final Position position, final int depth, final LegalMoveCache cache) {
+        if (depth == 0) {
+            return 1L;
+        }
+        final Set<Move> moves = MoveGenerator.getLegalMoves(position);
+        assertEquals(moves, position.getLegalMoves());
+        assertEquals(moves, cache.get(position));
+        long nodes = 0;
+        for (final Move move : moves) {
+            nodes += applyToPerft(position.applyTo(move), depth - 1, cache);
+        }
+        return nodes;
+    }
+
     @TestFactory
     List<DynamicTest> testGetLegalMoves() throws URISyntaxException, IOException {
         final URL pathToJsonFolderURL = getClass().getResource(GET_LEGAL_MOVES_TEST_CASES_JSON_FILES_PATH);
@@ -127,5 +164,175 @@ public class MoveGeneratorTest {
         }
         return dynamicTests;
     }
-}
 
+    @Test
+    void testGenerateLegalMovesIntoMoveListDoesNotAllocate() {
+        final Position[] positions = {
+                Position.valueOf("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"),
+                Position.valueOf("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"),
+                Position.valueOf("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"),
+                Position.valueOf("8/8/8/KPp4r/8/8/8/7k w - c6 0 1"),
+        };
+        final MoveList moves = new MoveList();
+        // per thread allocation counters are a HotSpot extension
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "no com.sun.management.ThreadMXBean");
+        final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled(),
+                "thread allocated memory not supported");
+        final long threadId = Thread.currentThread().getId();
+
+        // warm up, so that class initialization and compilation are not measured
+        for (int i = 0; i < 20_000; i++) {
+            moves.clear();
+            MoveGenerator.generateLegalMoves(positions[i % positions.length], moves);
+            MoveGenerator.generatePseudoLegalMoves(positions[i % positions.length], moves);
+        }
+
+        long count = 0;
+        final long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            moves.clear();
+            count += MoveGenerator.generateLegalMoves(positions[i % positions.length], moves);
+            count += MoveGenerator.generatePseudoLegalMoves(positions[i % positions.length], moves);
+            count += MoveGenerator.countLegalMoves(positions[i % positions.length]);
+        }
+        final long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(count > 0);
+        // allow for the measurement itself, but not for anything per call
+        assertTrue(allocated < 1024, "Allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void testGenerateLegalMovesAppendsAndCounts() {
+        final MoveList moves = new MoveList();
+        final Position position = Position.valueOf("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertEquals(20, MoveGenerator.generateLegalMoves(position, moves));
+        assertEquals(20, MoveGenerator.generateLegalMoves(position, moves));
+        assertEquals(40, moves.size());
+        assertEquals(MoveGenerator.getLegalMoves(position), moves.toMoveSet());
+    }
+
+    @Test
+    void testIsLegal() {
+        final Position position = Position.valueOf("r3k2r/8/8/8/8/8/5r2/R3K2R w KQ - 0 1");
+        final int e1 = Bitboards.squareIndex(4, 0);
+        assertTrue(MoveGenerator.isLegal(position, PackedMove.of(e1, Bitboards.squareIndex(2, 0),
+                MoveType.CASTLING, null)));
+        // castling through the attacked f1
+        assertFalse(MoveGenerator.isLegal(position, PackedMove.of(e1, Bitboards.squareIndex(6, 0),
+                MoveType.CASTLING, null)));
+        // the same squares, but not as castling
+        assertFalse(MoveGenerator.isLegal(position, PackedMove.of(e1, Bitboards.squareIndex(2, 0),
+                MoveType.NORMAL, null)));
+        assertFalse(MoveGenerator.isLegal(position, PackedMove.of(e1, Bitboards.squareIndex(4, 1),
+                MoveType.NORMAL, null)));
+    }
+
+    @Test
+    void testIsLegalMatchesGeneration() {
+        final String[] fens = {
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                "8/8/8/KPp4r/8/8/8/7k w - c6 0 1",
+                "8/8/8/8/8/8/2p5/8 b - - 0 1",
+        };
+        final MoveList moves = new MoveList();
+        for (final String fen : fens) {
+            final Position root = Position.valueOf(fen);
+            final List<Position> positions = new ArrayList<>(List.of(root));
+            for (final Move move : MoveGenerator.getLegalMoves(root)) {
+                positions.add(root.applyTo(move));
+            }
+            for (final Position position : positions) {
+                moves.clear();
+                MoveGenerator.generateLegalMoves(position, moves);
+                // every 16 bit value, most of which are not even pseudo-legal
+                for (int packedMove = 0; packedMove <= 0xFFFF; packedMove++) {
+                    if (MoveGenerator.isLegal(position, packedMove) != moves.contains(packedMove)) {
+                        fail(PackedMove.toString(packedMove) + " in " + position.generateFEN());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCountLegalMovesMatchesGeneration() {
+        final String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                "8/8/8/8/8/8/8/R3K3 w Q - 0 1",
+                "8/8/8/8/8/8/2p5/8 b - - 0 1",
+        };
+        final MoveList moves = new MoveList();
+        for (final String fen : fens) {
+            final Position root = Position.valueOf(fen);
+            final List<Position> positions = new ArrayList<>(List.of(root));
+            for (final Move move : MoveGenerator.getLegalMoves(root)) {
+                positions.add(root.applyTo(move));
+            }
+            for (final Position position : positions) {
+                moves.clear();
+                MoveGenerator.generateLegalMoves(position, moves);
+                final int[] expected = new int[PieceType.COUNT];
+                for (int i = 0; i < moves.size(); i++) {
+                    expected[Bitboards.pieceTypeOf(position.getPieceIndex(PackedMove.from(moves.get(i)))).ordinal()]++;
+                }
+
+                final int[] counts = new int[PieceType.COUNT];
+                assertEquals(moves.size(), MoveGenerator.countLegalMoves(position), position.toString());
+                assertEquals(moves.size(), MoveGenerator.countLegalMoves(position, counts));
+                assertArrayEquals(expected, counts, position.toString());
+                final Map<PieceType, Integer> byPieceType = MoveGenerator.countLegalMovesByPieceType(position);
+                for (final PieceType pieceType : PieceType.values()) {
+                    assertEquals(expected[pieceType.ordinal()], byPieceType.get(pieceType));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testHasLegalMovesMatchesCount() {
+        final String[] fens = {
+                "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3", // fool's mate
+                "7k/5Q2/6K1/8/8/8/8/8 b - - 0 1", // stalemate
+                "4k3/8/8/8/8/8/3PPP2/r3K3 w - - 0 1", // back rank mate
+                "4k3/8/8/8/8/8/3PPP2/r3K1N1 w - - 0 1", // block with the knight
+                "4k3/8/8/2Pp4/2K5/8/8/8 w - d6 0 1", // check by a pawn that can be taken en passant
+                "k7/8/8/8/8/8/p7/K1r5 w - - 0 1", // stalemate, pawn can't move
+                "8/8/8/8/8/6pk/6P1/7K w - - 0 1", // blocked pawns, king walled in
+        };
+        for (final String fen : fens) {
+            final Position position = Position.valueOf(fen);
+            assertEquals(MoveGenerator.countLegalMoves(position) != 0, MoveGenerator.hasLegalMoves(position), fen);
+        }
+
+        // random games end in checkmate or stalemate often enough to cover both sides
+        final SplittableRandom random = new SplittableRandom(17);
+        final MoveList moves = new MoveList();
+        int terminal = 0;
+        for (int game = 0; game < 300; game++) {
+            final Board board = new Board(Position.valueOf(
+                    "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"));
+            for (int ply = 0; ply < 400; ply++) {
+                moves.clear();
+                final int count = MoveGenerator.generateLegalMoves(board, moves);
+                assertEquals(count != 0, MoveGenerator.hasLegalMoves(board), board.toString());
+                if (count == 0) {
+                    terminal++;
+                    break;
+                }
+                board.makeMove(moves.get(random.nextInt(count)));
+            }
+        }
+        assertTrue(terminal > 0);
+    }
+}
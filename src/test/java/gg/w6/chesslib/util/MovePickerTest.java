@@ -0,0 +1,155 @@
+package gg.w6.chesslib.util;
+
+import gg.w6.chesslib.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovePickerTest {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+    };
+
+    @Test
+    void testYieldsEveryLegalMoveOnce() {
+        final MoveList legalMoves = new MoveList();
+        final MovePicker picker = new MovePicker(new Board(Position.valueOf(FENS[0])));
+        for (final String fen : FENS) {
+            final Board board = new Board(Position.valueOf(fen));
+            MoveGenerator.generateLegalMoves(board, legalMoves);
+            for (int i = 0; i < legalMoves.size(); i++) {
+                board.makeMove(legalMoves.get(i));
+                checkPicker(board, picker);
+                board.unmakeMove();
+            }
+            legalMoves.clear();
+            checkPicker(board, picker);
+        }
+    }
+
+    @Test
+    void testStageOrder() {
+        final Board board = new Board(Position.valueOf(FENS[1]));
+        final int a2a3 = PackedMove.of(8, 16, MoveType.NORMAL, null);
+        final int castle = PackedMove.of(4, 6, MoveType.CASTLING, null);
+        final int d2h6 = PackedMove.of(11, 47, MoveType.NORMAL, null);
+        final int g2h3 = PackedMove.of(14, 23, MoveType.NORMAL, null);
+        final int f3h3 = PackedMove.of(21, 23, MoveType.NORMAL, null);
+
+        final MovePicker picker = new MovePicker(board, a2a3, castle, d2h6);
+        assertEquals(a2a3, picker.next());
+        assertEquals(MovePicker.Stage.HASH_MOVE, picker.getStage());
+        final List<Integer> order = drain(picker);
+        assertFalse(order.contains(a2a3));
+        assertEquals(MovePicker.Stage.DONE, picker.getStage());
+        assertEquals(PackedMove.NONE, picker.next());
+
+        // the pawn on h3 is defended by the rook on h8: taking it with the pawn comes before the killers,
+        // taking it with the queen comes last
+        assertTrue(order.indexOf(g2h3) < order.indexOf(castle));
+        assertEquals(order.indexOf(castle) + 1, order.indexOf(d2h6));
+        assertEquals(order.size() - 1, order.indexOf(f3h3));
+    }
+
+    @Test
+    void testIllegalHashMoveIsIgnored() {
+        final Board board = new Board(Position.valueOf(FENS[1]));
+        final int e2f3 = PackedMove.of(12, 21, MoveType.NORMAL, null); // onto the own queen
+        final MovePicker picker = new MovePicker(board, e2f3, e2f3, PackedMove.NONE);
+        final List<Integer> order = drain(picker);
+        assertFalse(order.contains(e2f3));
+        assertEquals(48, order.size());
+    }
+
+    @Test
+    void testKillersAreCheckedOneByOne() {
+        final Board board = new Board(Position.valueOf(FENS[1]));
+        final int g2h3 = PackedMove.of(14, 23, MoveType.NORMAL, null); // a capture
+        final int e1d1 = PackedMove.of(4, 3, MoveType.NORMAL, null);
+        final int e1g1 = PackedMove.of(4, 6, MoveType.NORMAL, null); // not as castling
+        final MovePicker picker = new MovePicker(board, PackedMove.NONE, g2h3, e1d1);
+        int move = picker.next();
+        while (picker.getStage() == MovePicker.Stage.GOOD_CAPTURES && move != g2h3) {
+            move = picker.next();
+        }
+        assertEquals(g2h3, move);
+        assertEquals(MovePicker.Stage.GOOD_CAPTURES, picker.getStage());
+        do {
+            move = picker.next();
+        } while (picker.getStage() == MovePicker.Stage.GOOD_CAPTURES);
+        assertEquals(e1d1, move);
+        assertEquals(MovePicker.Stage.KILLERS, picker.getStage());
+        final List<Integer> rest = drain(picker);
+        assertFalse(rest.contains(e1d1));
+        assertFalse(rest.contains(g2h3));
+
+        picker.reset(board, PackedMove.NONE, e1g1, PackedMove.NONE);
+        assertFalse(drain(picker).contains(e1g1));
+    }
+
+    private static void checkPicker(final Board board, final MovePicker picker) {
+        final MoveList legalMoves = new MoveList();
+        MoveGenerator.generateLegalMoves(board, legalMoves);
+        final int quiet = firstMatching(board, legalMoves, false);
+        final int tactical = firstMatching(board, legalMoves, true);
+
+        picker.reset(board, tactical, quiet, PackedMove.NONE);
+        final Set<Integer> yielded = new HashSet<>();
+        MovePicker.Stage previousStage = MovePicker.Stage.HASH_MOVE;
+        for (int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            assertTrue(yielded.add(move), "duplicate " + PackedMove.toString(move));
+            assertTrue(legalMoves.contains(move), "illegal " + PackedMove.toString(move));
+            final MovePicker.Stage stage = picker.getStage();
+            assertTrue(stage.compareTo(previousStage) >= 0);
+            final boolean expectTactical = stage == MovePicker.Stage.GOOD_CAPTURES
+                    || stage == MovePicker.Stage.BAD_CAPTURES
+                    || stage == MovePicker.Stage.HASH_MOVE && tactical != PackedMove.NONE;
+            assertEquals(expectTactical, MoveGenerator.isTactical(board, move), PackedMove.toString(move));
+            previousStage = stage;
+        }
+        assertEquals(legalMoves.size(), yielded.size());
+        if (tactical != PackedMove.NONE) {
+            picker.reset(board, tactical, PackedMove.NONE, PackedMove.NONE);
+            assertEquals(tactical, picker.next());
+        }
+        if (quiet != PackedMove.NONE) {
+            picker.reset(board, PackedMove.NONE, quiet, PackedMove.NONE);
+            final List<Integer> order = drain(picker);
+            for (final int move : order.subList(order.indexOf(quiet) + 1, order.size())) {
+                assertTrue(PackedMove.moveType(move) == MoveType.CASTLING
+                        || !MoveGenerator.isTactical(board, move) || isLosingCapture(board, move));
+            }
+        }
+    }
+
+    private static boolean isLosingCapture(final Board board, final int move) {
+        return MoveGenerator.isTactical(board, move) && PackedMove.moveType(move) != MoveType.PROMOTION;
+    }
+
+    private static int firstMatching(final Board board, final MoveList moves, final boolean tactical) {
+        for (int i = 0; i < moves.size(); i++) {
+            if (MoveGenerator.isTactical(board, moves.get(i)) == tactical) {
+                return moves.get(i);
+            }
+        }
+        return PackedMove.NONE;
+    }
+
+    private static List<Integer> drain(final MovePicker picker) {
+        final List<Integer> moves = new ArrayList<>();
+        for (int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            moves.add(move);
+        }
+        return moves;
+    }
+}
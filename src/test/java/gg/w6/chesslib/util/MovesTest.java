@@ -0,0 +1,124 @@
+package gg.w6.chesslib.util;
+
+import gg.w6.chesslib.model.Bitboards;
+import gg.w6.chesslib.model.Board;
+import gg.w6.chesslib.model.Color;
+import gg.w6.chesslib.model.Coordinate;
+import gg.w6.chesslib.model.Move;
+import gg.w6.chesslib.model.MoveList;
+import gg.w6.chesslib.model.MoveType;
+import gg.w6.chesslib.model.PackedMove;
+import gg.w6.chesslib.model.Position;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovesTest {
+
+    @Test
+    void testGenerateAllSANDisambiguates() {
+        // queens on a1, a4 and d1 can all reach d4
+        final Position position = Position.valueOf("8/7k/8/8/Q7/8/8/Q2Q2K1 w - - 0 1");
+        final Map<Move, String> sans = Moves.generateAllSAN(position);
+        assertEquals(MoveGenerator.getLegalMoves(position), sans.keySet());
+        assertTrue(sans.containsValue("Qa1d4"));
+        assertTrue(sans.containsValue("Q4d4"));
+        assertTrue(sans.containsValue("Qdd4"));
+        assertTrue(sans.containsValue("Qad7+"));
+        assertTrue(sans.containsValue("Qdd7+"));
+        assertTrue(sans.containsValue("Kg2"));
+    }
+
+    @Test
+    void testGenerateAllSANMatchesGenerateSAN() {
+        final String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                "8/7k/8/8/Q7/8/8/Q2Q2K1 w - - 0 1",
+                "4k3/8/8/2Pp4/2K5/8/8/8 w - d6 0 1",
+        };
+        for (final String fen : fens) {
+            assertMatches(Position.valueOf(fen));
+        }
+
+        final SplittableRandom random = new SplittableRandom(7);
+        final MoveList moves = new MoveList();
+        for (int game = 0; game < 20; game++) {
+            final Board board = new Board(Position.valueOf(
+                    "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"));
+            for (int ply = 0; ply < 200; ply++) {
+                final Position position = board.toPosition();
+                assertMatches(position);
+                moves.clear();
+                final int count = MoveGenerator.generateLegalMoves(board, moves);
+                if (count == 0) {
+                    break;
+                }
+                board.makeMove(moves.get(random.nextInt(count)));
+            }
+        }
+    }
+
+    private static void assertMatches(final Position position) {
+        final Map<Move, String> sans = Moves.generateAllSAN(position);
+        assertEquals(MoveGenerator.getLegalMoves(position), sans.keySet());
+        for (final Map.Entry<Move, String> entry : sans.entrySet()) {
+            assertEquals(Moves.generateSAN(entry.getKey(), position), entry.getValue(), position + " " + entry.getKey());
+        }
+    }
+
+    @Test
+    void testGivesCheck() {
+        final String[] fens = {
+                "8/7k/8/4Pp2/8/8/8/KB6 w - f6 0 1", // en passant uncovers the bishop
+                "5k2/8/8/8/8/8/8/4K2R w K - 0 1", // castling rook checks
+                "3k4/6P1/8/8/8/8/8/4K3 w - - 0 1", // promotion checks along the rank
+                "4k3/8/8/8/4N3/8/8/4R1K1 w - - 0 1", // every knight move uncovers the rook
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+        };
+        for (final String fen : fens) {
+            assertGivesCheckMatches(new Board(Position.valueOf(fen)));
+        }
+
+        final SplittableRandom random = new SplittableRandom(11);
+        final MoveList moves = new MoveList();
+        for (int game = 0; game < 50; game++) {
+            final Board board = new Board(Position.valueOf(
+                    "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"));
+            for (int ply = 0; ply < 300; ply++) {
+                assertGivesCheckMatches(board);
+                moves.clear();
+                final int count = MoveGenerator.generateLegalMoves(board, moves);
+                if (count == 0) {
+                    break;
+                }
+                board.makeMove(moves.get(random.nextInt(count)));
+            }
+        }
+
+        final Position position = Position.valueOf("8/7k/8/4Pp2/8/8/8/KB6 w - f6 0 1");
+        final Move exf6 = new Move(Coordinate.valueOf("e5"), Coordinate.valueOf("f6"), MoveType.EN_PASSANT, null);
+        assertTrue(Moves.givesCheck(exf6, position));
+        assertEquals("exf6+", Moves.generateSAN(exf6, position));
+    }
+
+    private static void assertGivesCheckMatches(final Board board) {
+        final MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(board, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            final int move = moves.get(i);
+            final boolean givesCheck = Moves.givesCheck(board, move);
+            board.makeMove(move);
+            final int kingSquare = board.getKingSquare(board.getToMove());
+            final boolean inCheck = kingSquare != Bitboards.NO_SQUARE && Attacks.attackersTo(board, kingSquare,
+                    board.getToMove() == Color.WHITE ? Color.BLACK : Color.WHITE, board.getOccupancy()) != 0;
+            board.unmakeMove();
+            assertEquals(inCheck, givesCheck, board + " " + PackedMove.toString(move));
+        }
+    }
+}
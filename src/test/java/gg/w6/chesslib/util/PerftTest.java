@@ -0,0 +1,60 @@
+package gg.w6.chesslib.util;
+
+import gg.w6.chesslib.model.Move;
+import gg.w6.chesslib.model.Position;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerftTest {
+
+    private static final Position KIWIPETE =
+            Position.valueOf("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+
+    @Test
+    void testShallowDepths() {
+        final Perft perft = new Perft();
+        assertEquals(1, perft.count(KIWIPETE, 0));
+        assertEquals(48, perft.count(KIWIPETE, 1));
+        assertEquals(2039, perft.count(KIWIPETE, 2));
+        assertEquals(97862, perft.count(KIWIPETE, 3));
+        assertThrows(IllegalArgumentException.class, () -> perft.count(KIWIPETE, -1));
+    }
+
+    @Test
+    void testHashTableDoesNotChangeCounts() {
+        final Perft hashed = new Perft(1 << 12, ForkJoinPool.commonPool());
+        assertEquals(4085603, hashed.count(KIWIPETE, 4));
+        // the second count is answered from the table
+        assertEquals(4085603, hashed.count(KIWIPETE, 4));
+
+        final ForkJoinPool singleThreadPool = new ForkJoinPool(1);
+        try {
+            assertEquals(4085603, new Perft(0, singleThreadPool).count(KIWIPETE, 4));
+        } finally {
+            singleThreadPool.shutdown();
+        }
+        hashed.clearHashTable();
+        assertEquals(4085603, hashed.count(KIWIPETE, 4));
+    }
+
+    @Test
+    void testDivide() {
+        final Perft.Result result = new Perft().divide(KIWIPETE, 3);
+        assertEquals(3, result.getDepth());
+        assertEquals(97862, result.getNodes());
+        assertEquals(48, result.getNodesPerMove().size());
+        assertEquals(result.getNodes(), result.getNodesPerMove().values().stream().mapToLong(Long::longValue).sum());
+        assertTrue(result.getNodesPerSecond() > 0);
+
+        final Move e1g1 = MoveGenerator.getLegalMoves(KIWIPETE).stream()
+                .filter(move -> move.toString().equals("e1g1"))
+                .findFirst().orElseThrow();
+        assertEquals(2059, result.getNodesPerMove().get(e1g1));
+        assertTrue(result.toString().contains("e1g1: 2059"));
+        assertTrue(result.toString().contains("Nodes: 97862"));
+        assertThrows(IllegalArgumentException.class, () -> new Perft().divide(KIWIPETE, 0));
+    }
+}
@@ -0,0 +1,114 @@
+package gg.w6.chesslib.util;
+
+import gg.w6.chesslib.model.Game;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PgnDatabaseSpliteratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static String game(final int number, final String white) {
+        return "[Event \"Test " + number + "\"]\n"
+                + "[EventDate \"2024.01.01\"]\n"
+                + "[White \"" + white + "\"]\n"
+                + "[Black \"Black " + number + "\"]\n"
+                + "[Result \"1-0\"]\n"
+                + "\n"
+                + "1. e4 e5 2. Nf3 Nc6\n"
+                + "3. Bb5 a6 1-0";
+    }
+
+    private static List<String> games(final int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> game(i, i % 7 == 0 ? "Müller " + i : "White " + i))
+                .collect(Collectors.toList());
+    }
+
+    private Path write(final String content) throws IOException {
+        final Path path = tempDir.resolve("games.pgn");
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    @Test
+    void testStream() throws IOException {
+        final List<String> games = games(20);
+        final Path path = write("; a comment before the first game\n\n" + String.join("\n\n", games) + "\n\n");
+        try (Stream<String> stream = PgnDatabaseSpliterator.stream(path)) {
+            assertEquals(games, stream.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void testByteOrderMarkAndCarriageReturns() throws IOException {
+        final List<String> games = games(3);
+        final Path path = write("\uFEFF" + String.join("\r\n\r\n", games).replace("\n", "\r\n") + "\r\n");
+        try (Stream<String> stream = PgnDatabaseSpliterator.stream(path)) {
+            final List<String> actual = stream.collect(Collectors.toList());
+            assertEquals(3, actual.size());
+            for (int i = 0; i < games.size(); i++) {
+                assertEquals(games.get(i), actual.get(i).replace("\r\n", "\n"));
+            }
+            final Game game = PgnParser.parse(actual.get(0));
+            assertEquals("Müller 0", game.white());
+        }
+    }
+
+    @Test
+    void testEmptyFile() throws IOException {
+        try (Stream<String> stream = PgnDatabaseSpliterator.stream(write(""))) {
+            assertEquals(0, stream.count());
+        }
+    }
+
+    @Test
+    void testSplitsCoverEveryGameOnce() throws IOException {
+        final List<String> games = games(500);
+        final Path path = write(String.join("\n\n", games) + "\n");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (final int windowSize : new int[] { 300, 4096, PgnDatabaseSpliterator.DEFAULT_WINDOW_SIZE }) {
+                final List<Spliterator<String>> parts = new ArrayList<>();
+                split(new PgnDatabaseSpliterator(channel, windowSize, 64), parts);
+                assertTrue(parts.size() > 100);
+
+                final List<String> actual = new ArrayList<>();
+                for (final Spliterator<String> part : parts) {
+                    part.forEachRemaining(actual::add);
+                }
+                assertEquals(games, actual);
+            }
+
+            final List<String> parallel = StreamSupport.stream(
+                    new PgnDatabaseSpliterator(channel, 1024, 256), true).collect(Collectors.toList());
+            assertEquals(games, parallel);
+        }
+    }
+
+    private static void split(final Spliterator<String> spliterator, final List<Spliterator<String>> parts) {
+        final Spliterator<String> prefix = spliterator.trySplit();
+        if (prefix == null) {
+            parts.add(spliterator);
+            return;
+        }
+        split(prefix, parts);
+        split(spliterator, parts);
+    }
+}
@@ -0,0 +1,148 @@
+package gg.w6.chesslib.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PgnPipelineTest {
+
+    private static final String RUY_LOPEZ = "1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 4. Ba4 Nf6 5. O-O Be7 1/2-1/2";
+    private static final String FOOLS_MATE = "1. f3 e5 2. g4 Qh4# 0-1";
+    private static final String BROKEN = "1. e4 e5 2. Ke3 Nc6 1-0";
+    private static final int GAME_COUNT = 300;
+
+    @TempDir
+    Path tempDir;
+
+    private static List<String> games() {
+        final List<String> games = new ArrayList<>();
+        for (int i = 0; i < GAME_COUNT; i++) {
+            final String movetext = i % 50 == 49 ? BROKEN : i % 2 == 0 ? RUY_LOPEZ : FOOLS_MATE;
+            games.add("[Event \"Game " + i + "\"]\n[Site \"?\"]\n\n" + movetext + "\n");
+        }
+        return games;
+    }
+
+    @Test
+    void testOrderedFromFile() throws IOException, InterruptedException {
+        final Path path = tempDir.resolve("games.pgn");
+        Files.write(path, String.join("\n", games()).getBytes(StandardCharsets.US_ASCII));
+        final PgnPipeline pipeline = new PgnPipelineBuilder()
+                .setSource(path)
+                .setParallelism(4)
+                .setQueueCapacity(8)
+                .setOrdered(true)
+                .toPipeline();
+
+        final List<PgnPipeline.ReplayedGame> replayedGames = new ArrayList<>();
+        final PgnPipeline.Statistics statistics = pipeline.run(replayedGames::add);
+
+        assertEquals(GAME_COUNT, replayedGames.size());
+        for (int i = 0; i < GAME_COUNT; i++) {
+            final PgnPipeline.ReplayedGame replayedGame = replayedGames.get(i);
+            assertEquals(i, replayedGame.getSequenceNumber());
+            assertEquals("Game " + i, replayedGame.getGame().event());
+            if (i % 50 == 49) {
+                assertFalse(replayedGame.isSuccess());
+                assertEquals(ParseError.ILLEGAL_SAN, replayedGame.getError());
+                assertEquals(2, replayedGame.getErrorPly());
+                assertEquals(2, replayedGame.getMoves().size());
+            } else if (i % 2 == 0) {
+                assertTrue(replayedGame.isSuccess());
+                assertEquals(10, replayedGame.getMoves().size());
+                assertEquals("r1bqk2r/1pppbppp/p1n2n2/4p3/B3P3/5N2/PPPP1PPP/RNBQ1RK1 w kq - 4 6",
+                        replayedGame.getFinalPosition().generateFEN());
+            } else {
+                assertTrue(replayedGame.getFinalPosition().isCheckmate());
+                assertEquals(-1, replayedGame.getErrorPly());
+            }
+        }
+
+        final int failed = GAME_COUNT / 50;
+        assertEquals(GAME_COUNT, statistics.getGamesSplit());
+        assertEquals(GAME_COUNT, statistics.getGamesParsed());
+        assertEquals(GAME_COUNT - failed, statistics.getGamesReplayed());
+        assertEquals(failed, statistics.getGamesFailed());
+        assertEquals(GAME_COUNT, statistics.getGamesDelivered());
+        assertEquals(failed * 2 + (GAME_COUNT / 2) * 10 + (GAME_COUNT / 2 - failed) * 4,
+                statistics.getPliesReplayed());
+        assertEquals(statistics.getGamesDelivered(), pipeline.getStatistics().getGamesDelivered());
+    }
+
+    @Test
+    void testUnorderedFromIterable() throws InterruptedException {
+        final PgnPipeline pipeline = new PgnPipelineBuilder()
+                .setSource(games())
+                .setParallelism(3)
+                .setQueueCapacity(1)
+                .toPipeline();
+
+        final Set<Long> sequenceNumbers = new HashSet<>();
+        for (int run = 0; run < 2; run++) {
+            sequenceNumbers.clear();
+            final PgnPipeline.Statistics statistics = pipeline.run(
+                    replayedGame -> assertTrue(sequenceNumbers.add(replayedGame.getSequenceNumber())));
+            assertEquals(GAME_COUNT, sequenceNumbers.size());
+            assertEquals(GAME_COUNT, statistics.getGamesDelivered());
+        }
+    }
+
+    @Test
+    void testConsumerFailureStopsPipeline() {
+        final PgnPipeline pipeline = new PgnPipelineBuilder()
+                .setSource(games())
+                .setParallelism(2)
+                .setQueueCapacity(4)
+                .toPipeline();
+        final IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> pipeline.run(replayedGame -> {
+                    throw new IllegalStateException("consumer failed");
+                }));
+        assertEquals("consumer failed", exception.getMessage());
+        assertTrue(pipeline.getStatistics().getGamesSplit() < GAME_COUNT);
+    }
+
+    @Test
+    void testIllegalMovesFailTheGame() throws InterruptedException {
+        final List<String> games = List.of(
+                "[Event \"Illegal castle\"]\n\n1. e4 e5 2. O-O Nc6 1-0\n",
+                "[Event \"Blocked pawn\"]\n\n1. e4 e5 2. e5 Nc6 1-0\n");
+        final PgnPipeline pipeline = new PgnPipelineBuilder()
+                .setSource(games)
+                .setParallelism(2)
+                .setOrdered(true)
+                .toPipeline();
+
+        final List<PgnPipeline.ReplayedGame> replayedGames = new ArrayList<>();
+        final PgnPipeline.Statistics statistics = pipeline.run(replayedGames::add);
+
+        assertEquals(2, replayedGames.size());
+        for (final PgnPipeline.ReplayedGame replayedGame : replayedGames) {
+            assertFalse(replayedGame.isSuccess(), replayedGame.getGame().event());
+            assertEquals(ParseError.ILLEGAL_SAN, replayedGame.getError());
+            assertEquals(2, replayedGame.getErrorPly());
+            assertEquals(2, replayedGame.getMoves().size());
+            assertEquals("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq e6 0 2",
+                    replayedGame.getFinalPosition().generateFEN());
+        }
+        assertEquals(2, statistics.getGamesFailed());
+        assertEquals(4, statistics.getPliesReplayed());
+    }
+
+    @Test
+    void testBuilderRequiresSource() {
+        assertThrows(IllegalStateException.class, () -> new PgnPipelineBuilder().toPipeline());
+        assertThrows(IllegalArgumentException.class, () -> new PgnPipelineBuilder().setParallelism(0));
+        assertThrows(IllegalArgumentException.class, () -> new PgnPipelineBuilder().setQueueCapacity(0));
+    }
+}
@@ -8,6 +8,7 @@ import gg.w6.chesslib.util.jsonmappings.sanparser.testparse.ExpectedMove;
 import gg.w6.chesslib.util.jsonmappings.sanparser.testparse.TestCase;
 import gg.w6.chesslib.util.jsonmappings.sanparser.testparse.TestCaseFile;
 import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestFactory;
 import org.junit.jupiter.api.function.Executable;
 
@@ -68,4 +69,86 @@ public class SanParserTest {
         return dynamicTests;
     }
 
+    @Test
+    void testParseRange() {
+        final Position position = Position.valueOf("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        final String movetext = "1. e4 e5 2. Nf3";
+        assertEquals("e2e4", SanParser.parse(movetext, 3, 5, position).toString());
+        assertEquals("g1f3", SanParser.parse(movetext, 12, 15, position).toString());
+        assertThrows(IndexOutOfBoundsException.class, () -> SanParser.parse(movetext, 12, 16, position));
+    }
+
+    @Test
+    void testParseSuffixes() {
+        final Position position = Position.valueOf("4k3/P7/8/8/8/8/8/R3K2R w KQ - 0 1");
+        assertEquals("a7a8q", SanParser.parse("a8=Q+!?", position).toString());
+        assertEquals("e1c1", SanParser.parse("O-O-O+", position).toString());
+        assertEquals("e1g1", SanParser.parse("O-O", position).toString());
+        assertEquals("h1h8", SanParser.parse("Rh8#", position).toString());
+    }
+
+    @Test
+    void testParseMalformed() {
+        final Position position = Position.valueOf("4k3/P7/8/8/8/8/4P3/R3K2R w KQ - 0 1");
+        for (final String san : new String[] { "", "+", "e", "e9", "i4", "a8", "a8=K", "e2=Q", "xe4", "ee4",
+                "Ze4", "R", "Ra1b1c1", "O-O-", "O-O-O-O", "0-0" }) {
+            assertThrows(IllegalArgumentException.class, () -> SanParser.parse(san, position), san);
+        }
+        assertEquals("Unrecognized SAN: ee4.",
+                assertThrows(IllegalArgumentException.class, () -> SanParser.parse("ee4", position)).getMessage());
+    }
+
+    @Test
+    void testParsePinnedCandidate() {
+        final Position pinned = Position.valueOf("7k/8/8/8/1b6/8/3N3N/4K3 w - - 0 1");
+        assertEquals("h2f3", SanParser.parse("Nf3", pinned).toString());
+        assertEquals("d2f3", SanParser.parse("Ndf3", Position.valueOf("7k/8/8/8/8/8/3N3N/4K3 w - - 0 1")).toString());
+        assertThrows(IllegalArgumentException.class,
+                () -> SanParser.parse("Nf3", Position.valueOf("7k/8/8/8/8/8/3N3N/4K3 w - - 0 1")));
+        assertThrows(IllegalArgumentException.class, () -> SanParser.parse("Nf4", pinned));
+    }
+
+    @Test
+    void testTryParse() {
+        final Position position = Position.valueOf("7k/8/8/8/8/8/3N3N/4K3 w - - 0 1");
+        final ParseResult<Move> success = SanParser.tryParse("Nhf3", position);
+        assertTrue(success.isSuccess());
+        assertEquals("h2f3", success.getValue().toString());
+
+        final String movetext = "1. Nf3 Nf4 Nz3";
+        assertEquals(ParseError.AMBIGUOUS_SAN, SanParser.tryParse(movetext, 3, 6, position).getError());
+        final ParseResult<Move> illegal = SanParser.tryParse(movetext, 7, 10, position);
+        assertEquals(ParseError.ILLEGAL_SAN, illegal.getError());
+        assertEquals(7, illegal.getOffset());
+        assertNull(illegal.getValue());
+        assertEquals(ParseError.MALFORMED_SAN, SanParser.tryParse(movetext, 11, 14, position).getError());
+        assertThrows(IllegalArgumentException.class, illegal::getValueOrThrow);
+    }
+
+    @Test
+    void testTryParseIllegalMoves() {
+        final Position noRights = Position.valueOf("r3k2r/8/8/8/8/8/8/R3K2R w - - 0 1");
+        assertEquals(ParseError.ILLEGAL_SAN, SanParser.tryParse("O-O", noRights).getError());
+        assertEquals(ParseError.ILLEGAL_SAN, SanParser.tryParse("O-O-O", noRights).getError());
+
+        final Position throughCheck = Position.valueOf("4k3/8/8/8/8/8/5r2/R3K2R w KQ - 0 1");
+        assertEquals(ParseError.ILLEGAL_SAN, SanParser.tryParse("O-O", throughCheck).getError());
+        assertEquals("e1c1", SanParser.tryParse("O-O-O", throughCheck).getValueOrThrow().toString());
+
+        final Position blocked = Position.valueOf("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq e6 0 2");
+        assertEquals(ParseError.ILLEGAL_SAN, SanParser.tryParse("e5", blocked).getError());
+        assertEquals(ParseError.ILLEGAL_SAN, SanParser.tryParse("dxe6", blocked).getError());
+        final Position doublePushBlocked = Position.valueOf("4k3/8/8/8/8/4n3/4P3/4K3 w - - 0 1");
+        assertEquals(ParseError.ILLEGAL_SAN, SanParser.tryParse("e4", doublePushBlocked).getError());
+        assertEquals(ParseError.ILLEGAL_SAN, SanParser.tryParse("exd5",
+                Position.valueOf("4k3/8/8/3p4/4B3/8/8/4K3 w - - 0 1")).getError());
+
+        final Position lonePinned = Position.valueOf("4k3/8/8/8/1b6/8/3N4/4K3 w - - 0 1");
+        assertEquals(ParseError.ILLEGAL_SAN, SanParser.tryParse("Nf3", lonePinned).getError());
+        final Position kingAttacked = Position.valueOf("4k3/8/8/8/8/8/3r4/4K3 w - - 0 1");
+        assertEquals(ParseError.ILLEGAL_SAN, SanParser.tryParse("Kf2", kingAttacked).getError());
+        assertEquals("e1d2", SanParser.tryParse("Kxd2", kingAttacked).getValueOrThrow().toString());
+        assertThrows(IllegalArgumentException.class, () -> SanParser.parse("Nf3", lonePinned));
+    }
+
 }